@@ -0,0 +1,36 @@
+package com.helenusdb.document.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so allocation rates (gc.alloc.rate.norm) are
+ * reported alongside timings. Accepts the usual JMH command-line options, e.g. a benchmark
+ * name pattern:
+ * 
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar KeyExtraction
+ * </pre>
+ */
+public final class BenchmarkRunner
+{
+	private BenchmarkRunner()
+	{
+		// prevents instantiation.
+	}
+
+	public static void main(String[] args)
+	throws RunnerException, CommandLineOptionException
+	{
+		new Runner(
+			new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()
+		).run();
+	}
+}
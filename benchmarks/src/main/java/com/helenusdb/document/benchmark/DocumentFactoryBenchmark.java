@@ -0,0 +1,63 @@
+package com.helenusdb.document.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helenusdb.document.document.CassandraDocumentFactory;
+import com.helenusdb.document.key.KeyDefinitionParser;
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * Encoding an entity into a Document and decoding it back, by codec and payload size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentFactoryBenchmark
+{
+	@Param({"java", "data", "streaming"})
+	private String codec;
+
+	@Param({"256", "4096", "65536"})
+	private int payloadSize;
+
+	private CassandraDocumentFactory<Sample> factory;
+	private Sample sample;
+	private Document<Sample> document;
+
+	@Setup
+	public void setup()
+	throws Exception
+	{
+		factory = new CassandraDocumentFactory<>(KeyDefinitionParser.parse("id:uuid"), SampleCodecs.named(codec));
+		sample = Sample.create(payloadSize);
+		document = factory.asDocument(sample);
+	}
+
+	@Benchmark
+	public Document<Sample> asDocument()
+	throws Exception
+	{
+		return factory.asDocument(sample);
+	}
+
+	@Benchmark
+	public Sample asPojo()
+	{
+		return factory.asPojo(document);
+	}
+}
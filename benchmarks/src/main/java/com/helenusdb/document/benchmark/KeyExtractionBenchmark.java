@@ -0,0 +1,57 @@
+package com.helenusdb.document.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyDefinitionParser;
+
+/**
+ * KeyDefinition.identifier() on a flat key and on a key with a nested (account.id) property.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyExtractionBenchmark
+{
+	private KeyDefinition flat;
+	private KeyDefinition nested;
+	private Sample sample;
+
+	@Setup
+	public void setup()
+	throws Exception
+	{
+		flat = KeyDefinitionParser.parse("id:uuid");
+		nested = KeyDefinitionParser.parse("(account.id as account_id:uuid), name:text, id:uuid");
+		sample = Sample.create(16);
+	}
+
+	@Benchmark
+	public Identifier flat()
+	throws Exception
+	{
+		return flat.identifier(sample);
+	}
+
+	@Benchmark
+	public Identifier nested()
+	throws Exception
+	{
+		return nested.identifier(sample);
+	}
+}
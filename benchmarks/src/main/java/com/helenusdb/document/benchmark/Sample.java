@@ -0,0 +1,73 @@
+package com.helenusdb.document.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.helenusdb.core.Identifiable;
+import com.helenusdb.core.Identifier;
+
+/**
+ * The entity used by the benchmarks. It has a flat key (id), a nested key (account.id) and a
+ * text payload of configurable size.
+ */
+public class Sample
+implements Identifiable, Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	public static class Account
+	implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		UUID id;
+
+		public Account()
+		{
+			super();
+		}
+
+		public Account(UUID id)
+		{
+			this();
+			this.id = id;
+		}
+	}
+
+	UUID id;
+	Account account;
+	String name;
+	String payload;
+	List<String> tags = new ArrayList<>();
+	Date createdAt;
+
+	public Sample()
+	{
+		super();
+	}
+
+	/**
+	 * @param payloadSize the length of the payload text, in characters.
+	 * @return a populated Sample.
+	 */
+	public static Sample create(int payloadSize)
+	{
+		Sample sample = new Sample();
+		sample.id = UUID.fromString("8dbac965-a1c8-4ad6-a043-5f5a9a5ee8c0");
+		sample.account = new Account(UUID.fromString("a87d3bff-6997-4739-ab4e-ded0cc85700f"));
+		sample.name = "rose";
+		sample.payload = "x".repeat(payloadSize);
+		sample.tags = List.of("red", "white", "pink", "yellow");
+		sample.createdAt = new Date(1648598130248L);
+		return sample;
+	}
+
+	@Override
+	public Identifier getIdentifier()
+	{
+		return new Identifier(id);
+	}
+}
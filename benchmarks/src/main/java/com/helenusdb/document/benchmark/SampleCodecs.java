@@ -0,0 +1,242 @@
+package com.helenusdb.document.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.strategicgains.noschema.document.ObjectCodec;
+import com.strategicgains.noschema.document.StreamingObjectCodec;
+
+/**
+ * Codecs for the benchmark entity. The production codecs (BSON, Gson, Jackson) live in
+ * separate modules, so these stand in for the shapes that matter to the document path:
+ * a reflective byte[] codec, a hand-written byte[] codec and the same format streamed into
+ * a pooled buffer.
+ */
+public final class SampleCodecs
+{
+	private SampleCodecs()
+	{
+		// prevents instantiation.
+	}
+
+	public static ObjectCodec<Sample> named(String name)
+	{
+		switch(name)
+		{
+			case "java": return new JavaSerializationCodec();
+			case "data": return new DataCodec();
+			case "streaming": return new StreamingDataCodec();
+			default: throw new IllegalArgumentException("Unknown codec: " + name);
+		}
+	}
+
+	/**
+	 * Reflective, allocation-heavy serialization.
+	 */
+	static class JavaSerializationCodec
+	implements ObjectCodec<Sample>
+	{
+		@Override
+		public byte[] serialize(Sample object)
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+			{
+				out.writeObject(object);
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public Sample deserialize(byte[] bytes, Class<Sample> clazz)
+		{
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+			{
+				return clazz.cast(in.readObject());
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			catch (ClassNotFoundException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * A hand-written binary format through the byte[] API.
+	 */
+	static class DataCodec
+	implements ObjectCodec<Sample>
+	{
+		@Override
+		public byte[] serialize(Sample object)
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			try
+			{
+				write(object, new DataOutputStream(bytes));
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public Sample deserialize(byte[] bytes, Class<Sample> clazz)
+		{
+			return deserialize(new ByteArrayInputStream(bytes), clazz);
+		}
+
+		@Override
+		public Sample deserialize(InputStream in, Class<Sample> clazz)
+		{
+			try
+			{
+				return read(new DataInputStream(in));
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * The same format as DataCodec, serialized into the caller's (pooled) stream and
+	 * deserialized straight from the driver's buffer.
+	 */
+	static class StreamingDataCodec
+	extends DataCodec
+	implements StreamingObjectCodec<Sample>
+	{
+		@Override
+		public void serialize(Sample object, OutputStream out)
+		throws IOException
+		{
+			write(object, new DataOutputStream(out));
+		}
+
+		@Override
+		public byte[] serialize(Sample object)
+		{
+			return StreamingObjectCodec.super.serialize(object);
+		}
+
+		@Override
+		public Sample deserialize(ByteBuffer buffer, Class<Sample> clazz)
+		{
+			return deserialize(new ByteBufferInputStream(buffer.duplicate()), clazz);
+		}
+	}
+
+	private static final class ByteBufferInputStream
+	extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			super();
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return (buffer.hasRemaining() ? buffer.get() & 0xff : -1);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if (!buffer.hasRemaining()) return -1;
+
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+	}
+
+	private static void write(Sample sample, DataOutput out)
+	throws IOException
+	{
+		writeUuid(sample.id, out);
+		writeUuid(sample.account.id, out);
+		out.writeUTF(sample.name);
+		out.writeInt(sample.payload.length());
+		out.writeBytes(sample.payload);
+		out.writeInt(sample.tags.size());
+
+		for (String tag : sample.tags)
+		{
+			out.writeUTF(tag);
+		}
+
+		out.writeLong(sample.createdAt.getTime());
+	}
+
+	private static Sample read(DataInput in)
+	throws IOException
+	{
+		Sample sample = new Sample();
+		sample.id = readUuid(in);
+		sample.account = new Sample.Account(readUuid(in));
+		sample.name = in.readUTF();
+		byte[] payload = new byte[in.readInt()];
+		in.readFully(payload);
+		sample.payload = new String(payload, StandardCharsets.ISO_8859_1);
+		int tagCount = in.readInt();
+		List<String> tags = new ArrayList<>(tagCount);
+
+		for (int i = 0; i < tagCount; i++)
+		{
+			tags.add(in.readUTF());
+		}
+
+		sample.tags = tags;
+		sample.createdAt = new Date(in.readLong());
+		return sample;
+	}
+
+	private static void writeUuid(UUID uuid, DataOutput out)
+	throws IOException
+	{
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	private static UUID readUuid(DataInput in)
+	throws IOException
+	{
+		return new UUID(in.readLong(), in.readLong());
+	}
+}
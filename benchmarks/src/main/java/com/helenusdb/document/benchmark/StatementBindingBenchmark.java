@@ -0,0 +1,85 @@
+package com.helenusdb.document.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.helenusdb.document.PrimaryTable;
+import com.helenusdb.document.document.CassandraDocumentFactory;
+import com.helenusdb.document.document.DocumentStatementFactory;
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * Binding create and update statements, from an entity (including encoding) and from an
+ * already-encoded Document (binding only), against a stub session.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBindingBenchmark
+{
+	@Param({"256", "65536"})
+	private int payloadSize;
+
+	private DocumentStatementFactory<Sample> entities;
+
+	@SuppressWarnings("rawtypes")
+	private DocumentStatementFactory documents;
+
+	private Sample sample;
+	private Document<Sample> document;
+
+	@Setup
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void setup()
+	throws Exception
+	{
+		PrimaryTable table = new PrimaryTable("bench", "samples", "id:uuid");
+		table.withView("samples_by_name", "(account.id as account_id:uuid), name:text, id:uuid");
+		CassandraDocumentFactory<Sample> factory = new CassandraDocumentFactory<>(table.keys(), SampleCodecs.named("streaming"));
+		entities = new DocumentStatementFactory<>(StubSession.create(), table, factory);
+		documents = new DocumentStatementFactory(StubSession.create(), table, factory);
+		sample = Sample.create(payloadSize);
+		document = factory.asDocument(sample);
+	}
+
+	@Benchmark
+	public BoundStatement createFromEntity()
+	{
+		return entities.create(sample);
+	}
+
+	@Benchmark
+	public BoundStatement updateFromEntity()
+	{
+		return entities.update(sample);
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public BoundStatement createFromDocument()
+	{
+		return documents.create(document);
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public BoundStatement updateFromDocument()
+	{
+		return documents.update(document);
+	}
+}
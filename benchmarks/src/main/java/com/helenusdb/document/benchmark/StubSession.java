@@ -0,0 +1,187 @@
+package com.helenusdb.document.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+
+/**
+ * A CqlSession that never talks to a cluster, so the benchmarks measure this library's code
+ * rather than the network. Prepared statements get their bind marker types from the column
+ * names in the CQL, so binding encodes every value with the driver's codecs, exactly as it
+ * would against a real session. Executing a statement completes immediately with an empty
+ * result.
+ * <p/>
+ * Only the statement shapes the benchmarks use are understood: inserts, and 'column = ?'
+ * markers in set and where clauses.
+ */
+final class StubSession
+{
+	// The column types of the benchmark tables: the keys of Sample plus the document columns.
+	private static final Map<String, DataType> COLUMN_TYPES = Map.of(
+		"id", DataTypes.UUID,
+		"account_id", DataTypes.UUID,
+		"name", DataTypes.TEXT,
+		"object", DataTypes.BLOB,
+		"type", DataTypes.TEXT,
+		"metadata", DataTypes.mapOf(DataTypes.TEXT, DataTypes.TEXT),
+		"created_at", DataTypes.TIMESTAMP,
+		"updated_at", DataTypes.TIMESTAMP
+	);
+
+	private static final Pattern INSERT_COLUMNS = Pattern.compile("insert into \\S+ \\(([^)]*)\\)");
+	private static final Pattern ASSIGNMENT = Pattern.compile("(\\w+)\\s*=\\s*\\?");
+
+	private StubSession()
+	{
+		// prevents instantiation.
+	}
+
+	static CqlSession create()
+	{
+		AsyncResultSet empty = proxy(AsyncResultSet.class, (proxy, method, args) -> {
+			if ("currentPage".equals(method.getName())) return Collections.emptyList();
+			return defaultValue(proxy, method, args);
+		});
+
+		return proxy(CqlSession.class, (proxy, method, args) -> {
+			switch(method.getName())
+			{
+				case "prepare": return prepare(args[0]);
+				case "executeAsync": return CompletableFuture.completedFuture(empty);
+				default: return defaultValue(proxy, method, args);
+			}
+		});
+	}
+
+	private static PreparedStatement prepare(Object statement)
+	{
+		String cql = (statement instanceof SimpleStatement simple ? simple.getQuery() : statement.toString());
+		Boolean isIdempotent = (statement instanceof SimpleStatement simple ? simple.isIdempotent() : null);
+		ColumnDefinitions variables = variableDefinitions(cql);
+		PreparedStatement[] self = new PreparedStatement[1];
+
+		self[0] = proxy(PreparedStatement.class, (proxy, method, args) -> {
+			switch(method.getName())
+			{
+				case "getQuery": return cql;
+				case "getVariableDefinitions": return variables;
+				case "boundStatementBuilder": return builder(self[0], variables, isIdempotent);
+				case "bind": return bind(builder(self[0], variables, isIdempotent), (Object[]) args[0]);
+				default: return defaultValue(proxy, method, args);
+			}
+		});
+
+		return self[0];
+	}
+
+	private static BoundStatementBuilder builder(PreparedStatement prepared, ColumnDefinitions variables, Boolean isIdempotent)
+	{
+		return new BoundStatementBuilder(prepared, variables, new ByteBuffer[variables.size()], null, null, null, null, null,
+			Collections.emptyMap(), isIdempotent, false, Statement.NO_DEFAULT_TIMESTAMP, null, -1, null, null, null,
+			CodecRegistry.DEFAULT, ProtocolVersion.DEFAULT);
+	}
+
+	private static BoundStatement bind(BoundStatementBuilder builder, Object[] values)
+	{
+		BoundStatementBuilder result = builder;
+
+		for (int i = 0; i < values.length; i++)
+		{
+			result = (values[i] == null ? result.setToNull(i) : result.set(i, values[i], CodecRegistry.DEFAULT.codecFor(result.getType(i), values[i])));
+		}
+
+		return result.build();
+	}
+
+	private static ColumnDefinitions variableDefinitions(String cql)
+	{
+		List<String> columns = new ArrayList<>();
+		Matcher insert = INSERT_COLUMNS.matcher(cql);
+
+		if (insert.find())
+		{
+			for (String column : insert.group(1).split(","))
+			{
+				columns.add(column.trim());
+			}
+		}
+		else
+		{
+			Matcher assignment = ASSIGNMENT.matcher(cql);
+
+			while (assignment.find())
+			{
+				columns.add(assignment.group(1));
+			}
+		}
+
+		List<ColumnDefinition> definitions = new ArrayList<>(columns.size());
+
+		for (String column : columns)
+		{
+			DataType type = COLUMN_TYPES.get(column);
+			definitions.add(proxy(ColumnDefinition.class, (proxy, method, args) -> {
+				if ("getType".equals(method.getName())) return type;
+				return defaultValue(proxy, method, args);
+			}));
+		}
+
+		return proxy(ColumnDefinitions.class, (proxy, method, args) -> {
+			switch(method.getName())
+			{
+				case "size": return definitions.size();
+				case "get": return (args[0] instanceof Integer i ? definitions.get(i) : null);
+				case "iterator": return definitions.iterator();
+				default: return defaultValue(proxy, method, args);
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler)
+	{
+		return (T) Proxy.newProxyInstance(StubSession.class.getClassLoader(), new Class<?>[] {type}, handler);
+	}
+
+	/**
+	 * Default methods run as written; fluent setters return the proxy itself; everything
+	 * else returns zero, false or null.
+	 */
+	private static Object defaultValue(Object proxy, Method method, Object[] args)
+	throws Throwable
+	{
+		if (method.isDefault()) return InvocationHandler.invokeDefault(proxy, method, args);
+
+		Class<?> returnType = method.getReturnType();
+
+		if (returnType.isInstance(proxy)) return proxy;
+		if (returnType == boolean.class) return Boolean.FALSE;
+		if (returnType == long.class) return 0L;
+		if (returnType == int.class) return 0;
+		if (returnType.isPrimitive() && returnType != void.class) return 0;
+
+		return null;
+	}
+}
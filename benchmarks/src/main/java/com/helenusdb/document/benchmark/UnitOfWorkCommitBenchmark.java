@@ -0,0 +1,89 @@
+package com.helenusdb.document.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.helenusdb.document.CassandraStatementFactory;
+import com.helenusdb.document.PrimaryTable;
+import com.helenusdb.document.document.CassandraDocumentFactory;
+import com.helenusdb.document.unitofwork.CassandraUnitOfWork;
+import com.helenusdb.document.unitofwork.UnitOfWorkType;
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * Committing a unit of work that creates entities in a primary table and one view, against a
+ * stub session. Measures existence checks, statement generation, binding and batch assembly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnitOfWorkCommitBenchmark
+{
+	private static final String TABLE = "samples";
+	private static final String VIEW = "samples_by_name";
+
+	@Param({"LOGGED", "ASYNC"})
+	private UnitOfWorkType type;
+
+	@Param({"1", "10"})
+	private int entities;
+
+	private CqlSession session;
+	private CassandraStatementFactory<Document<Sample>> statementFactory;
+	private CassandraDocumentFactory<Sample> tableFactory;
+	private CassandraDocumentFactory<Sample> viewFactory;
+	private Sample[] samples;
+
+	@Setup
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void setup()
+	throws Exception
+	{
+		PrimaryTable table = new PrimaryTable("bench", TABLE, "id:uuid");
+		table.withView(VIEW, "(account.id as account_id:uuid), name:text, id:uuid");
+		session = StubSession.create();
+		statementFactory = new CassandraStatementFactory(session, table, SampleCodecs.named("streaming"));
+		tableFactory = new CassandraDocumentFactory<>(table.keys(), SampleCodecs.named("streaming"));
+		viewFactory = new CassandraDocumentFactory<>(table.views().findFirst().orElseThrow().keys(), SampleCodecs.named("streaming"));
+		samples = new Sample[entities];
+
+		for (int i = 0; i < entities; i++)
+		{
+			samples[i] = Sample.create(1024);
+			samples[i].id = UUID.randomUUID();
+		}
+	}
+
+	@Benchmark
+	public CassandraUnitOfWork<Sample> commit()
+	throws Exception
+	{
+		CassandraUnitOfWork<Sample> uow = new CassandraUnitOfWork<>(session, statementFactory, type);
+
+		for (Sample sample : samples)
+		{
+			Document<Sample> document = tableFactory.asDocument(sample);
+			uow.registerNew(TABLE, document);
+			uow.registerNew(VIEW, viewFactory.asDocument(sample, document.getObject()));
+		}
+
+		uow.commit();
+		return uow;
+	}
+}
@@ -0,0 +1,148 @@
+package com.helenusdb.document;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs an asynchronous task for each element of a list with at most a fixed number of tasks
+ * in flight at once. As each task completes, the next element is started, so the window stays
+ * full without ever exceeding its size. This keeps large fan-outs (e.g. readIn() with thousands
+ * of ids) from flooding the driver's request queue.
+ */
+public final class AsyncWindow
+{
+	private AsyncWindow()
+	{
+		// prevents instantiation.
+	}
+
+	/**
+	 * Applies the task to every input, keeping at most 'window' tasks outstanding.
+	 * 
+	 * @param inputs the elements to process.
+	 * @param window the maximum number of tasks in flight. Must be positive.
+	 * @param task starts the asynchronous work for an element.
+	 * @return a future completing with the results in input order, or failing with the first failure.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <I, R> CompletableFuture<List<R>> map(List<I> inputs, int window, Function<? super I, ? extends CompletionStage<R>> task)
+	{
+		if (window < 1) throw new IllegalArgumentException("window must be positive");
+		if (inputs.isEmpty()) return CompletableFuture.completedFuture(Collections.emptyList());
+
+		final Object[] results = new Object[inputs.size()];
+		final AtomicInteger next = new AtomicInteger();
+		final CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(window, inputs.size())];
+
+		for (int i = 0; i < lanes.length; i++)
+		{
+			Lane<I, R> lane = new Lane<>(inputs, task, results, next);
+			lane.advance();
+			lanes[i] = lane.done;
+		}
+
+		return CompletableFuture.allOf(lanes)
+			.thenApply(v -> (List<R>) Arrays.asList(results));
+	}
+
+	/**
+	 * Starts one task after another, taking the next input as each one completes. Tasks that
+	 * complete before advance() can wait for them (e.g. cache hits, or failures to start) are
+	 * handled by its loop instead of by a continuation, so a long run of them doesn't grow the
+	 * stack.
+	 */
+	private static final class Lane<I, R>
+	{
+		private final List<I> inputs;
+		private final Function<? super I, ? extends CompletionStage<R>> task;
+		private final Object[] results;
+		// The index of the next input to start, shared by all the lanes.
+		private final AtomicInteger next;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private Lane(List<I> inputs, Function<? super I, ? extends CompletionStage<R>> task, Object[] results, AtomicInteger next)
+		{
+			super();
+			this.inputs = inputs;
+			this.task = task;
+			this.results = results;
+			this.next = next;
+		}
+
+		private void advance()
+		{
+			while (true)
+			{
+				final int i = next.getAndIncrement();
+
+				if (i >= inputs.size())
+				{
+					done.complete(null);
+					return;
+				}
+
+				CompletableFuture<R> current;
+
+				try
+				{
+					current = task.apply(inputs.get(i)).toCompletableFuture();
+				}
+				catch (RuntimeException e)
+				{
+					current = CompletableFuture.failedFuture(e);
+				}
+
+				if (!current.isDone())
+				{
+					current.whenComplete((r, t) -> {
+						if (accept(i, r, t)) advance();
+					});
+					return;
+				}
+
+				final Throwable failure = failureOf(current);
+
+				if (!accept(i, (failure == null ? current.join() : null), failure)) return;
+			}
+		}
+
+		/**
+		 * @return whether to go on to the next input.
+		 */
+		private boolean accept(int i, R result, Throwable failure)
+		{
+			if (failure == null)
+			{
+				results[i] = result;
+				return true;
+			}
+
+			// Stop starting new work once anything fails.
+			next.set(inputs.size());
+			done.completeExceptionally(failure);
+			return false;
+		}
+
+		private static Throwable failureOf(CompletableFuture<?> future)
+		{
+			if (!future.isCompletedExceptionally()) return null;
+
+			try
+			{
+				future.join();
+				return null;
+			}
+			catch (CompletionException | CancellationException e)
+			{
+				return (e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+			}
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.helenusdb.document;
+
+/**
+ * Notified as a bulk load progresses. Both methods are called from the driver's threads while
+ * writes are in flight, so implementations must be thread-safe and must not block.
+ *
+ * @param <T> the type of entity being loaded.
+ * @see BulkLoadOptions#withListener(BulkLoadListener)
+ */
+public interface BulkLoadListener<T>
+{
+	/**
+	 * Called once for each entity that failed to encode or write. The load continues.
+	 *
+	 * @param entity the entity.
+	 * @param cause why it failed, e.g. a DuplicateItemException from createAll().
+	 */
+	default void onFailure(T entity, Throwable cause)
+	{
+		// Does nothing by default.
+	}
+
+	/**
+	 * Called every progress interval and once more when the load completes.
+	 *
+	 * @param succeeded the number of entities written so far.
+	 * @param failed the number of entities that have failed so far.
+	 */
+	default void onProgress(long succeeded, long failed)
+	{
+		// Does nothing by default.
+	}
+}
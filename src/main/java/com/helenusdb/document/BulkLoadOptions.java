@@ -0,0 +1,169 @@
+package com.helenusdb.document;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tunes CassandraRepository.upsertAll() and createAll(). The defaults suit documents of a few
+ * kilobytes on a modest cluster.
+ *
+ * @param <T> the type of entity being loaded.
+ */
+public class BulkLoadOptions<T>
+{
+	public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 128;
+	public static final int DEFAULT_MAX_IN_FLIGHT_BYTES = 64 * 1024 * 1024;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 16;
+	// Cassandra's default batch_size_warn_threshold.
+	public static final int DEFAULT_MAX_BATCH_BYTES = 5 * 1024;
+	public static final int DEFAULT_SLICE_SIZE = 1000;
+	public static final int DEFAULT_PROGRESS_INTERVAL = 10_000;
+	public static final int DEFAULT_MAX_RETAINED_FAILURES = 1000;
+
+	// Encodes the entities. The caller's thread only reads the input and dispatches writes.
+	private Executor encoder = ForkJoinPool.commonPool();
+	// The most requests (statements or batches) outstanding at once.
+	private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+	// The most (estimated) bytes outstanding at once.
+	private int maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+	// The most statements in a single UNLOGGED batch.
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	// The most (estimated) bytes in a single UNLOGGED batch.
+	private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+	// The number of entities encoded and grouped together.
+	private int sliceSize = DEFAULT_SLICE_SIZE;
+	// The number of completed entities between progress notifications.
+	private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+	// The most failures kept in the BulkLoadResult.
+	private int maxRetainedFailures = DEFAULT_MAX_RETAINED_FAILURES;
+	private BulkLoadListener<T> listener = new BulkLoadListener<>() {};
+
+	public static <T> BulkLoadOptions<T> defaults()
+	{
+		return new BulkLoadOptions<>();
+	}
+
+	/**
+	 * Sets the executor that encodes entities. Defaults to the common ForkJoinPool.
+	 */
+	public BulkLoadOptions<T> withEncoder(Executor executor)
+	{
+		this.encoder = Objects.requireNonNull(executor);
+		return this;
+	}
+
+	public BulkLoadOptions<T> withMaxInFlightRequests(int requests)
+	{
+		this.maxInFlightRequests = positive("Max in-flight requests", requests);
+		return this;
+	}
+
+	public BulkLoadOptions<T> withMaxInFlightBytes(int bytes)
+	{
+		this.maxInFlightBytes = positive("Max in-flight bytes", bytes);
+		return this;
+	}
+
+	/**
+	 * Sets the most statements, all for the same table and partition, written in one UNLOGGED
+	 * batch. 1 disables batching.
+	 */
+	public BulkLoadOptions<T> withMaxBatchSize(int statements)
+	{
+		this.maxBatchSize = positive("Max batch size", statements);
+		return this;
+	}
+
+	/**
+	 * Sets the most bytes written in one UNLOGGED batch. A larger statement is written alone.
+	 * Keep this below the cluster's batch_size_warn_threshold_in_kb.
+	 */
+	public BulkLoadOptions<T> withMaxBatchBytes(int bytes)
+	{
+		this.maxBatchBytes = positive("Max batch bytes", bytes);
+		return this;
+	}
+
+	/**
+	 * Sets how many entities are encoded and grouped into batches together. Larger slices find
+	 * more rows sharing a partition, at the cost of memory.
+	 */
+	public BulkLoadOptions<T> withSliceSize(int entities)
+	{
+		this.sliceSize = positive("Slice size", entities);
+		return this;
+	}
+
+	public BulkLoadOptions<T> withProgressInterval(int entities)
+	{
+		this.progressInterval = positive("Progress interval", entities);
+		return this;
+	}
+
+	public BulkLoadOptions<T> withMaxRetainedFailures(int failures)
+	{
+		if (failures < 0) throw new IllegalArgumentException("Max retained failures must not be negative: " + failures);
+
+		this.maxRetainedFailures = failures;
+		return this;
+	}
+
+	public BulkLoadOptions<T> withListener(BulkLoadListener<T> listener)
+	{
+		this.listener = Objects.requireNonNull(listener);
+		return this;
+	}
+
+	Executor encoder()
+	{
+		return encoder;
+	}
+
+	int maxInFlightRequests()
+	{
+		return maxInFlightRequests;
+	}
+
+	int maxInFlightBytes()
+	{
+		return maxInFlightBytes;
+	}
+
+	int maxBatchSize()
+	{
+		return maxBatchSize;
+	}
+
+	int maxBatchBytes()
+	{
+		return maxBatchBytes;
+	}
+
+	int sliceSize()
+	{
+		return sliceSize;
+	}
+
+	int progressInterval()
+	{
+		return progressInterval;
+	}
+
+	int maxRetainedFailures()
+	{
+		return maxRetainedFailures;
+	}
+
+	BulkLoadListener<T> listener()
+	{
+		return listener;
+	}
+
+	private static int positive(String name, int value)
+	{
+		if (value < 1) throw new IllegalArgumentException(name + " must be positive: " + value);
+
+		return value;
+	}
+}
@@ -0,0 +1,66 @@
+package com.helenusdb.document;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of CassandraRepository.upsertAll() or createAll(): how many entities were
+ * written, how many failed and why. Only the first few failures are retained (see
+ * BulkLoadOptions.withMaxRetainedFailures()); use a BulkLoadListener to see every one.
+ *
+ * @param <T> the type of entity loaded.
+ */
+public class BulkLoadResult<T>
+{
+	/**
+	 * An entity that failed to encode or write, and why.
+	 */
+	public record Failure<T>(T entity, Throwable cause) {}
+
+	private final long succeeded;
+	private final long failed;
+	private final List<Failure<T>> failures;
+
+	BulkLoadResult(long succeeded, long failed, List<Failure<T>> failures)
+	{
+		super();
+		this.succeeded = succeeded;
+		this.failed = failed;
+		this.failures = Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * @return the number of entities written to the primary table and all its views and indexes.
+	 */
+	public long getSucceeded()
+	{
+		return succeeded;
+	}
+
+	/**
+	 * @return the number of entities that failed.
+	 */
+	public long getFailed()
+	{
+		return failed;
+	}
+
+	public boolean hasFailures()
+	{
+		return (failed > 0);
+	}
+
+	/**
+	 * @return the retained failures, in the order they occurred.
+	 */
+	public List<Failure<T>> getFailures()
+	{
+		return failures;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BulkLoadResult{succeeded=" + succeeded + ", failed=" + failed + "}";
+	}
+}
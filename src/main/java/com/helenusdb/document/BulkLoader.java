@@ -0,0 +1,479 @@
+package com.helenusdb.document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.helenusdb.core.Identifiable;
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
+import com.helenusdb.document.unitofwork.DocumentChange;
+import com.strategicgains.noschema.exception.DuplicateItemException;
+import com.strategicgains.noschema.exception.StorageException;
+
+/**
+ * Writes a stream of entities to a table and its views and indexes without a UnitOfWork per
+ * entity. The input is read in slices. Each slice is encoded on the options' executor, then the
+ * writes of all its entities are grouped by table and partition into small UNLOGGED batches,
+ * which are dispatched while the next slice is encoded. In-flight requests and bytes are capped
+ * with semaphores, so the caller's thread blocks when the cluster falls behind.
+ * <p/>
+ * An entity's writes to its tables are not atomic. If a batch fails, its statements are retried
+ * one at a time to find the entities at fault, and only those are reported as failed. Rerunning
+ * an upsert of a failed entity repairs any partial write.
+ * <p/>
+ * Entities whose objects are chunked are written one at a time: their chunks first, then their
+ * documents.
+ *
+ * @param <T> the type of entity being loaded.
+ * @see CassandraRepository#upsertAll(java.util.stream.Stream, BulkLoadOptions)
+ * @see CassandraRepository#createAll(Iterable, BulkLoadOptions)
+ */
+final class BulkLoader<T extends Identifiable>
+{
+	// A rough allowance for the keys, metadata and framing of each statement.
+	static final int STATEMENT_OVERHEAD = 64;
+
+	/**
+	 * A write of one entity's document to one table. Statements sharing the table and partition
+	 * may be batched together.
+	 */
+	record Write<T extends Identifiable>(Entry<T> entry, String table, List<Object> partition, BoundStatement statement, DocumentChange<T> change, int size) {}
+
+	private record Permits(int requests, int bytes) {}
+
+	/**
+	 * The encoded writes of one entity, and how many of them are still outstanding.
+	 */
+	static final class Entry<T extends Identifiable>
+	{
+		private final T entity;
+		private final List<BoundStatement> prerequisites = new ArrayList<>();
+		private final List<Write<T>> writes = new ArrayList<>();
+		private int prerequisiteBytes;
+		private final AtomicInteger pending = new AtomicInteger();
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Entry(T entity)
+		{
+			super();
+			this.entity = entity;
+		}
+
+		/**
+		 * Adds statements that must succeed before any of the entity's documents are written.
+		 */
+		void addPrerequisites(List<BoundStatement> statements, int bytes)
+		{
+			prerequisites.addAll(statements);
+			prerequisiteBytes += bytes;
+		}
+
+		void addWrite(String table, List<Object> partition, BoundStatement statement, DocumentChange<T> change, int size)
+		{
+			writes.add(new Write<>(this, table, partition, statement, change, size + STATEMENT_OVERHEAD));
+		}
+
+		T entity()
+		{
+			return entity;
+		}
+
+		List<Write<T>> writes()
+		{
+			return writes;
+		}
+
+		boolean hasPrerequisites()
+		{
+			return !prerequisites.isEmpty();
+		}
+
+		int size()
+		{
+			return prerequisiteBytes + writes.stream().mapToInt(Write::size).sum();
+		}
+	}
+
+	private final CqlSession session;
+	private final BulkLoadOptions<T> options;
+	// Encodes an entity into its writes. Runs on the options' executor.
+	private final Function<T, Entry<T>> encoder;
+	// Called for each successful write, e.g. to invalidate the cache.
+	private final Consumer<DocumentChange<T>> afterWrite;
+	// Turns failures into the exceptions the repository throws.
+	private final Function<Throwable, RuntimeException> translator;
+	// For createAll(), the tables whose keys must not already exist. Otherwise empty.
+	private final Set<String> uniqueTables;
+	// Checks the existence of identifiers in a table, in order.
+	private final BiFunction<String, List<Identifier>, CompletableFuture<List<Boolean>>> existence;
+	private final Semaphore requests;
+	private final Semaphore bytes;
+	private final AtomicLong succeeded = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final List<BulkLoadResult.Failure<T>> failures = Collections.synchronizedList(new ArrayList<>());
+
+	BulkLoader(CqlSession session, BulkLoadOptions<T> options, Function<T, Entry<T>> encoder,
+		Consumer<DocumentChange<T>> afterWrite, Function<Throwable, RuntimeException> translator)
+	{
+		this(session, options, encoder, afterWrite, translator, Collections.emptySet(), null);
+	}
+
+	BulkLoader(CqlSession session, BulkLoadOptions<T> options, Function<T, Entry<T>> encoder,
+		Consumer<DocumentChange<T>> afterWrite, Function<Throwable, RuntimeException> translator,
+		Set<String> uniqueTables, BiFunction<String, List<Identifier>, CompletableFuture<List<Boolean>>> existence)
+	{
+		super();
+		this.session = session;
+		this.options = options;
+		this.encoder = encoder;
+		this.afterWrite = afterWrite;
+		this.translator = translator;
+		this.uniqueTables = uniqueTables;
+		this.existence = existence;
+		this.requests = new Semaphore(options.maxInFlightRequests());
+		this.bytes = new Semaphore(options.maxInFlightBytes());
+	}
+
+	/**
+	 * Loads every entity, blocking until all writes have completed.
+	 *
+	 * @param entities the entities to load.
+	 * @return the counts of written and failed entities.
+	 * @throws StorageException if the calling thread is interrupted.
+	 */
+	BulkLoadResult<T> load(Iterator<T> entities)
+	{
+		try
+		{
+			List<T> slice = new ArrayList<>(options.sliceSize());
+
+			while (entities.hasNext())
+			{
+				slice.add(entities.next());
+
+				if (slice.size() == options.sliceSize())
+				{
+					write(encode(slice));
+					slice = new ArrayList<>(options.sliceSize());
+				}
+			}
+
+			if (!slice.isEmpty()) write(encode(slice));
+
+			// Every outstanding write holds a request permit until its entity is accounted for.
+			requests.acquire(options.maxInFlightRequests());
+			requests.release(options.maxInFlightRequests());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new StorageException(e);
+		}
+
+		options.listener().onProgress(succeeded.get(), failed.get());
+		return new BulkLoadResult<>(succeeded.get(), failed.get(), new ArrayList<>(failures));
+	}
+
+	/**
+	 * Encodes the slice on the executor. Entities that fail to encode are reported and dropped.
+	 */
+	private List<Entry<T>> encode(List<T> slice)
+	{
+		final List<CompletableFuture<Entry<T>>> encodings = new ArrayList<>(slice.size());
+		slice.forEach(entity -> encodings.add(CompletableFuture.supplyAsync(() -> encoder.apply(entity), options.encoder())));
+		final List<Entry<T>> entries = new ArrayList<>(slice.size());
+
+		for (int i = 0; i < slice.size(); i++)
+		{
+			try
+			{
+				entries.add(encodings.get(i).join());
+			}
+			catch (CompletionException e)
+			{
+				fail(slice.get(i), e);
+			}
+		}
+
+		return (uniqueTables.isEmpty() ? entries : withoutDuplicates(entries));
+	}
+
+	/**
+	 * For createAll(), reports and drops the entries whose unique keys already exist, either
+	 * in the table or earlier in the slice.
+	 */
+	private List<Entry<T>> withoutDuplicates(List<Entry<T>> entries)
+	{
+		final Map<Entry<T>, Throwable> rejected = new HashMap<>();
+
+		for (String table : uniqueTables)
+		{
+			final List<Entry<T>> candidates = new ArrayList<>();
+			final List<Identifier> ids = new ArrayList<>();
+			final Set<Identifier> seen = new HashSet<>();
+
+			for (Entry<T> entry : entries)
+			{
+				if (rejected.containsKey(entry)) continue;
+
+				for (Write<T> w : entry.writes())
+				{
+					if (!w.table().equals(table)) continue;
+
+					if (!seen.add(w.change().getId())) rejected.put(entry, new DuplicateItemException(w.change().getId().toString()));
+					else
+					{
+						candidates.add(entry);
+						ids.add(w.change().getId());
+					}
+				}
+			}
+
+			try
+			{
+				final List<Boolean> exists = existence.apply(table, ids).join();
+
+				for (int i = 0; i < exists.size(); i++)
+				{
+					if (Boolean.TRUE.equals(exists.get(i))) rejected.putIfAbsent(candidates.get(i), new DuplicateItemException(ids.get(i).toString()));
+				}
+			}
+			catch (CompletionException e)
+			{
+				candidates.forEach(entry -> rejected.putIfAbsent(entry, e));
+			}
+		}
+
+		if (rejected.isEmpty()) return entries;
+
+		final List<Entry<T>> accepted = new ArrayList<>(entries.size());
+		entries.forEach(entry -> {
+			Throwable cause = rejected.get(entry);
+
+			if (cause != null) fail(entry.entity(), cause);
+			else accepted.add(entry);
+		});
+		return accepted;
+	}
+
+	/**
+	 * Dispatches the writes of a slice, blocking while the in-flight caps are reached.
+	 */
+	private void write(List<Entry<T>> entries)
+	throws InterruptedException
+	{
+		final List<Write<T>> writes = new ArrayList<>();
+
+		for (Entry<T> entry : entries)
+		{
+			entry.pending.set(entry.writes().size());
+
+			if (entry.writes().isEmpty()) finish(entry);
+			else if (entry.hasPrerequisites()) writeInOrder(entry);
+			else writes.addAll(entry.writes());
+		}
+
+		for (List<Write<T>> batch : batches(writes, options.maxBatchSize(), options.maxBatchBytes()))
+		{
+			final Permits permits = acquire(1, batch.stream().mapToInt(Write::size).sum());
+			execute(batch).whenComplete((v, t) -> release(permits));
+		}
+	}
+
+	/**
+	 * Writes an entity's prerequisites, then its documents, holding enough permits for a few of
+	 * its statements at once.
+	 */
+	private void writeInOrder(Entry<T> entry)
+	throws InterruptedException
+	{
+		final int window = Math.min(Math.min(entry.prerequisites.size(), options.maxInFlightRequests()), options.maxBatchSize());
+		final Permits permits = acquire(window, entry.size());
+		AsyncWindow.map(entry.prerequisites, window, session::executeAsync)
+			.handle((v, t) -> {
+				if (t != null)
+				{
+					entry.writes().forEach(w -> completed(w, t));
+					return CompletableFuture.<List<Void>>completedFuture(null);
+				}
+
+				return AsyncWindow.map(entry.writes(), window, this::execute);
+			})
+			.thenCompose(Function.identity())
+			.whenComplete((v, t) -> release(permits));
+	}
+
+	/**
+	 * @return the partition key components of a complete identifier, which group its writes.
+	 */
+	static List<Object> partitionOf(KeyDefinition keys, Identifier id)
+	{
+		return new ArrayList<>(KeyPropertyConverter.normalize(keys, id).components().subList(0, keys.partitionKeySize()));
+	}
+
+	/**
+	 * Groups the writes by table and partition, in first-seen order, and splits each group into
+	 * batches of at most maxSize statements and (unless a single statement is larger) maxBytes.
+	 */
+	static <T extends Identifiable> List<List<Write<T>>> batches(List<Write<T>> writes, int maxSize, int maxBytes)
+	{
+		final Map<List<Object>, List<Write<T>>> partitions = new LinkedHashMap<>();
+		writes.forEach(w -> partitions.computeIfAbsent(List.of(w.table(), w.partition()), k -> new ArrayList<>()).add(w));
+		final List<List<Write<T>>> batches = new ArrayList<>();
+
+		partitions.values().forEach(partition -> {
+			List<Write<T>> batch = new ArrayList<>();
+			int batchBytes = 0;
+
+			for (Write<T> w : partition)
+			{
+				if (!batch.isEmpty() && (batch.size() == maxSize || batchBytes + w.size() > maxBytes))
+				{
+					batches.add(batch);
+					batch = new ArrayList<>();
+					batchBytes = 0;
+				}
+
+				batch.add(w);
+				batchBytes += w.size();
+			}
+
+			batches.add(batch);
+		});
+
+		return batches;
+	}
+
+	/**
+	 * Executes the writes as a single statement or UNLOGGED batch. If a batch fails, its
+	 * statements are retried one at a time so only the failing entities are reported.
+	 * The returned future never fails.
+	 */
+	private CompletableFuture<Void> execute(List<Write<T>> batch)
+	{
+		if (batch.size() == 1) return execute(batch.get(0));
+
+		final BatchStatementBuilder builder = new BatchStatementBuilder(BatchType.UNLOGGED);
+		batch.forEach(w -> builder.addStatement(w.statement()));
+		// A batch is only as idempotent as its least idempotent statement.
+		builder.setIdempotence(batch.stream().allMatch(w -> Boolean.TRUE.equals(w.statement().isIdempotent())));
+		return session.executeAsync(builder.build())
+			.toCompletableFuture()
+			.handle((rs, t) -> {
+				if (t == null)
+				{
+					batch.forEach(w -> completed(w, null));
+					return CompletableFuture.<Void>completedFuture(null);
+				}
+
+				CompletableFuture<Void> isolated = CompletableFuture.completedFuture(null);
+
+				for (Write<T> w : batch)
+				{
+					isolated = isolated.thenCompose(v -> execute(w));
+				}
+
+				return isolated;
+			})
+			.thenCompose(Function.identity());
+	}
+
+	private CompletableFuture<Void> execute(Write<T> write)
+	{
+		return session.executeAsync(write.statement())
+			.toCompletableFuture()
+			.handle((rs, t) -> {
+				completed(write, t);
+				return null;
+			});
+	}
+
+	private void completed(Write<T> write, Throwable t)
+	{
+		final Entry<T> entry = write.entry();
+
+		if (t != null) entry.failure.compareAndSet(null, t);
+		else afterWrite.accept(write.change());
+
+		if (entry.pending.decrementAndGet() == 0) finish(entry);
+	}
+
+	private void finish(Entry<T> entry)
+	{
+		final Throwable t = entry.failure.get();
+
+		if (t != null) fail(entry.entity(), t);
+		else progress(succeeded.incrementAndGet() + failed.get());
+	}
+
+	private void fail(T entity, Throwable t)
+	{
+		final RuntimeException cause = translator.apply(t);
+
+		if (failures.size() < options.maxRetainedFailures())
+		{
+			failures.add(new BulkLoadResult.Failure<>(entity, cause));
+		}
+
+		options.listener().onFailure(entity, cause);
+		progress(failed.incrementAndGet() + succeeded.get());
+	}
+
+	private void progress(long completed)
+	{
+		if (completed % options.progressInterval() == 0)
+		{
+			options.listener().onProgress(succeeded.get(), failed.get());
+		}
+	}
+
+	/**
+	 * Acquires request permits and byte permits. A write larger than the byte cap waits for the
+	 * whole cap, rather than forever.
+	 */
+	private Permits acquire(int requestCount, int size)
+	throws InterruptedException
+	{
+		final int byteCount = Math.min(size, options.maxInFlightBytes());
+		requests.acquire(requestCount);
+
+		try
+		{
+			bytes.acquire(byteCount);
+		}
+		catch (InterruptedException e)
+		{
+			requests.release(requestCount);
+			throw e;
+		}
+
+		return new Permits(requestCount, byteCount);
+	}
+
+	private void release(Permits permits)
+	{
+		bytes.release(permits.bytes());
+		requests.release(permits.requests());
+	}
+}
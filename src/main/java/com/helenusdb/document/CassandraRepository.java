@@ -1,29 +1,60 @@
 package com.helenusdb.document;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.protocol.internal.util.Bytes;
 import com.helenusdb.core.Identifiable;
 import com.helenusdb.core.Identifier;
 import com.helenusdb.core.exception.InvalidIdentifierException;
+import com.helenusdb.document.bloom.IdentifierBloomFilter;
+import com.helenusdb.document.cache.EntityCache;
 import com.helenusdb.document.document.CassandraDocumentFactory;
+import com.helenusdb.document.document.ChunkManifest;
+import com.helenusdb.document.document.ChunkSchemaProvider;
+import com.helenusdb.document.document.ChunkStore;
+import com.helenusdb.document.document.ContentHash;
 import com.helenusdb.document.document.DocumentSchemaProvider;
+import com.helenusdb.document.document.DocumentSchemaProvider.Columns;
 import com.helenusdb.document.exception.KeyDefinitionException;
+import com.helenusdb.document.exception.MissingChunkException;
+import com.helenusdb.document.key.IdentifierCodec;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
 import com.helenusdb.document.schema.SchemaWriter;
 import com.helenusdb.document.unitofwork.CassandraUnitOfWork;
+import com.helenusdb.document.unitofwork.CommitListener;
+import com.helenusdb.document.unitofwork.DocumentChange;
 import com.helenusdb.document.unitofwork.UnitOfWorkType;
+import com.helenusdb.document.unitofwork.WriteStatistics;
+import com.helenusdb.transact.EntityState;
 import com.helenusdb.transact.exception.UnitOfWorkCommitException;
 import com.strategicgains.noschema.NoSchemaRepository;
 import com.strategicgains.noschema.document.DocumentObserver;
@@ -52,6 +83,8 @@ import com.strategicgains.noschema.exception.StorageException;
 public class CassandraRepository<T extends Identifiable>
 implements NoSchemaRepository<T>, SchemaWriter<T>
 {
+	private static final int DEFAULT_READ_IN_CONCURRENCY = 32;
+
 	// The session used to connect to the Cassandra cluster.
 	private CqlSession session;
 	// The primary table and its views.
@@ -60,12 +93,42 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	private CassandraStatementFactory<Document<T>> statementFactory;
 	// The factories used to encode and decode entities.
 	private Map<String, CassandraDocumentFactory<T>> factoriesByTable = new HashMap<>();
+
+	// The names of the Index tables, whose rows refer to the primary table.
+	private Set<String> indexNames = new HashSet<>();
+
+	// Encodes the primary Identifier stored in each Index row.
+	private IdentifierCodec indexCodec;
 	// The type of UnitOfWork to create.
 	private UnitOfWorkType unitOfWorkType;
 	// The observers used to observe the encoding, creation, update, and deletion of entities.
 	private List<DocumentObserver<T>> documentObservers = new ArrayList<>();
 	// The observers used to observe the creation, update, and deletion of entities.
 	private List<EntityObserver<T>> entityObservers = new ArrayList<>();
+	// Stores large objects in chunks, if the table is chunked. Otherwise null.
+	private ChunkStore chunkStore;
+	// Optional. Collapses concurrent reads of the same key into a single query.
+	private ReadCoalescer<T> readCoalescer;
+	// Optional. Read-through cache of decoded entities, invalidated on commit.
+	private EntityCache<T> cache;
+	// Incremented on every invalidation so that reads in flight during a commit don't cache stale entities.
+	private final AtomicLong cacheEpoch = new AtomicLong();
+	// Optional. Bloom filters of known identifiers, by table name, used to short-circuit reads of absent ids.
+	private final Map<String, IdentifierBloomFilter> bloomFilters = new ConcurrentHashMap<>();
+	// Attached to every UnitOfWork this repository registers changes with.
+	private final CommitListener<T> commitListener = this::afterCommit;
+
+	// Whether units of work write with client-side timestamps.
+	private boolean useClientTimestamps = false;
+
+	// Whether documents carry a content hash, enabling unchanged updates to be skipped.
+	private boolean useContentHashing = false;
+
+	// Counts the updates skipped because they wouldn't change the stored rows.
+	private final WriteStatistics writeStatistics = new WriteStatistics();
+
+	// The maximum number of readIn() queries in flight at once, per call.
+	private int readInConcurrency = DEFAULT_READ_IN_CONCURRENCY;
 
 
 	protected CassandraRepository(CqlSession session, PrimaryTable table, ObjectCodec<T> codec)
@@ -85,9 +148,16 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 		table.views().forEach(view ->
 			this.factoriesByTable.put(view.name(), new CassandraDocumentFactory<>(view.keys(), codec))
 		);
-		table.indexes().forEach(index ->
-			this.factoriesByTable.put(index.name(), new CassandraDocumentFactory<>(index.keys(), codec))
-		);
+		table.indexes().forEach(index -> {
+			this.factoriesByTable.put(index.name(), new CassandraDocumentFactory<>(index.keys(), codec));
+			this.indexNames.add(index.name());
+		});
+		this.indexCodec = new IdentifierCodec(table.keys());
+
+		if (table.isChunked())
+		{
+			this.chunkStore = new ChunkStore(session, table);
+		}
 	}
 
 	protected boolean hasViews()
@@ -114,6 +184,11 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 		{
 			table.indexes().forEach(idx -> new DocumentSchemaProvider(idx).create(session));
 		}
+
+		if (table.isChunked())
+		{
+			new ChunkSchemaProvider(table).create(session);
+		}
 	}
 
 	@Override
@@ -125,6 +200,11 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 		{
 			table.views().forEach(v -> new DocumentSchemaProvider(v).drop(session));
 		}
+
+		if (table.isChunked())
+		{
+			new ChunkSchemaProvider(table).drop(session);
+		}
 	}
 
 	protected String tableName()
@@ -144,6 +224,147 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 		return this;
 	}
 
+	/**
+	 * Enables single-flight coalescing of read(String, Identifier) calls. Concurrent readers of the
+	 * same table and Identifier share one in-flight query and one decode, instead of each issuing
+	 * their own. Useful for hot entities that are read by many request threads at once.
+	 * <p/>
+	 * Note that coalesced readers receive the same entity instance.
+	 * 
+	 * @return this repository.
+	 */
+	public CassandraRepository<T> withReadCoalescing()
+	{
+		this.readCoalescer = new ReadCoalescer<>();
+		return this;
+	}
+
+	/**
+	 * Enables a read-through cache for read(), readIn() and exists(). Entries for the primary
+	 * table and each of its views and indexes are invalidated when a UnitOfWork containing
+	 * changes to them commits successfully.
+	 * <p/>
+	 * Only writes made through this repository instance invalidate the cache. Use a TTL that
+	 * bounds how stale an entry written by some other process may get.
+	 * 
+	 * @param cache the cache to use.
+	 * @return this repository.
+	 */
+	public CassandraRepository<T> withCache(EntityCache<T> cache)
+	{
+		this.cache = Objects.requireNonNull(cache);
+		return this;
+	}
+
+	/**
+	 * Writes with a client-side timestamp, chosen once per UnitOfWork, instead of the
+	 * coordinator's. Since the writes are idempotent, the driver can then retry them on
+	 * timeout without a retried write overwriting a later one.
+	 * 
+	 * @return this repository.
+	 * @see CassandraUnitOfWork#withClientTimestamps()
+	 */
+	public CassandraRepository<T> withClientTimestamps()
+	{
+		this.useClientTimestamps = true;
+		return this;
+	}
+
+	/**
+	 * Stores a content hash of each document in its metadata. An update whose entity encodes
+	 * to exactly the stored bytes, with unchanged keys, is then not written to that table,
+	 * view or index, avoiding new cells and compaction work for idempotent resubmits.
+	 * Rows written before this was enabled don't have a hash, so they're rewritten once.
+	 * 
+	 * @return this repository.
+	 * @see ContentHash
+	 * @see #getWriteStatistics()
+	 */
+	public CassandraRepository<T> withContentHashing()
+	{
+		this.useContentHashing = true;
+		return this;
+	}
+
+	/**
+	 * @return the per-table counts of writes skipped because they wouldn't have changed anything.
+	 */
+	public WriteStatistics getWriteStatistics()
+	{
+		return writeStatistics;
+	}
+
+	/**
+	 * Sets the maximum number of queries a single readIn() or readEach() call keeps in flight.
+	 * Defaults to 32.
+	 * 
+	 * @param concurrency the maximum number of outstanding queries. Must be positive.
+	 * @return this repository.
+	 */
+	public CassandraRepository<T> withReadInConcurrency(int concurrency)
+	{
+		if (concurrency < 1) throw new IllegalArgumentException("Read-in concurrency must be positive: " + concurrency);
+
+		this.readInConcurrency = concurrency;
+		return this;
+	}
+
+	/**
+	 * Attaches a Bloom filter of known identifiers to the primary table, a view or an index. Once the
+	 * filter is ready, exists() and read() of an identifier the filter has never seen return false or
+	 * throw ItemNotFoundException without querying Cassandra. Identifiers created or upserted through
+	 * this repository are added to the filter when their UnitOfWork commits.
+	 * <p/>
+	 * Either load a previously-saved filter with IdentifierBloomFilter.readFrom() or populate a new
+	 * one with populateBloomFilter(). See IdentifierBloomFilter for the single-writer caveat.
+	 * 
+	 * @param tableName the name of the primary table, view or index.
+	 * @param filter the filter.
+	 * @return this repository.
+	 */
+	public CassandraRepository<T> withBloomFilter(String tableName, IdentifierBloomFilter filter)
+	{
+		bloomFilters.put(tableName, Objects.requireNonNull(filter));
+		return this;
+	}
+
+	/**
+	 * (Re)builds the Bloom filter for the table with a key-only scan of the whole table and marks
+	 * it ready. Intended to be called at startup. This reads every key in the table, so it can
+	 * take a while on large tables.
+	 * 
+	 * @param tableName the name of the primary table, view or index with an attached filter.
+	 * @return the number of identifiers added to the filter.
+	 */
+	public long populateBloomFilter(String tableName)
+	{
+		IdentifierBloomFilter filter = bloomFilters.get(tableName);
+
+		if (filter == null) throw new IllegalArgumentException("No bloom filter for table: " + tableName);
+
+		filter.reset();
+		KeyDefinition keys = statementFactory.keys(tableName);
+		ResultSet rs = session.execute(statementFactory.scanKeys(tableName, 5000));
+		long count = 0;
+
+		for (Row row : rs)
+		{
+			filter.add(KeyPropertyConverter.identifier(keys, row));
+			++count;
+		}
+
+		filter.ready();
+		return count;
+	}
+
+	/**
+	 * @return the Bloom filter attached to the table, or null.
+	 */
+	public IdentifierBloomFilter bloomFilter(String tableName)
+	{
+		return bloomFilters.get(tableName);
+	}
+
 	/**
 	 * This method is responsible for creating a new entity in the database.
 	 * It first serializes the entity, then registers it in the UnitOfWork for 
@@ -156,59 +377,37 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	@Override
 	public T create(T entity)
 	{
-		try
-		{
-			CassandraUnitOfWork<T> uow = createUnitOfWork();
-			T created = create(entity, uow);
-			uow.commit();
-			return created;
-		}
-		catch (UnitOfWorkCommitException e)
-		{
-			handleException(e);
-		}
+		return join(createAsync(entity));
+	}
 
-		return null;
+	/**
+	 * Asynchronously creates a new entity in the primary table and each of its views and indexes.
+	 * The returned future fails with DuplicateItemException if a unique key already exists.
+	 *
+	 * @param entity The entity to be created.
+	 * @return a future that completes with the created entity once the UnitOfWork has committed.
+	 */
+	public CompletableFuture<T> createAsync(T entity)
+	{
+		return commitAsync(uow -> create(entity, uow));
 	}
 
 	public T create(T entity, CassandraUnitOfWork<T> uow)
 	{
+		observe(uow);
 		entityObservers.forEach(o -> o.beforeCreate(entity));
-		final AtomicReference<byte[]> serialized = new AtomicReference<>();
-		final AtomicReference<byte[]> serializedId = new AtomicReference<>();
-		final AtomicReference<Document<T>> primaryDocument = new AtomicReference<>();
+		final Document<T> primaryDocument = encode(entity);
+		stampTimes(primaryDocument, null);
+		storeChunks(primaryDocument, uow);
+		final byte[] indexPayload = indexPayload(primaryDocument);
 
 		table.stream().forEach(t -> {
-			final Document<T> d;
-
-			if (serialized.get() == null)
-			{
-				documentObservers.forEach(o -> o.beforeEncoding(entity));
-				d = asDocument(t.name(), entity);
-				primaryDocument.set(d);
-				serialized.set(d.getObject());
-				serializedId.set(d.getIdentifier().toString().getBytes());
-			}
-			else
-			{
-				if (t.isIndex())
-				{
-					d = asDocument(t.name(), entity, serializedId.get());
-				}
-				else
-				{
-					d = asDocument(t.name(), entity, serialized.get());
-				}
-
-				d.setMetadata(primaryDocument.get().getMetadata());
-			}
-
-			documentObservers.forEach(o -> o.afterEncoding(d));
+			final Document<T> d = asViewDocument(t, entity, primaryDocument, indexPayload);
 			documentObservers.forEach(o -> o.beforeCreate(d));
 			uow.registerNew(t.name(), d);
 		});
 
-		documentObservers.forEach(o -> o.afterCreate(primaryDocument.get()));
+		documentObservers.forEach(o -> o.afterCreate(primaryDocument));
 		entityObservers.forEach(o -> o.afterCreate(entity));
 		return entity;
 	}
@@ -225,46 +424,63 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	@Override
 	public void delete(Identifier id)
 	{
-		try
-		{
-			CassandraUnitOfWork<T> uow = createUnitOfWork();
-			delete(id, uow);
-			uow.commit();
-		}
-		catch (UnitOfWorkCommitException e)
-		{
-			handleException(e);
-		}
+		join(deleteAsync(id));
+	}
+
+	/**
+	 * Asynchronously deletes an entity from the primary table and each of its views and indexes.
+	 * The stored entity is read first (without blocking) to determine the view and index keys.
+	 *
+	 * @param id The Identifier of the entity to be deleted.
+	 * @return a future that completes once the UnitOfWork has committed.
+	 */
+	public CompletableFuture<Void> deleteAsync(Identifier id)
+	{
+		// Bypass the cache, the views to delete must be derived from the stored entity.
+		return translate(
+			readAsDocument(id)
+				.thenCompose(stored -> this.<Void>commitAsync(uow -> {
+					registerDelete(stored, uow);
+					return null;
+				}))
+		);
 	}
 
 	public void delete(Identifier id, CassandraUnitOfWork<T> uow)
 	{
-		final T entity = read(id);
+		observe(uow);
+		// Bypass the cache, the views to delete must be derived from the stored entity.
+		registerDelete(join(readAsDocument(id)), uow);
+	}
+
+	/**
+	 * Registers the deletion of a stored document from the primary table and its views and
+	 * indexes. The entity is decoded to derive the view and index keys, but never re-encoded:
+	 * the deleted documents carry the stored bytes.
+	 */
+	private void registerDelete(final Document<T> stored, CassandraUnitOfWork<T> uow)
+	{
+		final ByteBuffer storedObject = stored.getObjectBuffer();
+		documentObservers.forEach(o -> o.afterEncoding(stored));
+		final T entity = asEntity(table.name(), stored);
 		entityObservers.forEach(o -> o.beforeDelete(entity));
-		final AtomicReference<byte[]> serialized = new AtomicReference<>();
-		final AtomicReference<Document<T>> primaryDocument = new AtomicReference<>();
+		final Document<T> primaryDocument = asDocument(table.name(), entity, storedObject);
+		primaryDocument.setMetadata(stored.getMetadata());
+		primaryDocument.setCreatedAt(stored.getCreatedAt());
+		primaryDocument.setUpdatedAt(stored.getUpdatedAt());
+		final byte[] indexPayload = indexPayload(primaryDocument);
 
 		table.stream().forEach(t -> {
-			final Document<T> d;
-
-			if (serialized.get() == null)
-			{
-				documentObservers.forEach(o -> o.beforeEncoding(entity));
-				d = asDocument(t.name(), entity);
-				primaryDocument.set(d);
-				serialized.set(d.getObject());
-			}
-			else
-			{
-				d = asDocument(t.name(), entity, serialized.get());
-			}
-
-			documentObservers.forEach(o -> o.afterEncoding(d));
+			final Document<T> d = asViewDocument(t, entity, primaryDocument, indexPayload);
 			documentObservers.forEach(o -> o.beforeDelete(d));
 			uow.registerDeleted(t.name(), d);
 		});
 
-		documentObservers.forEach(o -> o.afterDelete(primaryDocument.get()));
+		final ChunkManifest manifest = (chunkStore != null ? ChunkManifest.of(stored) : null);
+
+		if (manifest != null) uow.registerChunkCleanup(manifest, chunkStore.delete(manifest));
+
+		documentObservers.forEach(o -> o.afterDelete(primaryDocument));
 		entityObservers.forEach(o -> o.afterDelete(entity));
 	}
 
@@ -295,10 +511,82 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	 */
 	public boolean exists(String viewName, Identifier id)
 	{
-		return session.executeAsync(statementFactory.exists(viewName, id))
-			.thenApply(r -> (Boolean.valueOf(r.one().getLong(0) > 0)))
-			.toCompletableFuture()
-			.join();
+		return join(existsAsync(viewName, id));
+	}
+
+	/**
+	 * Asynchronously checks if an entity exists in a specific view of the database.
+	 *
+	 * @param viewName The name of the view to check.
+	 * @param id The Identifier of the entity to check.
+	 * @return a future that completes with true if the entity exists in the view, false otherwise.
+	 */
+	public CompletableFuture<Boolean> existsAsync(String viewName, Identifier id)
+	{
+		if (isDefinitelyAbsent(viewName, id)) return CompletableFuture.completedFuture(Boolean.FALSE);
+		if (fromCache(viewName, id) != null) return CompletableFuture.completedFuture(Boolean.TRUE);
+
+		return translate(
+			session.executeAsync(statementFactory.exists(viewName, id))
+				.thenApply(r -> Boolean.valueOf(r.one() != null))
+				.toCompletableFuture()
+		);
+	}
+
+	/**
+	 * Checks the existence of many entities in a specific view of the database, returning
+	 * a result for each identifier, in the same order. Identifiers that share a partition key
+	 * are checked with a single key-only query using an IN clause on the clustering key.
+	 * At most readInConcurrency queries are in flight at once.
+	 *
+	 * @param viewName The name of the view to check.
+	 * @param ids The Identifiers of the entities to check.
+	 * @return whether each entity exists in the view.
+	 */
+	public List<Boolean> existsAll(String viewName, List<Identifier> ids)
+	{
+		return join(existsAllAsync(viewName, ids));
+	}
+
+	/**
+	 * Asynchronously checks the existence of many entities in a specific view of the database.
+	 *
+	 * @param viewName The name of the view to check.
+	 * @param ids The Identifiers of the entities to check.
+	 * @return a future that completes with whether each entity exists in the view.
+	 * @see #existsAll(String, List)
+	 */
+	public CompletableFuture<List<Boolean>> existsAllAsync(String viewName, List<Identifier> ids)
+	{
+		if (ids == null || ids.isEmpty()) return CompletableFuture.completedFuture(Collections.emptyList());
+
+		final AtomicReferenceArray<Boolean> results = new AtomicReferenceArray<>(ids.size());
+		final List<Integer> unknown = new ArrayList<>();
+
+		for (int i = 0; i < ids.size(); i++)
+		{
+			Identifier id = ids.get(i);
+
+			if (isDefinitelyAbsent(viewName, id)) results.set(i, Boolean.FALSE);
+			else if (fromCache(viewName, id) != null) results.set(i, Boolean.TRUE);
+			else unknown.add(i);
+		}
+
+		final KeyDefinition keys = statementFactory.keys(viewName);
+		return translate(
+			AsyncWindow.map(PartitionBatches.of(keys, ids, unknown, PartitionBatches.MAX_IN_CLAUSE_SIZE), readInConcurrency,
+					batch -> existsBatch(viewName, keys, ids, batch, results))
+				.thenApply(v -> {
+					List<Boolean> exists = new ArrayList<>(ids.size());
+
+					for (int i = 0; i < ids.size(); i++)
+					{
+						exists.add(Boolean.TRUE.equals(results.get(i)));
+					}
+
+					return exists;
+				})
+		);
 	}
 
 	/**
@@ -326,20 +614,36 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	 */
 	public T read(String viewName, Identifier id)
 	{
-		try
-		{
-			T read = readRow(viewName, id)
-				.thenApply(row -> asEntity(viewName, row))
-				.join();
-			entityObservers.forEach(o -> o.afterRead(read));
-			return read;
-		}
-		catch (CompletionException e)
-		{
-			handleException(e);
-		}
+		return join(readAsync(viewName, id));
+	}
 
-		return null;
+	/**
+	 * Asynchronously reads an entity from the primary table.
+	 *
+	 * @param id The Identifier of the entity to read.
+	 * @return a future that completes with the entity, or fails with ItemNotFoundException.
+	 */
+	public CompletableFuture<T> readAsync(Identifier id)
+	{
+		return readAsync(table.name(), id);
+	}
+
+	/**
+	 * Asynchronously reads an entity from a specific view in the database.
+	 *
+	 * @param viewName The name of the view to read from.
+	 * @param id The Identifier of the entity to read.
+	 * @return a future that completes with the entity, or fails with ItemNotFoundException.
+	 */
+	public CompletableFuture<T> readAsync(String viewName, Identifier id)
+	{
+		return translate(
+			readEntity(viewName, id)
+				.thenApply(read -> {
+					entityObservers.forEach(o -> o.afterRead(read));
+					return read;
+				})
+		);
 	}
 
 	/**
@@ -368,168 +672,438 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	 */
 	public PagedResponse<T> readAll(String viewName, int limit, String cursor, Object... parms)
 	{
-		final PagedResponse<T> response = new PagedResponse<>();
-		try
-		{
-			readRows(viewName, limit, cursor, parms)
-				.thenAccept(page -> {
-					response.cursor(page.cursor());
-					page.iterator().forEachRemaining(row -> {
-						T entity = asEntity(viewName, row);
-						entityObservers.forEach(o -> o.afterRead(entity));
-                        response.add(entity);
-                    });
-				})
-				.join();
-		}
-		catch (CompletionException e)
+		return join(readAllAsync(viewName, limit, cursor, parms));
+	}
+
+	/**
+	 * Asynchronously retrieve a page of entities from a view using the given [partial] identifier.
+	 * Note that values for the partition key portion MUST be included.
+	 * 
+	 * @param viewName the name of the view to query.
+	 * @param limit the maximum number of rows to return.
+	 * @param cursor a hex string representing the page state to start the query.
+	 * @param parms properties making up a partial key or identifier.
+	 * @return a future that completes with the page of entities.
+	 */
+	public CompletableFuture<PagedResponse<T>> readAllAsync(String viewName, int limit, String cursor, Object... parms)
+	{
+		if (isIndex(viewName))
 		{
-			handleException(e);
+			return translate(
+				readRows(statementFactory.readAll(viewName, limit, cursor, parms), parms)
+					.thenCompose(page -> resolveIndexRows(page::iterator)
+						.thenApply(entities -> {
+							final PagedResponse<T> response = new PagedResponse<>();
+							response.cursor(page.cursor());
+							entities.forEach(response::add);
+							return response;
+						})
+					)
+			);
 		}
 
-		return response;
+		return translate(
+			readRows(statementFactory.readAll(viewName, limit, cursor, parms), parms)
+				.thenCompose(page -> decodeRows(viewName, page::iterator)
+					.thenApply(entities -> {
+						final PagedResponse<T> response = new PagedResponse<>();
+						response.cursor(page.cursor());
+						entities.forEachRemaining(response::add);
+						return response;
+					})
+				)
+		);
 	}
 
 	/**
-	 * Reads multiple entities from the primary table.
-	 * It executes asynchronous queries to read the entities,
-	 * waits for all of them to complete, and then returns the results.
-	 * Entities that are not found are not included in the result.
+	 * Reads an entity from the primary table or a view without deserializing it. The object is
+	 * decoded on the first call to LazyEntity.get(). The entity cache and read coalescing are
+	 * bypassed.
 	 * 
-	 * Note: the order of the returned entities is not guaranteed.
-	 *
-	 * @param ids The Identifiers of the entities to read.
-	 * @return The list of read entities.
+	 * @param viewName the name of the primary table or view to read from. Indexes are not supported.
+	 * @param id the Identifier of the entity to read.
+	 * @return a LazyEntity.
+	 * @throws ItemNotFoundException If the entity is not found.
 	 */
-	@Override
-	public List<T> readIn(List<Identifier> ids)
+	public LazyEntity<T> readLazy(String viewName, Identifier id)
 	{
-		return readIn(table.name(), ids);
+		return join(readLazyAsync(viewName, id));
 	}
 
 	/**
-	 * This method reads multiple entities from a specific view.
-	 * It executes asynchronous queries to read the entities from the view,
-	 * waits for all of them to complete, and then returns the results.
-	 * Entities that are not found are not included in the result.
+	 * Asynchronously reads an entity without deserializing it.
 	 * 
-	 * This method uses asynchronous queries to read the entities, which
-	 * means the client itself is the coordinator instead of issuing all
-	 * the queries to a single node. This is more efficient from the
-	 * server perspective, but it can load up the client.
-	 * 
-	 * Note: the order of the returned entities is not guaranteed.
-	 *
-	 * @param viewName The name of the view to read from.
-	 * @param ids The Identifiers of the entities to read.
-	 * @return The list of read entities.
+	 * @see #readLazy(String, Identifier)
 	 */
-	public List<T> readIn(String viewName, List<Identifier> ids)
+	public CompletableFuture<LazyEntity<T>> readLazyAsync(String viewName, Identifier id)
 	{
-		if (ids == null) return Collections.emptyList();
-
-		List<CompletableFuture<T>> futures = ids.stream().map(id -> 
-			session.executeAsync(statementFactory.read(viewName, id))
-				.thenApply(rs -> rs.one())
-				.thenApply(row -> {
-					T entity = asEntity(viewName, row);
-					entityObservers.forEach(o -> o.afterRead(entity));
-					return entity;
-				})
-				.toCompletableFuture()
-		).toList();
-
-		CompletableFuture<Void> allFutures = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
-
-		CompletableFuture<List<T>> allCompletableFuture = allFutures.thenApply(v ->
-			futures.stream()
-				.map(CompletableFuture::join)
-				.toList()
-		);
+		if (isIndex(viewName)) return CompletableFuture.failedFuture(new IllegalArgumentException("Lazy reads of an index are not supported: " + viewName));
 
-		try
-		{
-			return allCompletableFuture.get();
-		}
-		catch (InterruptedException i)
-		{
-			Thread.currentThread().interrupt();
-			throw new RuntimeException(i);
-		}
-		catch (ExecutionException e)
+		if (isDefinitelyAbsent(viewName, id))
 		{
-			throw new RuntimeException(e);
+			return CompletableFuture.failedFuture(new ItemNotFoundException(id.toString()));
 		}
+
+		return translate(
+			readDocument(viewName, id)
+				.thenApply(d -> asLazyEntity(viewName, d))
+		);
 	}
 
 	/**
-	 * This method updates an entity in the database.
-	 * It first creates a UnitOfWork, then registers the original entity in it
-	 * for the primary table and all its views. If the original entity is not
-	 * provided (null), it reads it from the database using the identifier for the
-	 * provided entity.
-	 *
-	 * @param entity The new entity data.
-	 * @param original The original entity data. If null, the method will read it from the database.
-	 * @return The updated entity.
+	 * Retrieve a page of entities from the primary table or a view without deserializing them.
+	 * The identifier, type, metadata and timestamps of each are available immediately, and the
+	 * object is decoded on the first call to LazyEntity.get().
+	 * 
+	 * @param viewName the name of the primary table or view to query. Indexes are not supported.
+	 * @param limit the maximum number of rows to return.
+	 * @param cursor a hex string representing the page state to start the query.
+	 * @param parms properties making up a partial key or identifier.
+	 * @return a page of LazyEntity.
+	 */
+	public PagedResponse<LazyEntity<T>> readAllLazy(String viewName, int limit, String cursor, Object... parms)
+	{
+		return join(readAllLazyAsync(viewName, limit, cursor, parms));
+	}
+
+	/**
+	 * Asynchronously retrieve a page of entities without deserializing them.
+	 * 
+	 * @see #readAllLazy(String, int, String, Object...)
+	 */
+	public CompletableFuture<PagedResponse<LazyEntity<T>>> readAllLazyAsync(String viewName, int limit, String cursor, Object... parms)
+	{
+		if (isIndex(viewName)) return CompletableFuture.failedFuture(new IllegalArgumentException("Lazy reads of an index are not supported: " + viewName));
+
+		return translate(
+			readRows(statementFactory.readAll(viewName, limit, cursor, parms), parms)
+				.thenCompose(page -> assembleRows(viewName, page::iterator)
+					.thenApply(documents -> {
+						final PagedResponse<LazyEntity<T>> response = new PagedResponse<>();
+						response.cursor(page.cursor());
+						documents.forEach(d -> response.add(asLazyEntity(viewName, d)));
+						return response;
+					})
+				)
+		);
+	}
+
+	/**
+	 * Retrieve a page of identifiers from a table, view or index using the given [partial]
+	 * identifier. Only the key columns are read: no object is transferred or deserialized.
+	 * Note that values for the partition key portion MUST be included.
+	 * <p/>
+	 * The identifiers are those of the named table. For a view or index, they are not the
+	 * primary identifiers.
+	 * 
+	 * @param viewName the name of the table, view or index to query.
+	 * @param limit the maximum number of rows to return.
+	 * @param cursor a hex string representing the page state to start the query.
+	 * @param parms properties making up a partial key or identifier.
+	 * @return a page of identifiers.
+	 */
+	public PagedResponse<Identifier> readIds(String viewName, int limit, String cursor, Object... parms)
+	{
+		return join(readIdsAsync(viewName, limit, cursor, parms));
+	}
+
+	/**
+	 * Asynchronously retrieve a page of identifiers from a table, view or index.
+	 * 
+	 * @see #readIds(String, int, String, Object...)
+	 */
+	public CompletableFuture<PagedResponse<Identifier>> readIdsAsync(String viewName, int limit, String cursor, Object... parms)
+	{
+		final KeyDefinition keys = statementFactory.keys(viewName);
+		return translate(
+			readRows(statementFactory.readIds(viewName, limit, cursor, parms), parms)
+				.thenApply(page -> {
+					final PagedResponse<Identifier> response = new PagedResponse<>();
+					response.cursor(page.cursor());
+					page.iterator().forEachRemaining(row -> response.add(KeyPropertyConverter.identifier(keys, row)));
+					return response;
+				})
+		);
+	}
+
+	/**
+	 * Retrieve a page of document headers from a table, view or index using the given [partial]
+	 * identifier: the identifier, type, metadata and timestamps of each document, but not its
+	 * object. Nothing is deserialized. Note that values for the partition key portion MUST be
+	 * included.
+	 * 
+	 * @param viewName the name of the table, view or index to query.
+	 * @param limit the maximum number of rows to return.
+	 * @param cursor a hex string representing the page state to start the query.
+	 * @param parms properties making up a partial key or identifier.
+	 * @return a page of Documents without objects.
+	 */
+	public PagedResponse<Document<T>> readHeaders(String viewName, int limit, String cursor, Object... parms)
+	{
+		return join(readHeadersAsync(viewName, limit, cursor, parms));
+	}
+
+	/**
+	 * Asynchronously retrieve a page of document headers from a table, view or index.
+	 * 
+	 * @see #readHeaders(String, int, String, Object...)
+	 */
+	public CompletableFuture<PagedResponse<Document<T>>> readHeadersAsync(String viewName, int limit, String cursor, Object... parms)
+	{
+		final CassandraDocumentFactory<T> factory = factoriesByTable.get(viewName);
+		return translate(
+			readRows(statementFactory.readHeaders(viewName, limit, cursor, parms), parms)
+				.thenApply(page -> {
+					final PagedResponse<Document<T>> response = new PagedResponse<>();
+					response.cursor(page.cursor());
+					page.iterator().forEachRemaining(row -> response.add(factory.asHeader(row)));
+					return response;
+				})
+		);
+	}
+
+	/**
+	 * Streams all the entities from the primary table matching the given [partial] identifier,
+	 * paging through the results automatically.
+	 * 
+	 * @param pageSize the number of rows to fetch per page.
+	 * @param parms properties making up a partial key or identifier.
+	 * @return a lazily-evaluated stream of entities.
+	 * @see #streamAll(String, int, Object...)
+	 */
+	public Stream<T> streamAll(int pageSize, Object... parms)
+	{
+		return streamAll(table.name(), pageSize, parms);
+	}
+
+	/**
+	 * Streams all the entities from a view matching the given [partial] identifier, paging
+	 * through the results automatically. Note that values for the partition key portion MUST
+	 * be included.
+	 * <p/>
+	 * The stream is lazy: rows are decoded as they're consumed. When consumption of a page
+	 * begins, the next page is fetched in the background, so at most two pages are held in
+	 * memory at once and no page is fetched before the consumer gets to the one before it.
+	 * Close the stream (e.g. with try-with-resources) if it's abandoned before the end.
+	 * <p/>
+	 * Streaming an Index resolves each page of index rows to primary entities (see readAll()),
+	 * so the prefetched page is resolved while the current page is consumed.
+	 * <p/>
+	 * The first page is read before this method returns. Failures reading later pages are
+	 * thrown as StorageException from the stream's terminal operation.
+	 * 
+	 * @param viewName the name of the view to query.
+	 * @param pageSize the number of rows to fetch per page.
+	 * @param parms properties making up a partial key or identifier.
+	 * @return a lazily-evaluated stream of entities.
+	 */
+	public Stream<T> streamAll(String viewName, int pageSize, Object... parms)
+	{
+		documentObservers.forEach(o -> o.beforeRead(new Identifier(parms)));
+		AsyncResultSet first = join(
+			translate(
+				session.executeAsync(statementFactory.readAll(viewName, pageSize, null, parms))
+					.toCompletableFuture()
+			)
+		);
+		PrefetchingIterator<T> iterator = new PrefetchingIterator<>(first, (isIndex(viewName)
+			? rs -> resolveIndexRows(rs.currentPage()).thenApply(List::iterator)
+			: rs -> decodeRows(viewName, rs.currentPage())), this::asStorageException);
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+				false)
+			.onClose(iterator::close);
+	}
+
+	/**
+	 * Reads multiple entities from the primary table.
+	 * Entities that are not found are not included in the result.
+	 * Found entities are returned in the order of the given identifiers.
+	 *
+	 * @param ids The Identifiers of the entities to read.
+	 * @return The list of read entities.
+	 * @see #readIn(String, List)
 	 */
 	@Override
-	public T update(T entity, T original)
+	public List<T> readIn(List<Identifier> ids)
 	{
-		try
+		return readIn(table.name(), ids);
+	}
+
+	/**
+	 * This method reads multiple entities from a specific view.
+	 * Entities that are not found are not included in the result.
+	 * Found entities are returned in the order of the given identifiers.
+	 * 
+	 * Identifiers that share a partition key are read with a single query
+	 * using an IN clause on the clustering key. The remaining identifiers
+	 * are read with one query each. At most readInConcurrency queries are
+	 * in flight at once (see withReadInConcurrency()), so large lists don't
+	 * flood the driver's request queue.
+	 *
+	 * @param viewName The name of the view to read from.
+	 * @param ids The Identifiers of the entities to read.
+	 * @return The list of read entities.
+	 */
+	public List<T> readIn(String viewName, List<Identifier> ids)
+	{
+		return join(readInAsync(viewName, ids));
+	}
+
+	/**
+	 * Asynchronously reads multiple entities from a specific view.
+	 *
+	 * @param viewName The name of the view to read from.
+	 * @param ids The Identifiers of the entities to read.
+	 * @return a future that completes with the list of read entities.
+	 * @see #readIn(String, List)
+	 */
+	public CompletableFuture<List<T>> readInAsync(String viewName, List<Identifier> ids)
+	{
+		return readEachAsync(viewName, ids)
+			.thenApply(results -> results.stream()
+				.flatMap(Optional::stream)
+				.toList());
+	}
+
+	/**
+	 * Reads multiple entities from a specific view, the same way as readIn(), but returns
+	 * one result for each of the given identifiers, in the same order. Identifiers that
+	 * were not found have an empty result.
+	 *
+	 * @param viewName The name of the view to read from.
+	 * @param ids The Identifiers of the entities to read.
+	 * @return a result for each identifier.
+	 * @see #readIn(String, List)
+	 */
+	public List<Optional<T>> readEach(String viewName, List<Identifier> ids)
+	{
+		return join(readEachAsync(viewName, ids));
+	}
+
+	/**
+	 * Asynchronously reads multiple entities from a specific view.
+	 *
+	 * @param viewName The name of the view to read from.
+	 * @param ids The Identifiers of the entities to read.
+	 * @return a future that completes with a result for each identifier.
+	 * @see #readEach(String, List)
+	 */
+	public CompletableFuture<List<Optional<T>>> readEachAsync(String viewName, List<Identifier> ids)
+	{
+		if (ids == null || ids.isEmpty()) return CompletableFuture.completedFuture(Collections.emptyList());
+		if (isIndex(viewName)) return readEachIndexed(viewName, ids);
+
+		final AtomicReferenceArray<T> results = new AtomicReferenceArray<>(ids.size());
+		final List<Integer> misses = new ArrayList<>();
+
+		for (int i = 0; i < ids.size(); i++)
 		{
-			CassandraUnitOfWork<T> uow = createUnitOfWork();
-			T updated = update(entity, original, uow);
-			uow.commit();
-			return updated;
+			Identifier id = ids.get(i);
+
+			if (isDefinitelyAbsent(viewName, id)) continue;
+
+			T cached = fromCache(viewName, id);
+
+			if (cached != null)
+			{
+				entityObservers.forEach(o -> o.afterRead(cached));
+				results.set(i, cached);
+			}
+			else
+			{
+				misses.add(i);
+			}
 		}
-		catch (UnitOfWorkCommitException e)
+
+		final KeyDefinition keys = statementFactory.keys(viewName);
+		final List<List<Integer>> batches = PartitionBatches.of(keys, ids, misses, PartitionBatches.MAX_IN_CLAUSE_SIZE);
+		final long epoch = cacheEpoch.get();
+		return translate(
+			AsyncWindow.map(batches, readInConcurrency, batch -> readBatch(viewName, keys, ids, batch, results, epoch))
+				.thenApply(v -> {
+					List<Optional<T>> entities = new ArrayList<>(ids.size());
+
+					for (int i = 0; i < ids.size(); i++)
+					{
+						entities.add(Optional.ofNullable(results.get(i)));
+					}
+
+					return entities;
+				})
+		);
+	}
+
+	/**
+	 * This method updates an entity in the database.
+	 * It first creates a UnitOfWork, then registers the original entity in it
+	 * for the primary table and all its views. If the original entity is not
+	 * provided (null), it reads it from the database using the identifier for the
+	 * provided entity.
+	 *
+	 * @param entity The new entity data.
+	 * @param original The original entity data. If null, the method will read it from the database.
+	 * @return The updated entity.
+	 */
+	@Override
+	public T update(T entity, T original)
+	{
+		return join(updateAsync(entity, original));
+	}
+
+	/**
+	 * Asynchronously updates an entity in the database. If the original entity is not provided (null),
+	 * it is read from the database first, without blocking.
+	 *
+	 * @param entity The new entity data.
+	 * @param original The original entity data. If null, the method will read it from the database.
+	 * @return a future that completes with the updated entity once the UnitOfWork has committed.
+	 */
+	public CompletableFuture<T> updateAsync(T entity, T original)
+	{
+		if (original != null)
 		{
-			handleException(e);
+			return commitAsync(uow -> update(entity, original, uow));
 		}
 
-		return null;
+		return translate(
+			readAsDocument(entity.getIdentifier())
+				.thenCompose(originalDocument -> commitAsync(uow -> {
+					uow.registerClean(table.name(), originalDocument);
+					return registerUpdate(entity, originalDocument, asEntity(table.name(), originalDocument), uow);
+				}))
+		);
 	}
 
 	public T update(T entity, T original, CassandraUnitOfWork<T> uow)
 	{
-		AtomicReference<Document<T>> originalDocument = new AtomicReference<>();
-		final T originalEntity;
+		observe(uow);
 
 		if (original != null)
 		{
-			originalDocument.set(asDocument(original));
-			originalEntity = original;
-		}
-		else
-		{
-			originalDocument.set(readAsDocument(entity.getIdentifier()).join());
-			uow.registerClean(table.name(), originalDocument.get());
-			originalEntity = asEntity(table.name(), originalDocument.get());
+			return registerUpdate(entity, encode(original), original, uow);
 		}
 
-		documentObservers.forEach(o -> o.beforeUpdate(originalDocument.get()));
-		final byte[] serialized = originalDocument.get().getObject();
-		final AtomicReference<Document<T>> updatedDocument = new AtomicReference<>();
-
-		table.stream().forEach(t -> {
-			if (updatedDocument.get() == null)
-			{
-				documentObservers.forEach(o -> o.beforeEncoding(entity));
-			}
+		Document<T> originalDocument = join(readAsDocument(entity.getIdentifier()));
+		uow.registerClean(table.name(), originalDocument);
+		return registerUpdate(entity, originalDocument, asEntity(table.name(), originalDocument), uow);
+	}
 
-			final Document<T> updatedViewDocument = asDocument(t.name(), entity);
-			final Document<T> originalViewDocument = asDocument(t.name(), originalEntity, serialized);
+	private T registerUpdate(T entity, final Document<T> originalDocument, final T originalEntity, CassandraUnitOfWork<T> uow)
+	{
+		documentObservers.forEach(o -> o.beforeUpdate(originalDocument));
+		final Document<T> updatedDocument = encode(entity);
+		stampTimes(updatedDocument, originalDocument.getCreatedAt());
+		storeChunks(updatedDocument, uow);
+		final byte[] indexPayload = indexPayload(updatedDocument);
+		final Document<T> originalPrimary = asDocument(table.name(), originalEntity, originalDocument.getObjectBuffer());
+		originalPrimary.setMetadata(originalDocument.getMetadata());
+		supersedeChunks(originalDocument, originalPrimary, updatedDocument, uow);
+		final byte[] originalIndexPayload = indexPayload(originalPrimary);
 
-			if (updatedDocument.get() == null)
-			{
-				updatedDocument.set(updatedViewDocument);
-				documentObservers.forEach(o-> o.afterEncoding(updatedViewDocument));
-			}
-			else
-			{
-				updatedViewDocument.setMetadata(updatedDocument.get().getMetadata());
-			}
+		table.stream().forEach(t -> {
+			final Document<T> updatedViewDocument = asViewDocument(t, entity, updatedDocument, indexPayload);
+			final Document<T> originalViewDocument = asViewDocument(t, originalEntity, originalPrimary, originalIndexPayload);
 
 			// If identifier changed, must perform delete and create.
 			if (!updatedViewDocument.getIdentifier().equals(originalViewDocument.getIdentifier()))
@@ -537,6 +1111,11 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 				uow.registerDeleted(t.name(), originalViewDocument);
 				uow.registerNew(t.name(), updatedViewDocument);
 			}
+			// Nothing to write if the content and keys are unchanged.
+			else if (ContentHash.isUnchanged(t.keys(), updatedViewDocument, originalViewDocument))
+			{
+				writeStatistics.recordSkipped(t.name());
+			}
 			// Otherwise it is simply an update.
 			else
 			{
@@ -544,7 +1123,7 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 			}
 		});
 
-		documentObservers.forEach(o -> o.afterUpdate(updatedDocument.get()));
+		documentObservers.forEach(o -> o.afterUpdate(updatedDocument));
 		return entity;
 	}
 
@@ -559,67 +1138,484 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 	 */
 	@Override
 	public T upsert(T entity)
+	{
+		return join(upsertAsync(entity));
+	}
+
+	/**
+	 * Asynchronously upserts (updates or inserts) an entity into the database.
+	 *
+	 * @param entity The entity to be upserted.
+	 * @return a future that completes with the upserted entity once the UnitOfWork has committed.
+	 */
+	public CompletableFuture<T> upsertAsync(T entity)
+	{
+		return commitAsync(uow -> upsert(entity, uow));
+	}
+
+	/**
+	 * Registers an upsert, without reading the stored entity. With content hashing, it's only
+	 * dropped as unchanged if the stored primary document was registered clean with the unit
+	 * of work; then neither the primary table nor any view or index is written. Otherwise it's
+	 * a blind write.
+	 *
+	 * @see #withContentHashing()
+	 */
+	public T upsert(T entity, CassandraUnitOfWork<T> uow)
+	{
+		observe(uow);
+		final Document<T> updated = encode(entity);
+		stampTimes(updated, null);
+		final List<BoundStatement> chunks = (chunkStore != null ? chunkStore.split(updated) : List.of());
+		documentObservers.forEach(o -> o.beforeUpdate(updated));
+
+		// Same bytes as the stored primary document, so the view and index keys are the same too.
+		if (ContentHash.isUnchanged(table.keys(), updated, uow.readClean(table.name(), updated.getIdentifier())))
+		{
+			table.stream().forEach(t -> writeStatistics.recordSkipped(t.name()));
+		}
+		else
+		{
+			if (!chunks.isEmpty()) registerChunks(updated, chunks, uow);
+
+			final byte[] indexPayload = indexPayload(updated);
+			table.stream().forEach(view ->
+				uow.registerDirty(view.name(), asViewDocument(view, entity, updated, indexPayload))
+			);
+		}
+
+		documentObservers.forEach(o -> o.afterUpdate(updated));
+		return entity;
+	}
+
+	/**
+	 * Upserts many entities into the primary table and each of its views and indexes, with the
+	 * default BulkLoadOptions.
+	 *
+	 * @param entities the entities to upsert.
+	 * @return the counts of written and failed entities.
+	 * @see #upsertAll(Stream, BulkLoadOptions)
+	 */
+	public BulkLoadResult<T> upsertAll(Stream<T> entities)
+	{
+		return upsertAll(entities, BulkLoadOptions.defaults());
+	}
+
+	/**
+	 * Upserts many entities without a UnitOfWork per entity. Entities are encoded on a worker
+	 * pool, and their writes are grouped by table and partition into small UNLOGGED batches,
+	 * with in-flight requests and bytes capped by the options. Blocks until every write has
+	 * completed. A failed entity is reported to the options' listener and in the result, and
+	 * the load continues.
+	 * <p/>
+	 * Unlike upsert(), an entity's writes to its tables are not atomic, and an entity whose
+	 * view keys changed leaves its old view rows in place. Every write is a plain INSERT, so a
+	 * failed or interrupted load can simply be rerun.
+	 *
+	 * @param entities the entities to upsert. The stream is consumed but not closed.
+	 * @param options tunes the load.
+	 * @return the counts of written and failed entities.
+	 * @see BulkLoader
+	 */
+	public BulkLoadResult<T> upsertAll(Stream<T> entities, BulkLoadOptions<T> options)
+	{
+		return new BulkLoader<>(session, options, entity -> asBulkEntry(entity, false), this::afterCommit, this::asStorageException)
+			.load(entities.iterator());
+	}
+
+	/**
+	 * Creates many entities in the primary table and each of its views and indexes, with the
+	 * default BulkLoadOptions.
+	 *
+	 * @param entities the entities to create.
+	 * @return the counts of written and failed entities.
+	 * @see #createAll(Iterable, BulkLoadOptions)
+	 */
+	public BulkLoadResult<T> createAll(Iterable<T> entities)
+	{
+		return createAll(entities, BulkLoadOptions.defaults());
+	}
+
+	/**
+	 * Creates many entities the same way upsertAll() upserts them. Before each slice of entities
+	 * is written, the keys of the primary table and unique views are checked in bulk (see
+	 * existsAll()). Entities whose keys already exist, or repeat an earlier entity's in the same
+	 * slice, fail with DuplicateItemException and are not written.
+	 * <p/>
+	 * The check and the writes are not atomic: unlike create(), an entity created concurrently
+	 * by another writer may be overwritten.
+	 *
+	 * @param entities the entities to create.
+	 * @param options tunes the load.
+	 * @return the counts of written and failed entities.
+	 * @see #upsertAll(Stream, BulkLoadOptions)
+	 */
+	public BulkLoadResult<T> createAll(Iterable<T> entities, BulkLoadOptions<T> options)
+	{
+		final Set<String> uniqueTables = new HashSet<>();
+		table.stream()
+			.filter(t -> statementFactory.isViewUnique(t.name()))
+			.forEach(t -> uniqueTables.add(t.name()));
+		return new BulkLoader<>(session, options, entity -> asBulkEntry(entity, true), this::afterCommit, this::asStorageException,
+				uniqueTables, this::existsAllAsync)
+			.load(entities.iterator());
+	}
+
+	/**
+	 * Encodes the entity once, the same way create() or upsert() does, and derives a plain
+	 * INSERT for the primary table and each view and index. Chunks, if any, are written first.
+	 */
+	private BulkLoader.Entry<T> asBulkEntry(T entity, boolean isNew)
+	{
+		if (isNew) entityObservers.forEach(o -> o.beforeCreate(entity));
+
+		final Document<T> primary = encode(entity);
+		stampTimes(primary, null);
+		final BulkLoader.Entry<T> entry = new BulkLoader.Entry<>(entity);
+
+		if (chunkStore != null)
+		{
+			final int objectSize = primary.getObjectSize();
+			final List<BoundStatement> chunks = chunkStore.split(primary);
+
+			if (!chunks.isEmpty()) entry.addPrerequisites(chunks, objectSize);
+		}
+
+		if (!isNew) documentObservers.forEach(o -> o.beforeUpdate(primary));
+
+		final byte[] indexPayload = indexPayload(primary);
+		final EntityState state = (isNew ? EntityState.NEW : EntityState.DIRTY);
+
+		table.stream().forEach(t -> {
+			final Document<T> d = asViewDocument(t, entity, primary, indexPayload);
+
+			if (isNew) documentObservers.forEach(o -> o.beforeCreate(d));
+
+			entry.addWrite(t.name(), BulkLoader.partitionOf(statementFactory.keys(t.name()), d.getIdentifier()),
+				statementFactory.factory(t.name()).upsert(d), new DocumentChange<>(t.name(), d, state), d.getObjectSize());
+		});
+
+		if (isNew)
+		{
+			documentObservers.forEach(o -> o.afterCreate(primary));
+			entityObservers.forEach(o -> o.afterCreate(entity));
+		}
+		else
+		{
+			documentObservers.forEach(o -> o.afterUpdate(primary));
+		}
+
+		return entry;
+	}
+
+	protected CassandraUnitOfWork<T> createUnitOfWork()
+	{
+		CassandraUnitOfWork<T> uow = new CassandraUnitOfWork<>(session, statementFactory, unitOfWorkType);
+
+		if (useClientTimestamps) uow.withClientTimestamps();
+
+		uow.withWriteStatistics(writeStatistics);
+		return observe(uow);
+	}
+
+	/**
+	 * Creates a new UnitOfWork, registers changes in it and commits it without blocking.
+	 * Failures while registering changes complete the returned future exceptionally.
+	 */
+	private <R> CompletableFuture<R> commitAsync(Function<CassandraUnitOfWork<T>, R> registration)
 	{
 		try
 		{
 			CassandraUnitOfWork<T> uow = createUnitOfWork();
-			T upserted = upsert(entity, uow);
-			uow.commit();
-			return upserted;
+			R result = registration.apply(uow);
+			return translate(uow.commitAsync().thenApply(v -> result));
 		}
-		catch (UnitOfWorkCommitException e)
+		catch (RuntimeException e)
 		{
-			handleException(e);
+			return CompletableFuture.failedFuture(e);
 		}
+	}
 
-		return null;
+	private CassandraUnitOfWork<T> observe(CassandraUnitOfWork<T> uow)
+	{
+		return uow.withListener(commitListener);
 	}
 
-	public T upsert(T entity, CassandraUnitOfWork<T> uow)
+	private void afterCommit(DocumentChange<T> change)
 	{
-		final AtomicReference<byte[]> bson = new AtomicReference<>();
-		final AtomicReference<Document<T>> updated = new AtomicReference<>();
+		if (cache != null)
+		{
+			cacheEpoch.incrementAndGet();
+			cache.invalidate(change.getView(), normalize(change.getView(), change.getId()));
+		}
 
-		table.stream().forEach(view -> {
-			final Document<T> d;
+		IdentifierBloomFilter filter = bloomFilters.get(change.getView());
 
-			if (bson.get() == null)
-			{
-				documentObservers.forEach(o -> o.beforeEncoding(entity));
-				d = asDocument(view.name(), entity);
-				documentObservers.forEach(o -> o.afterEncoding(d));
-				documentObservers.forEach(o -> o.beforeUpdate(d));
-				bson.set(d.getObject());
-				updated.set(d);
-			}
-			else
-			{
-				d = asDocument(view.name(), entity, bson.get());
-			}
+		// Upserts register as DIRTY, so they may create the row too.
+		if (filter != null && (change.isNew() || change.isDirty()))
+		{
+			filter.add(normalize(change.getView(), change.getId()));
+		}
+	}
+
+	private boolean isDefinitelyAbsent(String viewName, Identifier id)
+	{
+		IdentifierBloomFilter filter = bloomFilters.get(viewName);
+		return (filter != null && !filter.mightContain(normalize(viewName, id)));
+	}
+
+	/**
+	 * @return the identifier with its components converted to the types of the view's key columns.
+	 * @see KeyPropertyConverter#normalize(KeyDefinition, Identifier)
+	 */
+	private Identifier normalize(String viewName, Identifier id)
+	{
+		return KeyPropertyConverter.normalize(statementFactory.keys(viewName), id);
+	}
+
+	private T fromCache(String viewName, Identifier id)
+	{
+		return (cache != null ? cache.get(viewName, normalize(viewName, id)) : null);
+	}
+
+	private T toCache(String viewName, Identifier id, T entity, long epoch)
+	{
+		// Skip caching if anything was invalidated while this entity was being read.
+		if (cache != null && entity != null && cacheEpoch.get() == epoch)
+		{
+			cache.put(viewName, normalize(viewName, id), entity);
+		}
+
+		return entity;
+	}
+
+	/**
+	 * Reads the identifiers at the given indexes, either with a single-row read or, for
+	 * identifiers sharing a partition, with one IN query. Entities are stored in results at
+	 * the same index as their identifier. Rows are matched back to identifiers using the key
+	 * columns, since Cassandra returns them in clustering order.
+	 */
+	private CompletableFuture<Void> readBatch(String viewName, KeyDefinition keys, List<Identifier> ids, List<Integer> batch, AtomicReferenceArray<T> results, long epoch)
+	{
+		if (batch.size() == 1)
+		{
+			int index = batch.get(0);
+			Identifier id = ids.get(index);
+			return session.executeAsync(statementFactory.read(viewName, id))
+				.thenCompose(rs -> assemble(asDocument(viewName, rs.one())))
+				.thenAccept(d -> results.set(index, asReadEntity(viewName, id, d, epoch)))
+				.toCompletableFuture();
+		}
+
+		Map<Identifier, List<Integer>> indexesById = new HashMap<>();
+		batch.forEach(i -> indexesById.computeIfAbsent(KeyPropertyConverter.normalize(keys, ids.get(i)), k -> new ArrayList<>()).add(i));
+		// Rows are consumed one page at a time, so this is never modified concurrently.
+		List<CompletableFuture<Void>> decoded = new ArrayList<>();
+		return session.executeAsync(statementFactory.readIn(viewName, new ArrayList<>(indexesById.keySet())))
+			.thenCompose(rs -> forEachRow(rs, row -> {
+				Identifier id = KeyPropertyConverter.normalize(keys, KeyPropertyConverter.identifier(keys, row));
+				List<Integer> indexes = indexesById.get(id);
+
+				if (indexes == null) return;
+
+				decoded.add(assemble(asDocument(viewName, row)).thenAccept(d -> {
+					T entity = asReadEntity(viewName, ids.get(indexes.get(0)), d, epoch);
+					indexes.forEach(i -> results.set(i, entity));
+				}));
+			}))
+			.thenCompose(v -> CompletableFuture.allOf(decoded.toArray(CompletableFuture[]::new)))
+			.toCompletableFuture();
+	}
 
-			uow.registerDirty(view.name(), d);
+	/**
+	 * Reads the index rows one at a time (an index key rarely shares a partition), then reads
+	 * the primary entities they refer to with readEachAsync(). Both steps are bounded by the
+	 * readIn concurrency.
+	 */
+	private CompletableFuture<List<Optional<T>>> readEachIndexed(String indexName, List<Identifier> ids)
+	{
+		return translate(
+			AsyncWindow.map(ids, readInConcurrency, id -> (isDefinitelyAbsent(indexName, id)
+					? CompletableFuture.<Identifier>completedFuture(null)
+					: session.executeAsync(statementFactory.read(indexName, id)).thenApply(rs -> primaryIdentifier(rs.one())).toCompletableFuture()))
+				.thenCompose(primaryIds -> readEachAsync(table.name(), primaryIds.stream().filter(Objects::nonNull).toList())
+					.thenApply(entities -> {
+						Iterator<Optional<T>> found = entities.iterator();
+						return primaryIds.stream()
+							.map(primaryId -> (primaryId != null ? found.next() : Optional.<T>empty()))
+							.toList();
+					})
+				)
+		);
+	}
+
+	/**
+	 * Resolves a page of Index rows to primary entities, preserving index order. Rows whose
+	 * payload can't be decoded, or that refer to a missing entity, are dropped.
+	 */
+	private CompletableFuture<List<T>> resolveIndexRows(Iterable<Row> rows)
+	{
+		List<Identifier> ids = new ArrayList<>();
+		rows.forEach(row -> {
+			Identifier id = primaryIdentifier(row);
+
+			if (id != null) ids.add(id);
 		});
+		return readInAsync(table.name(), ids);
+	}
+
+	private Identifier primaryIdentifier(Row row)
+	{
+		return (row != null ? indexCodec.decode(row.getByteBuffer(Columns.OBJECT)) : null);
+	}
+
+	private boolean isIndex(String viewName)
+	{
+		return indexNames.contains(viewName);
+	}
+
+	/**
+	 * Assembles the documents of a page of rows, then decodes each as it's consumed.
+	 */
+	private CompletableFuture<Iterator<T>> decodeRows(String viewName, Iterable<Row> rows)
+	{
+		return assembleRows(viewName, rows)
+			.thenApply(documents -> documents.stream()
+				.map(d -> {
+					T entity = decode(viewName, d);
+					entityObservers.forEach(o -> o.afterRead(entity));
+					return entity;
+				})
+				.iterator()
+			);
+	}
+
+	/**
+	 * Creates the documents of a page of rows. Those of chunked objects are assembled with at
+	 * most readInConcurrency documents read at once.
+	 */
+	private CompletableFuture<List<Document<T>>> assembleRows(String viewName, Iterable<Row> rows)
+	{
+		final List<Document<T>> documents = new ArrayList<>();
+		rows.forEach(row -> documents.add(asDocument(viewName, row)));
+
+		if (chunkStore == null) return CompletableFuture.completedFuture(documents);
+
+		return AsyncWindow.map(documents, readInConcurrency, this::assemble);
+	}
+
+	/**
+	 * Reads the chunks of a chunked document into its object. Other documents are returned as-is.
+	 */
+	private CompletableFuture<Document<T>> assemble(Document<T> d)
+	{
+		if (chunkStore == null || d == null) return CompletableFuture.completedFuture(d);
+
+		return chunkStore.assemble(d);
+	}
+
+	private CompletableFuture<Void> existsBatch(String viewName, KeyDefinition keys, List<Identifier> ids, List<Integer> batch, AtomicReferenceArray<Boolean> results)
+	{
+		if (batch.size() == 1)
+		{
+			int index = batch.get(0);
+			return session.executeAsync(statementFactory.exists(viewName, ids.get(index)))
+				.thenAccept(rs -> results.set(index, Boolean.valueOf(rs.one() != null)))
+				.toCompletableFuture();
+		}
+
+		Map<Identifier, List<Integer>> indexesById = new HashMap<>();
+		batch.forEach(i -> indexesById.computeIfAbsent(KeyPropertyConverter.normalize(keys, ids.get(i)), k -> new ArrayList<>()).add(i));
+		return session.executeAsync(statementFactory.existsIn(viewName, new ArrayList<>(indexesById.keySet())))
+			.thenCompose(rs -> forEachRow(rs, row -> {
+				List<Integer> indexes = indexesById.get(KeyPropertyConverter.normalize(keys, KeyPropertyConverter.identifier(keys, row)));
+
+				if (indexes != null) indexes.forEach(i -> results.set(i, Boolean.TRUE));
+			}))
+			.toCompletableFuture();
+	}
+
+	private T asReadEntity(String viewName, Identifier id, Document<T> d, long epoch)
+	{
+		T entity = toCache(viewName, id, decode(viewName, d), epoch);
+
+		if (entity != null) entityObservers.forEach(o -> o.afterRead(entity));
 
-		documentObservers.forEach(o -> o.afterUpdate(updated.get()));
 		return entity;
 	}
 
-	protected CassandraUnitOfWork<T> createUnitOfWork()
+	private CompletionStage<Void> forEachRow(AsyncResultSet rs, Consumer<Row> consumer)
 	{
-		return new CassandraUnitOfWork<>(session, statementFactory, unitOfWorkType);
+		rs.currentPage().forEach(consumer);
+
+		if (rs.hasMorePages())
+		{
+			return rs.fetchNextPage().thenCompose(next -> forEachRow(next, consumer));
+		}
+
+		return CompletableFuture.completedFuture(null);
 	}
 
 	private CompletableFuture<Document<T>> readAsDocument(Identifier id)
 	throws ItemNotFoundException
 	{
-		return readRow(table.name(), id)
-			.thenApply(row -> {
-				Document<T> document = asDocument(table.name(), row);
-				T entity = asEntity(table.name(), document);
-				// TODO: This is a hack. Need to load this from the database.
-				document.setIdentifier(entity.getIdentifier());
-				return document;				
-			});
+		return readDocument(table.name(), id);
+	}
+
+	private CompletableFuture<T> readEntity(String viewName, Identifier id)
+	{
+		if (isDefinitelyAbsent(viewName, id))
+		{
+			return CompletableFuture.failedFuture(new ItemNotFoundException(id.toString()));
+		}
+
+		T cached = fromCache(viewName, id);
+
+		if (cached != null) return CompletableFuture.completedFuture(cached);
+
+		if (readCoalescer == null)
+		{
+			return loadEntity(viewName, id);
+		}
+
+		return readCoalescer.read(viewName, normalize(viewName, id), () -> loadEntity(viewName, id));
+	}
+
+	private CompletableFuture<T> loadEntity(String viewName, Identifier id)
+	{
+		final long epoch = cacheEpoch.get();
+
+		if (isIndex(viewName))
+		{
+			return readRow(viewName, id)
+				.thenCompose(row -> {
+					Identifier primaryId = primaryIdentifier(row);
+
+					if (primaryId == null) throw new ItemNotFoundException(id.toString());
+
+					return readEntity(table.name(), primaryId);
+				})
+				.thenApply(entity -> toCache(viewName, id, entity, epoch));
+		}
+
+		return readDocument(viewName, id)
+			.thenApply(d -> toCache(viewName, id, decode(viewName, d), epoch));
+	}
+
+	/**
+	 * Reads and assembles the document. If its chunks were superseded while reading them,
+	 * which only happens if it was updated concurrently, it's read once more.
+	 */
+	private CompletableFuture<Document<T>> readDocument(String viewName, Identifier id)
+	{
+		final CompletableFuture<Document<T>> read = readRow(viewName, id)
+			.thenCompose(row -> assemble(asDocument(viewName, row)));
+
+		if (chunkStore == null) return read;
+
+		return read.exceptionallyCompose(t -> (unwrap(t) instanceof MissingChunkException
+			? readRow(viewName, id).thenCompose(row -> assemble(asDocument(viewName, row)))
+			: CompletableFuture.failedFuture(t)));
 	}
 
 	private CompletableFuture<Row> readRow(String viewName, Identifier id)
@@ -634,10 +1630,10 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 			.toCompletableFuture();
 	}
 
-	private CompletableFuture<PagedRows> readRows(String viewName, int limit, String cursor, Object... parameters)
+	private CompletableFuture<PagedRows> readRows(BoundStatement statement, Object... parameters)
 	{
 		documentObservers.forEach(o -> o.beforeRead(new Identifier(parameters)));
-		return session.executeAsync(statementFactory.readAll(viewName, limit, cursor, parameters))
+		return session.executeAsync(statement)
 			.thenApply(rs -> {
 				PagedRows rows = new PagedRows();
 				rows.cursor(Bytes.toHexString(rs.getExecutionInfo().getPagingState()));
@@ -647,14 +1643,111 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 			.toCompletableFuture();
 	}
 
-	private T asEntity(String viewName, Row row)
+	private LazyEntity<T> asLazyEntity(String viewName, Document<T> document)
 	{
-		Document<T> d = asDocument(viewName, row);
-
-		if (d == null) return null;
+		return new LazyEntity<>(document, d -> {
+			T entity = decode(viewName, d);
+			entityObservers.forEach(o -> o.afterRead(entity));
+			return entity;
+		});
+	}
 
+	/**
+	 * Encodes the entity for the primary table. This is the only serialization of a logical
+	 * write, so the encoding observers run once, on the primary document.
+	 */
+	private Document<T> encode(T entity)
+	{
+		documentObservers.forEach(o -> o.beforeEncoding(entity));
+		final Document<T> d = asDocument(table.name(), entity);
 		documentObservers.forEach(o -> o.afterEncoding(d));
-		return asEntity(viewName, d);
+
+		if (useContentHashing) ContentHash.stamp(d);
+
+		return d;
+	}
+
+	/**
+	 * Stamps the primary document with the time of this logical write, before its views and
+	 * indexes are derived from it, so they're all written with the same times. Whatever times
+	 * the encoded document carried are replaced: an update always gets a new updatedAt.
+	 *
+	 * @param createdAt the original creation time of an updated document, or null for now.
+	 */
+	private static void stampTimes(Document<?> primary, Date createdAt)
+	{
+		final Date now = new Date();
+		primary.setCreatedAt(createdAt != null ? createdAt : now);
+		primary.setUpdatedAt(now);
+	}
+
+	/**
+	 * @return the primary document's identifier encoded for storage in index rows, or null if there are no indexes.
+	 */
+	private byte[] indexPayload(Document<T> primary)
+	{
+		return (table.hasIndexes() ? indexCodec.encode(primary.getIdentifier()) : null);
+	}
+
+	/**
+	 * Moves a large object into chunks, if the table is chunked, and registers the chunk writes
+	 * to precede the document writes. The views then share the primary document's manifest.
+	 */
+	private void storeChunks(Document<T> primary, CassandraUnitOfWork<T> uow)
+	{
+		if (chunkStore == null) return;
+
+		final List<BoundStatement> writes = chunkStore.split(primary);
+
+		if (!writes.isEmpty()) registerChunks(primary, writes, uow);
+	}
+
+	private void registerChunks(Document<T> primary, List<BoundStatement> writes, CassandraUnitOfWork<T> uow)
+	{
+		final ChunkManifest manifest = ChunkManifest.of(primary);
+		uow.registerChunks(table.name(), manifest, writes, chunkStore.delete(manifest));
+	}
+
+	/**
+	 * Brings the original primary document into its stored, chunked form, so an unchanged
+	 * update compares equal to it, and deletes its chunks after the commit if the update
+	 * moves the object to another chunk set.
+	 */
+	private void supersedeChunks(Document<T> originalDocument, Document<T> originalPrimary, Document<T> updated, CassandraUnitOfWork<T> uow)
+	{
+		if (chunkStore == null) return;
+
+		// A stored manifest may differ from a recomputed one, e.g. if the chunk size changed.
+		ChunkManifest stored = ChunkManifest.of(originalDocument);
+		chunkStore.split(originalPrimary);
+
+		if (stored == null) stored = ChunkManifest.of(originalPrimary);
+
+		final ChunkManifest manifest = ChunkManifest.of(updated);
+
+		// Same chunk set, e.g. only the chunk size changed: its chunks were just rewritten.
+		if (stored != null && (manifest == null || !stored.chunkSet().equals(manifest.chunkSet())))
+		{
+			uow.registerChunkCleanup(stored, chunkStore.delete(stored));
+		}
+	}
+
+	/**
+	 * Derives the document for a table, view or index from the already-encoded primary document.
+	 * Views share its object bytes, indexes store its identifier, and all share its metadata and
+	 * timestamps. Only the keys are extracted per view.
+	 */
+	private Document<T> asViewDocument(AbstractTable view, T entity, Document<T> primary, byte[] indexPayload)
+	{
+		if (view == table) return primary;
+
+		final Document<T> d = (view.isIndex()
+			? asDocument(view.name(), entity, indexPayload)
+			: asDocument(view.name(), entity, primary.getObjectBuffer()));
+		d.setMetadata(primary.getMetadata());
+		d.setCreatedAt(primary.getCreatedAt());
+		d.setUpdatedAt(primary.getUpdatedAt());
+		return d;
 	}
 
 	private Document<T> asDocument(String viewName, Row row)
@@ -667,6 +1760,17 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 		return factoriesByTable.get(viewName).asPojo(d);
 	}
 
+	/**
+	 * Runs the afterEncoding observers on a document read from the table, then decodes it.
+	 */
+	private T decode(String viewName, Document<T> d)
+	{
+		if (d == null) return null;
+
+		documentObservers.forEach(o -> o.afterEncoding(d));
+		return asEntity(viewName, d);
+	}
+
 	protected Document<T> asDocument(T entity)
 	{
 		return asDocument(table.name(), entity);
@@ -684,25 +1788,84 @@ implements NoSchemaRepository<T>, SchemaWriter<T>
 		return factoriesByTable.get(viewName).asDocument(entity, bytes);
 	}
 
+	private Document<T> asDocument(String viewName, T entity, ByteBuffer buffer)
+	throws InvalidIdentifierException, KeyDefinitionException
+	{
+		return factoriesByTable.get(viewName).asDocument(entity, buffer);
+	}
+
+	private <R> R join(CompletableFuture<R> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch (CompletionException e)
+		{
+			handleException(e);
+		}
+
+		return null;
+	}
+
 	private void handleException(Exception e)
 	throws StorageException
 	{
-		if (e.getCause() instanceof DuplicateItemException duplicate)
+		throw asStorageException(e);
+	}
+
+	/**
+	 * Ensures a future returned by the asynchronous API fails with the same exceptions that
+	 * the synchronous API throws, instead of wrapped ones.
+	 */
+	private <R> CompletableFuture<R> translate(CompletableFuture<R> future)
+	{
+		return future.handle((result, t) -> {
+			if (t != null) throw asStorageException(t);
+			return result;
+		});
+	}
+
+	private RuntimeException asStorageException(Throwable t)
+	{
+		Throwable cause = unwrap(t);
+
+		if (cause instanceof DuplicateItemException duplicate)
+		{
+			return duplicate;
+		}
+
+		if (cause instanceof InvalidIdentifierException invalidId)
+		{
+			return invalidId;
+		}
+
+		if (cause instanceof ItemNotFoundException notFound)
 		{
-			throw duplicate;
+			return notFound;
 		}
 
-		if (e.getCause() instanceof InvalidIdentifierException invalidId)
+		if (cause instanceof KeyDefinitionException || cause instanceof StorageException)
 		{
-			throw invalidId;
+			return (RuntimeException) cause;
 		}
 
-		if (e.getCause() instanceof ItemNotFoundException notFound)
+		return new StorageException(cause);
+	}
+
+	/**
+	 * Unwraps CompletionExceptions and UnitOfWorkCommitExceptions to get to the actual cause.
+	 */
+	private static Throwable unwrap(Throwable t)
+	{
+		Throwable cause = t;
+
+		while ((cause instanceof CompletionException || cause instanceof UnitOfWorkCommitException) && cause.getCause() != null)
 		{
-			throw notFound;
+			cause = cause.getCause();
 		}
 
-		throw new StorageException(e.getCause());
+		return cause;
 	}
 
 	private class PagedRows
@@ -1,6 +1,7 @@
 package com.helenusdb.document;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.datastax.oss.driver.api.core.CqlSession;
@@ -13,16 +14,15 @@ import com.helenusdb.document.key.KeyDefinition;
 
 public class CassandraStatementFactory<T extends Identifiable>
 {
-	private final Map<String, KeyDefinition> keysByTable = new HashMap<>();
-    private final Map<String, CqlStatementFactory<T>> factoriesByTable = new HashMap<>();
+	// One statement factory per table, view and index. Each also holds that table's KeyDefinition.
+	private final Map<String, DocumentStatementFactory<T>> factoriesByTable = new HashMap<>();
 
 	public CassandraStatementFactory(CqlSession session, PrimaryTable table, ObjectCodec<T> codec)
 	{
 		super();
-		table.stream().forEach(view -> {
-			put(view.name(), new DocumentStatementFactory<>(session, view, codec));
-			put(view.name(), view.keys());				
-		});
+		table.stream().forEach(view ->
+			factoriesByTable.put(view.name(), new DocumentStatementFactory<>(session, view, codec))
+		);
 	}
 
 	public BoundStatement read(String tableName, Identifier id)
@@ -30,11 +30,41 @@ public class CassandraStatementFactory<T extends Identifiable>
 		return get(tableName).read(id);
 	}
 
+	/**
+	 * Reads many rows from a single partition of the table.
+	 * 
+	 * @param tableName the table, view or index name.
+	 * @param ids complete identifiers, all sharing the same partition key.
+	 */
+	public BoundStatement readIn(String tableName, List<Identifier> ids)
+	{
+		return get(tableName).readIn(ids);
+	}
+
 	public BoundStatement readAll(String tableName, int limit, String cursor, Object... parameters)
 	{
-		BoundStatement stmt = get(tableName)
-			.readAll(parameters)
-			.setPageSize(limit);
+		return page(get(tableName).readAll(parameters), limit, cursor);
+	}
+
+	/**
+	 * Like readAll() but selects only the key columns.
+	 */
+	public BoundStatement readIds(String tableName, int limit, String cursor, Object... parameters)
+	{
+		return page(get(tableName).readIds(parameters), limit, cursor);
+	}
+
+	/**
+	 * Like readAll() but selects the key columns and the document metadata, not the object.
+	 */
+	public BoundStatement readHeaders(String tableName, int limit, String cursor, Object... parameters)
+	{
+		return page(get(tableName).readHeaders(parameters), limit, cursor);
+	}
+
+	private BoundStatement page(BoundStatement statement, int limit, String cursor)
+	{
+		BoundStatement stmt = statement.setPageSize(limit);
 
 		if (cursor != null)
 		{
@@ -44,6 +74,21 @@ public class CassandraStatementFactory<T extends Identifiable>
 		return stmt;
 	}
 
+	/**
+	 * A statement that reads only the key columns of every row in the table.
+	 */
+	public BoundStatement scanKeys(String tableName, int pageSize)
+	{
+		return get(tableName)
+			.scanKeys()
+			.setPageSize(pageSize);
+	}
+
+	public KeyDefinition keys(String tableName)
+	{
+		return get(tableName).keys();
+	}
+
 	public BoundStatement delete(String tableName, Identifier id)
 	{
 		return get(tableName).delete(id);
@@ -64,24 +109,38 @@ public class CassandraStatementFactory<T extends Identifiable>
 		return get(tableName).exists(id);
 	}
 
-	public boolean isViewUnique(String tableName)
+	/**
+	 * Checks the existence of many rows in a single partition of the table. Returns the key
+	 * columns of each row that exists.
+	 * 
+	 * @param tableName the table, view or index name.
+	 * @param ids complete identifiers, all sharing the same partition key.
+	 */
+	public BoundStatement existsIn(String tableName, List<Identifier> ids)
 	{
-		return keysByTable.get(tableName).isUnique();
+		return get(tableName).existsIn(ids);
 	}
 
-	private void put(String tableName, CqlStatementFactory<T> factory)
+	public boolean isViewUnique(String tableName)
 	{
-		factoriesByTable.put(tableName, factory);
+		return get(tableName).keys().isUnique();
 	}
 
-	private void put(String tableName, KeyDefinition keys)
+	/**
+	 * Returns the statement factory for a single table, view or index. Callers issuing
+	 * several statements against the same table can look it up once, rather than by name
+	 * on every statement.
+	 * 
+	 * @param tableName the table, view or index name.
+	 */
+	public DocumentStatementFactory<T> factory(String tableName)
 	{
-		this.keysByTable.put(tableName, keys);
+		return get(tableName);
 	}
 
-	private CqlStatementFactory<T> get(String tableName)
+	private DocumentStatementFactory<T> get(String tableName)
 	{
-		CqlStatementFactory<T> factory = factoriesByTable.get(tableName);
+		DocumentStatementFactory<T> factory = factoriesByTable.get(tableName);
 
 //		if (factory == null) throw new InvalidViewNameException(tableName);
 
@@ -1,5 +1,7 @@
 package com.helenusdb.document;
 
+import java.util.List;
+
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.helenusdb.core.Identifier;
 
@@ -8,8 +10,13 @@ public interface CqlStatementFactory<T>
 	BoundStatement create(T entity);
 	BoundStatement delete(Identifier id);
 	BoundStatement exists(Identifier id);
+	BoundStatement existsIn(List<Identifier> ids);
 	BoundStatement update(T entity);
 	BoundStatement upsert(T entity);
 	BoundStatement read(Identifier id);
 	BoundStatement readAll(Object... parameters);
+	BoundStatement readIds(Object... parameters);
+	BoundStatement readHeaders(Object... parameters);
+	BoundStatement readIn(List<Identifier> ids);
+	BoundStatement scanKeys();
 }
@@ -0,0 +1,101 @@
+package com.helenusdb.document;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.helenusdb.core.Identifiable;
+import com.helenusdb.core.Identifier;
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * A LazyEntity wraps a Document read from the database and defers deserializing its object
+ * until get() is first called. The identifier (from the key columns), type, metadata and
+ * timestamps are available without decoding, so callers can filter on them cheaply and
+ * only pay for deserialization of the entities they keep.
+ * <p/>
+ * The decoded entity is memoized: get() decodes at most once, even when called concurrently,
+ * and entity observers run on that first decode. A null result is memoized too. A failed
+ * decode is not.
+ *
+ * @param <T> the type of the entity.
+ * @see CassandraRepository#readLazy(String, Identifier)
+ */
+public class LazyEntity<T extends Identifiable>
+{
+	private final Document<T> document;
+	private Function<Document<T>, T> decoder;
+	private T entity;
+	// Set once the entity has been decoded; the entity itself may be null.
+	private volatile boolean isDecoded;
+
+	public LazyEntity(Document<T> document, Function<Document<T>, T> decoder)
+	{
+		super();
+		this.document = Objects.requireNonNull(document);
+		this.decoder = Objects.requireNonNull(decoder);
+	}
+
+	/**
+	 * @return the entity, deserializing it on first call.
+	 */
+	public T get()
+	{
+		if (!isDecoded)
+		{
+			synchronized (this)
+			{
+				if (!isDecoded)
+				{
+					entity = decoder.apply(document);
+					decoder = null;
+					isDecoded = true;
+				}
+			}
+		}
+
+		return entity;
+	}
+
+	public boolean isDecoded()
+	{
+		return isDecoded;
+	}
+
+	/**
+	 * @return the Identifier of the row read, in terms of the keys of the table or view it was read from.
+	 */
+	public Identifier getIdentifier()
+	{
+		return document.getIdentifier();
+	}
+
+	public String getType()
+	{
+		return document.getType();
+	}
+
+	public Map<String, String> getMetadata()
+	{
+		return document.getMetadata();
+	}
+
+	public Date getCreatedAt()
+	{
+		return document.getCreatedAt();
+	}
+
+	public Date getUpdatedAt()
+	{
+		return document.getUpdatedAt();
+	}
+
+	/**
+	 * @return the underlying document, including the serialized object.
+	 */
+	public Document<T> getDocument()
+	{
+		return document;
+	}
+}
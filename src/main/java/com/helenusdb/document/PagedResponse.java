@@ -4,9 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import com.helenusdb.core.Identifiable;
-
-public class PagedResponse<T extends Identifiable>
+public class PagedResponse<T>
 {
 	private String cursor;
 	private List<T> items;
@@ -0,0 +1,67 @@
+package com.helenusdb.document;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
+
+/**
+ * Groups identifiers into batches that can each be queried with a single statement. Complete
+ * identifiers that share a partition key are grouped together (up to a maximum batch size) so
+ * they can be queried with an IN clause on the clustering key. Every other identifier is a
+ * batch of its own.
+ * <p/>
+ * Batches hold the positions of the identifiers in the original list, so results can be placed
+ * back in input order.
+ */
+public final class PartitionBatches
+{
+	// The most clustering key values we place in a single IN clause, by default.
+	public static final int MAX_IN_CLAUSE_SIZE = 100;
+
+	private PartitionBatches()
+	{
+		// prevents instantiation.
+	}
+
+	/**
+	 * @param keys the key definition of the table being queried.
+	 * @param ids the identifiers.
+	 * @param positions the positions in ids to batch. Other identifiers are ignored.
+	 * @param maxBatchSize the most identifiers in a single batch.
+	 * @return batches of positions in ids. Partition groups keep their first-seen order, after the single-identifier batches.
+	 */
+	public static List<List<Integer>> of(KeyDefinition keys, List<Identifier> ids, List<Integer> positions, int maxBatchSize)
+	{
+		final List<List<Integer>> batches = new ArrayList<>();
+		final Map<List<Object>, List<Integer>> partitions = new LinkedHashMap<>();
+
+		for (Integer i : positions)
+		{
+			Identifier id = ids.get(i);
+
+			if (keys.hasClusteringKey() && id.size() == keys.size())
+			{
+				List<Object> partitionKey = new ArrayList<>(KeyPropertyConverter.normalize(keys, id).components().subList(0, keys.partitionKeySize()));
+				partitions.computeIfAbsent(partitionKey, k -> new ArrayList<>()).add(i);
+			}
+			else
+			{
+				batches.add(List.of(i));
+			}
+		}
+
+		partitions.values().forEach(partition -> {
+			for (int i = 0; i < partition.size(); i += maxBatchSize)
+			{
+				batches.add(partition.subList(i, Math.min(i + maxBatchSize, partition.size())));
+			}
+		});
+
+		return batches;
+	}
+}
@@ -0,0 +1,97 @@
+package com.helenusdb.document;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+
+/**
+ * Iterates the entities over all the pages of a result set. When iteration of a page begins,
+ * the next page is fetched and handed to the reader, which turns a page into entities. So at
+ * most two pages are held at once and no page is fetched before iteration reaches the one
+ * before it.
+ * <p/>
+ * Failures reading a page are thrown from hasNext() or next(), translated by the given function.
+ *
+ * @param <T> the type of the entities.
+ * @see CassandraRepository#streamAll(String, int, Object...)
+ */
+class PrefetchingIterator<T>
+implements Iterator<T>
+{
+	private Function<AsyncResultSet, CompletableFuture<Iterator<T>>> reader;
+	private Function<Throwable, RuntimeException> failures;
+	private Iterator<T> entities = Collections.emptyIterator();
+	private CompletableFuture<AsyncResultSet> nextPage;
+	private CompletableFuture<Iterator<T>> nextEntities;
+
+	/**
+	 * @param first the first page of the result set.
+	 * @param reader turns a page into entities.
+	 * @param failures translates the failure of a page into the exception to throw.
+	 */
+	PrefetchingIterator(AsyncResultSet first, Function<AsyncResultSet, CompletableFuture<Iterator<T>>> reader, Function<Throwable, RuntimeException> failures)
+	{
+		super();
+		this.reader = reader;
+		this.failures = failures;
+		prefetch(CompletableFuture.completedFuture(first));
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		while (!entities.hasNext())
+		{
+			if (nextPage == null) return false;
+
+			AsyncResultSet rs = join(nextPage);
+			entities = join(nextEntities);
+			prefetch(rs.hasMorePages() ? rs.fetchNextPage().toCompletableFuture() : null);
+		}
+
+		return true;
+	}
+
+	@Override
+	public T next()
+	{
+		if (!hasNext()) throw new NoSuchElementException();
+
+		return entities.next();
+	}
+
+	/**
+	 * Abandons the iteration, cancelling the prefetched page.
+	 */
+	void close()
+	{
+		if (nextEntities != null) nextEntities.cancel(false);
+		if (nextPage != null) nextPage.cancel(false);
+
+		prefetch(null);
+		entities = Collections.emptyIterator();
+	}
+
+	private void prefetch(CompletableFuture<AsyncResultSet> page)
+	{
+		this.nextPage = page;
+		this.nextEntities = (page != null ? page.thenCompose(reader) : null);
+	}
+
+	private <R> R join(CompletableFuture<R> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch (CompletionException e)
+		{
+			throw failures.apply(e);
+		}
+	}
+}
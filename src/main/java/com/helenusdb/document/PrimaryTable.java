@@ -35,8 +35,12 @@ public class PrimaryTable
 extends AbstractTable
 {
 	private static final String DEFAULT_KEYS = "id:uuid unique";
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
 	private List<View> views;
 	private List<Index> indexes;
+	// Objects larger than this are stored in chunks. Zero disables chunking.
+	private int chunkThreshold;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
 
 	public PrimaryTable()
 	{
@@ -196,6 +200,52 @@ extends AbstractTable
 		return (hasIndexes() ? indexes.size() : 0);
 	}
 
+	/**
+	 * Stores serialized objects larger than the threshold in a side table, &lt;table&gt;_chunks,
+	 * split into chunks of DEFAULT_CHUNK_SIZE bytes. The rows of the table and its views then
+	 * hold a manifest in their metadata instead of the object.
+	 * 
+	 * @param threshold the largest object, in bytes, stored inline.
+	 * @return this table.
+	 */
+	public PrimaryTable withChunking(int threshold)
+	{
+		return withChunking(threshold, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Stores serialized objects larger than the threshold in chunks of chunkSize bytes.
+	 * 
+	 * @param threshold the largest object, in bytes, stored inline.
+	 * @param chunkSize the size, in bytes, of each chunk but the last.
+	 * @return this table.
+	 * @see #withChunking(int)
+	 */
+	public PrimaryTable withChunking(int threshold, int chunkSize)
+	{
+		if (threshold < 1) throw new IllegalArgumentException("Chunk threshold must be positive: " + threshold);
+		if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+
+		this.chunkThreshold = threshold;
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	public boolean isChunked()
+	{
+		return (chunkThreshold > 0);
+	}
+
+	public int chunkThreshold()
+	{
+		return chunkThreshold;
+	}
+
+	public int chunkSize()
+	{
+		return chunkSize;
+	}
+
 	/**
 	 * A stream of the primary table with all its views and indexes.
 	 * 
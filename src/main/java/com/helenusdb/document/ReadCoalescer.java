@@ -0,0 +1,78 @@
+package com.helenusdb.document;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.helenusdb.core.Identifier;
+
+/**
+ * A ReadCoalescer collapses concurrent reads of the same key into a single in-flight request
+ * (a.k.a. "single-flight"). The first caller for a given table name and Identifier becomes the
+ * leader and performs the actual read. Any caller that arrives while the leader's read is still
+ * outstanding receives the leader's future instead of issuing its own query.
+ * <p/>
+ * Once the in-flight read completes (successfully or not) the key is released, so subsequent reads
+ * go back to the database. Nothing is cached beyond the lifetime of the in-flight request.
+ * <p/>
+ * Keys are compared with Identifier.equals(), so identifiers must be normalized to the types of
+ * their key columns (see KeyPropertyConverter.normalize()) for reads by equal keys of different
+ * Java types, e.g. an Instant and a Date, to be coalesced. CassandraRepository does this.
+ * <p/>
+ * Note that all coalesced callers receive the same result instance. Callers must treat the result
+ * as read-only or copy it before mutating.
+ *
+ * @param <T> the type of the value being read.
+ * @see CassandraRepository#withReadCoalescing()
+ */
+public class ReadCoalescer<T>
+{
+	private record Key(String table, Identifier id) {}
+
+	// The reads that are currently outstanding, by table name and identifier.
+	private final Map<Key, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the in-flight future for the table and identifier, if there is one. Otherwise,
+	 * invokes the loader and shares its result with any concurrent callers for the same key.
+	 *
+	 * @param table the name of the table (or view) being read.
+	 * @param id the identifier being read.
+	 * @param loader performs the actual read. Only invoked by the leader.
+	 * @return a future that completes with the result of the (possibly shared) read.
+	 */
+	public CompletableFuture<T> read(String table, Identifier id, Supplier<CompletableFuture<T>> loader)
+	{
+		final Key key = new Key(table, id);
+		final CompletableFuture<T> promise = new CompletableFuture<>();
+		final CompletableFuture<T> existing = inFlight.putIfAbsent(key, promise);
+
+		if (existing != null) return existing;
+
+		try
+		{
+			loader.get().whenComplete((value, t) -> {
+				inFlight.remove(key, promise);
+
+				if (t != null) promise.completeExceptionally(t);
+				else promise.complete(value);
+			});
+		}
+		catch (RuntimeException e)
+		{
+			inFlight.remove(key, promise);
+			promise.completeExceptionally(e);
+		}
+
+		return promise;
+	}
+
+	/**
+	 * @return the number of reads currently in flight.
+	 */
+	public int size()
+	{
+		return inFlight.size();
+	}
+}
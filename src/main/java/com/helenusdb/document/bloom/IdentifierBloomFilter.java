@@ -0,0 +1,255 @@
+package com.helenusdb.document.bloom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.helenusdb.core.Identifier;
+
+/**
+ * An in-memory Bloom filter of the Identifiers known to exist in a table. A negative answer from
+ * {@link #mightContain(Identifier)} is definitive, so reads and existence checks for absent ids can
+ * be answered without a round trip to Cassandra. A positive answer only means the id may exist.
+ * <p/>
+ * A filter is not consulted until it is marked ready, typically after it has been populated by a
+ * key-only scan of the table (see CassandraRepository.populateBloomFilter()) or loaded from disk.
+ * Additions are thread safe. Removal is not supported; a deleted id simply remains a false positive
+ * until the filter is rebuilt.
+ * <p/>
+ * Identifiers are hashed as given, so they must be normalized for the table (see
+ * KeyPropertyConverter.normalize()) for equal keys of different Java types to match, e.g. an
+ * Integer and a Long for a bigint column. CassandraRepository does this.
+ * <p/>
+ * IMPORTANT: the filter only learns about ids written through the repository that owns it. It must
+ * only be used where that repository is the sole writer of the table (or rebuilt often enough that
+ * ids written elsewhere are acceptable to report as absent in the meantime).
+ */
+public class IdentifierBloomFilter
+{
+	private static final int MAGIC = 0x49424631; // "IBF1"
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long SECOND_SEED = 0x9e3779b97f4a7c15L;
+
+	private final AtomicLongArray words;
+	private final long bitCount;
+	private final int hashCount;
+	private volatile boolean isReady;
+
+	/**
+	 * Creates an empty filter sized for the expected number of identifiers at the given false-positive rate.
+	 * 
+	 * @param expectedInsertions the number of identifiers the table is expected to hold.
+	 * @param falsePositiveRate the desired false-positive probability (e.g. 0.01 for 1%).
+	 */
+	public IdentifierBloomFilter(long expectedInsertions, double falsePositiveRate)
+	{
+		this(optimalBitCount(expectedInsertions, falsePositiveRate),
+			optimalHashCount(expectedInsertions, optimalBitCount(expectedInsertions, falsePositiveRate)));
+	}
+
+	private IdentifierBloomFilter(long bitCount, int hashCount)
+	{
+		super();
+		int wordCount = (int) Math.min(Integer.MAX_VALUE - 8L, (bitCount + 63) / 64);
+		this.words = new AtomicLongArray(wordCount);
+		this.bitCount = wordCount * 64L;
+		this.hashCount = hashCount;
+	}
+
+	/**
+	 * Records an identifier as present.
+	 */
+	public void add(Identifier id)
+	{
+		byte[] bytes = bytesOf(id);
+		long h1 = hash(bytes, FNV_OFFSET_BASIS);
+		long h2 = hash(bytes, FNV_OFFSET_BASIS ^ SECOND_SEED);
+
+		for (int i = 0; i < hashCount; i++)
+		{
+			setBit(index(h1, h2, i));
+		}
+	}
+
+	/**
+	 * @return false if the identifier is definitely not present. True if it might be, or if the filter is not ready.
+	 */
+	public boolean mightContain(Identifier id)
+	{
+		if (!isReady) return true;
+
+		byte[] bytes = bytesOf(id);
+		long h1 = hash(bytes, FNV_OFFSET_BASIS);
+		long h2 = hash(bytes, FNV_OFFSET_BASIS ^ SECOND_SEED);
+
+		for (int i = 0; i < hashCount; i++)
+		{
+			if (!getBit(index(h1, h2, i))) return false;
+		}
+
+		return true;
+	}
+
+	public boolean isReady()
+	{
+		return isReady;
+	}
+
+	/**
+	 * Marks the filter as complete so that negative answers are trusted.
+	 */
+	public IdentifierBloomFilter ready()
+	{
+		this.isReady = true;
+		return this;
+	}
+
+	/**
+	 * Clears all bits and marks the filter as not ready, e.g. prior to a rebuild.
+	 */
+	public void reset()
+	{
+		this.isReady = false;
+
+		for (int i = 0; i < words.length(); i++)
+		{
+			words.set(i, 0L);
+		}
+	}
+
+	public long bitCount()
+	{
+		return bitCount;
+	}
+
+	public int hashCount()
+	{
+		return hashCount;
+	}
+
+	/**
+	 * Writes this filter to the given file, replacing it atomically.
+	 * 
+	 * @param file the destination file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeTo(Path file)
+	throws IOException
+	{
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(hashCount);
+			out.writeInt(words.length());
+
+			for (int i = 0; i < words.length(); i++)
+			{
+				out.writeLong(words.get(i));
+			}
+		}
+
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a filter previously written with {@link #writeTo(Path)}. The returned filter is ready.
+	 * 
+	 * @param file the file to read.
+	 * @return a ready IdentifierBloomFilter.
+	 * @throws IOException if the file cannot be read or is not a filter.
+	 */
+	public static IdentifierBloomFilter readFrom(Path file)
+	throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			if (in.readInt() != MAGIC) throw new IOException("Not a bloom filter file: " + file);
+
+			int hashCount = in.readInt();
+			int wordCount = in.readInt();
+			IdentifierBloomFilter filter = new IdentifierBloomFilter(wordCount * 64L, hashCount);
+
+			for (int i = 0; i < wordCount; i++)
+			{
+				filter.words.set(i, in.readLong());
+			}
+
+			return filter.ready();
+		}
+	}
+
+	private long index(long h1, long h2, int i)
+	{
+		return Math.floorMod(h1 + i * h2, bitCount);
+	}
+
+	private void setBit(long index)
+	{
+		int word = (int) (index >>> 6);
+		long mask = 1L << index;
+		long current;
+
+		do
+		{
+			current = words.get(word);
+			if ((current & mask) != 0) return;
+		}
+		while (!words.compareAndSet(word, current, current | mask));
+	}
+
+	private boolean getBit(long index)
+	{
+		return (words.get((int) (index >>> 6)) & (1L << index)) != 0;
+	}
+
+	// Hashes timestamps in their ISO-8601 UTC form, as Date.toString() depends on the default time zone.
+	private static byte[] bytesOf(Identifier id)
+	{
+		Identifier key = new Identifier();
+		id.components().forEach(c -> key.add(c instanceof Date d ? d.toInstant() : c));
+		return key.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	// FNV-1a, finished with the MurmurHash3 64-bit mixer for better avalanche.
+	private static long hash(byte[] bytes, long seed)
+	{
+		long h = seed;
+
+		for (byte b : bytes)
+		{
+			h ^= (b & 0xff);
+			h *= FNV_PRIME;
+		}
+
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+
+	private static long optimalBitCount(long n, double p)
+	{
+		if (n <= 0) n = 1;
+		if (p <= 0 || p >= 1) throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		return Math.max(64L, (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2))));
+	}
+
+	private static int optimalHashCount(long n, long m)
+	{
+		if (n <= 0) n = 1;
+		return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+	}
+}
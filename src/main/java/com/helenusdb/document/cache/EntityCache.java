@@ -0,0 +1,37 @@
+package com.helenusdb.document.cache;
+
+import com.helenusdb.core.Identifier;
+
+/**
+ * An EntityCache holds decoded entities by table (or view) name and Identifier so that reads
+ * can be served without a round trip to Cassandra or a pass through the ObjectCodec.
+ * <p/>
+ * Implementations must be thread safe. The repository invalidates entries for every table, view
+ * and index touched by a successfully-committed UnitOfWork. Identifiers are normalized to the
+ * types of their key columns before they reach the cache, so they can be compared with equals().
+ *
+ * @param <T> the type of entity being cached.
+ * @see LruEntityCache
+ */
+public interface EntityCache<T>
+{
+	/**
+	 * Returns the cached entity for the table and identifier, or null if absent or expired.
+	 */
+	T get(String table, Identifier id);
+
+	/**
+	 * Caches the entity under the table and identifier, replacing any existing entry.
+	 */
+	void put(String table, Identifier id, T entity);
+
+	/**
+	 * Removes the entry for the table and identifier, if present.
+	 */
+	void invalidate(String table, Identifier id);
+
+	/**
+	 * Removes all entries.
+	 */
+	void clear();
+}
@@ -0,0 +1,154 @@
+package com.helenusdb.document.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import com.helenusdb.core.Identifier;
+
+/**
+ * A bounded, least-recently-used EntityCache with a time-to-live on each entry.
+ * <p/>
+ * The cache is bounded by total weight. By default each entry weighs one, making the bound an
+ * entry count. Supply a weigher (e.g. the serialized size of the entity) to bound by weight instead.
+ * When the bound is exceeded, the least-recently-accessed entries are evicted. Entries older than
+ * the time-to-live are treated as absent and removed on access.
+ * <p/>
+ * Entities are returned as-is (no copy), so callers must treat them as read-only.
+ *
+ * @param <T> the type of entity being cached.
+ */
+public class LruEntityCache<T>
+implements EntityCache<T>
+{
+	private record Key(String table, Identifier id) {}
+
+	private record Entry<T>(T entity, long weight, long expiresAt) {}
+
+	private final Map<Key, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final long maxWeight;
+	private final long ttlNanos;
+	private final ToLongFunction<T> weigher;
+	private final LongSupplier ticker;
+	private long weight;
+
+	/**
+	 * Creates a cache bounded by entry count.
+	 * 
+	 * @param maxEntries the maximum number of entries to retain.
+	 * @param ttl how long an entry remains valid after it is cached.
+	 */
+	public LruEntityCache(long maxEntries, Duration ttl)
+	{
+		this(maxEntries, ttl, e -> 1L);
+	}
+
+	/**
+	 * Creates a cache bounded by total weight.
+	 * 
+	 * @param maxWeight the maximum total weight of all entries.
+	 * @param ttl how long an entry remains valid after it is cached.
+	 * @param weigher computes the weight of an entity. Must be non-negative.
+	 */
+	public LruEntityCache(long maxWeight, Duration ttl, ToLongFunction<T> weigher)
+	{
+		this(maxWeight, ttl, weigher, System::nanoTime);
+	}
+
+	LruEntityCache(long maxWeight, Duration ttl, ToLongFunction<T> weigher, LongSupplier ticker)
+	{
+		super();
+		if (maxWeight <= 0) throw new IllegalArgumentException("maxWeight must be positive");
+		this.maxWeight = maxWeight;
+		this.ttlNanos = Objects.requireNonNull(ttl).toNanos();
+		this.weigher = Objects.requireNonNull(weigher);
+		this.ticker = Objects.requireNonNull(ticker);
+	}
+
+	@Override
+	public synchronized T get(String table, Identifier id)
+	{
+		Key key = new Key(table, id);
+		Entry<T> entry = entries.get(key);
+
+		if (entry == null) return null;
+
+		if (entry.expiresAt() - ticker.getAsLong() <= 0)
+		{
+			remove(key);
+			return null;
+		}
+
+		return entry.entity();
+	}
+
+	@Override
+	public synchronized void put(String table, Identifier id, T entity)
+	{
+		if (entity == null) return;
+
+		long entryWeight = weigher.applyAsLong(entity);
+
+		// Never cache something that can't fit.
+		if (entryWeight > maxWeight)
+		{
+			remove(new Key(table, id));
+			return;
+		}
+
+		Entry<T> previous = entries.put(new Key(table, id), new Entry<>(entity, entryWeight, ticker.getAsLong() + ttlNanos));
+		if (previous != null) weight -= previous.weight();
+		weight += entryWeight;
+		evict();
+	}
+
+	@Override
+	public synchronized void invalidate(String table, Identifier id)
+	{
+		remove(new Key(table, id));
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * @return the number of entries currently cached (including any not-yet-removed expired ones).
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the total weight of the entries currently cached.
+	 */
+	public synchronized long weight()
+	{
+		return weight;
+	}
+
+	private void remove(Key key)
+	{
+		Entry<T> removed = entries.remove(key);
+		if (removed != null) weight -= removed.weight();
+	}
+
+	private void evict()
+	{
+		Iterator<Entry<T>> eldest = entries.values().iterator();
+
+		while (weight > maxWeight && eldest.hasNext())
+		{
+			weight -= eldest.next().weight();
+			eldest.remove();
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package com.helenusdb.document.compression;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.helenusdb.document.PrimaryTable;
+import com.helenusdb.document.document.DocumentSchemaProvider.Columns;
+
+/**
+ * Keeps a PrimaryTable's compression dictionaries in a side table, &lt;table&gt;_dictionaries, and
+ * caches them locally. The dictionary with the highest id is the current one, once it's active.
+ * Dictionaries are never updated or deleted, because stored payloads refer to them by id.
+ * <p/>
+ * current() and get(int) are called while encoding and decoding, which may happen on the
+ * driver's I/O threads, so they only read the cache and never query. Call refresh() before
+ * using the store, e.g. at startup, and keep it up to date with withRefresh():
+ * 
+ * <pre>
+ * CassandraDictionaryStore store = new CassandraDictionaryStore(session, table);
+ * store.refresh();
+ * store.withRefresh(scheduler, Duration.ofMinutes(5));
+ * </pre>
+ * 
+ * To add a dictionary, train it from a sample of the table's documents and save it:
+ * 
+ * <pre>
+ * DictionaryTrainer trainer = new DictionaryTrainer();
+ * store.sample(5000).map(codec::decompress).forEach(trainer::addSample);
+ * store.save(trainer.train(store.nextId()));
+ * </pre>
+ * 
+ * Other processes only see the new dictionary after their next refresh, and until then can't
+ * decompress payloads compressed with it. So a dictionary only becomes current, in any process,
+ * once its activation delay has passed since it was saved: by then every process refreshing at
+ * least as often has loaded it. withRefresh() sets the delay to twice the refresh period, which
+ * also covers the time a refresh takes and some clock skew between processes. A process that
+ * saves dictionaries without refreshing should set it with withActivationDelay(). Should a
+ * payload still refer to a dictionary that isn't loaded, the first read of it fails and fetches
+ * the dictionary in the background, so it's available to later reads.
+ */
+public class CassandraDictionaryStore
+implements DictionaryStore
+{
+	private static final String SELECT_ALL = "select %s, %s, %s from %s.%s";
+	private static final String SELECT_ONE = "select %s, %s from %s.%s where %s = ?";
+	private static final String INSERT = "insert into %s.%s (%s, %s, %s) values (?, ?, ?) if not exists";
+	private static final String SAMPLE = "select %s from %s.%s limit ?";
+
+	private final CqlSession session;
+	private final PrimaryTable table;
+	private final DictionarySchemaProvider schema;
+	private final Map<Integer, CompressionDictionary> dictionaries = new ConcurrentHashMap<>();
+	private volatile CompressionDictionary current;
+	// When the dictionaries that aren't active yet become current, by dictionary id.
+	private final NavigableMap<Integer, Instant> activations = new ConcurrentSkipListMap<>();
+	// How long after it was saved a dictionary becomes current.
+	private volatile Duration activationDelay = Duration.ZERO;
+	// Dictionary ids being fetched in the background, so each is only fetched once at a time.
+	private final Set<Integer> fetching = ConcurrentHashMap.newKeySet();
+	// The periodic refresh, if any.
+	private ScheduledFuture<?> scheduledRefresh;
+
+	public CassandraDictionaryStore(CqlSession session, PrimaryTable table)
+	{
+		super();
+		this.session = session;
+		this.table = table;
+		this.schema = new DictionarySchemaProvider(table.keyspace(), table.asTableName());
+	}
+
+	public void ensureTable()
+	{
+		schema.create(session);
+	}
+
+	public void dropTable()
+	{
+		schema.drop(session);
+	}
+
+	/**
+	 * Refreshes the dictionaries in the background every period, until close() is called. Raises
+	 * the activation delay to twice the period, if it's shorter.
+	 * 
+	 * @param scheduler runs the refresh.
+	 * @param period the time between refreshes.
+	 * @return this store.
+	 */
+	public synchronized CassandraDictionaryStore withRefresh(ScheduledExecutorService scheduler, Duration period)
+	{
+		if (scheduledRefresh != null) scheduledRefresh.cancel(false);
+
+		Duration delay = period.multipliedBy(2);
+
+		if (delay.compareTo(activationDelay) > 0) this.activationDelay = delay;
+
+		this.scheduledRefresh = scheduler.scheduleWithFixedDelay(this::refreshAsync, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+		return this;
+	}
+
+	/**
+	 * Sets how long after it was saved a dictionary becomes current: at least the refresh period
+	 * of every process that reads the table. Defaults to zero. Dictionaries already loaded keep
+	 * the activation they had.
+	 * 
+	 * @param delay the time from saving a dictionary until it's used to compress.
+	 * @return this store.
+	 */
+	public CassandraDictionaryStore withActivationDelay(Duration delay)
+	{
+		if (delay.isNegative()) throw new IllegalArgumentException("Activation delay must be non-negative: " + delay);
+
+		this.activationDelay = delay;
+		return this;
+	}
+
+	/**
+	 * Stops the periodic refresh started with withRefresh().
+	 */
+	public synchronized void close()
+	{
+		if (scheduledRefresh != null)
+		{
+			scheduledRefresh.cancel(false);
+			scheduledRefresh = null;
+		}
+	}
+
+	/**
+	 * Never queries.
+	 * 
+	 * @return the newest active dictionary loaded, or null if there is none or refresh() hasn't been called.
+	 */
+	@Override
+	public CompressionDictionary current()
+	{
+		if (!activations.isEmpty()) activate(Instant.now());
+
+		return current;
+	}
+
+	/**
+	 * Never queries. If the dictionary hasn't been loaded, it's fetched in the background and
+	 * this call returns null, failing the decompression at hand. Later calls find it.
+	 */
+	@Override
+	public CompressionDictionary get(int id)
+	{
+		CompressionDictionary dictionary = dictionaries.get(id);
+
+		if (dictionary == null) fetchAsync(id);
+
+		return dictionary;
+	}
+
+	/**
+	 * Reloads every dictionary from the side table, making the newest active one current. Blocks,
+	 * so don't call it on a driver I/O thread.
+	 */
+	public void refresh()
+	{
+		refreshAsync().toCompletableFuture().join();
+	}
+
+	/**
+	 * Reloads every dictionary from the side table, making the newest active one current.
+	 * 
+	 * @return a stage that completes when every page has been read.
+	 */
+	public CompletionStage<Void> refreshAsync()
+	{
+		return session.executeAsync(
+			String.format(SELECT_ALL, DictionarySchemaProvider.Columns.ID, DictionarySchemaProvider.Columns.DICTIONARY, DictionarySchemaProvider.Columns.CREATED_AT, table.keyspace(), schema.tableName())
+		).thenCompose(this::cacheAll);
+	}
+
+	private CompletionStage<Void> cacheAll(AsyncResultSet rs)
+	{
+		for (Row row : rs.currentPage())
+		{
+			if (row.isNull(1)) continue;
+
+			cache(new CompressionDictionary(row.getInt(0), Compressor.toArray(row.getByteBuffer(1))), row.getInstant(2));
+		}
+
+		if (rs.hasMorePages()) return rs.fetchNextPage().thenCompose(this::cacheAll);
+
+		return CompletableFuture.completedFuture(null);
+	}
+
+	private void fetchAsync(int id)
+	{
+		if (!fetching.add(id)) return;
+
+		session.executeAsync(SimpleStatement.newInstance(
+			String.format(SELECT_ONE, DictionarySchemaProvider.Columns.DICTIONARY, DictionarySchemaProvider.Columns.CREATED_AT, table.keyspace(), schema.tableName(), DictionarySchemaProvider.Columns.ID), id)
+		).whenComplete((rs, t) -> {
+			Row row = (t == null ? rs.one() : null);
+
+			if (row != null && !row.isNull(0)) cache(new CompressionDictionary(id, Compressor.toArray(row.getByteBuffer(0))), row.getInstant(1));
+
+			fetching.remove(id);
+		});
+	}
+
+	/**
+	 * Stores a new dictionary, which becomes the current one after the activation delay if it
+	 * has the highest id.
+	 * 
+	 * @param dictionary a dictionary with an id that hasn't been used before.
+	 * @throws IllegalStateException if the id is already in use.
+	 */
+	public void save(CompressionDictionary dictionary)
+	{
+		Instant createdAt = Instant.now();
+		boolean wasApplied = session.execute(SimpleStatement.newInstance(
+			String.format(INSERT, table.keyspace(), schema.tableName(), DictionarySchemaProvider.Columns.ID, DictionarySchemaProvider.Columns.DICTIONARY, DictionarySchemaProvider.Columns.CREATED_AT),
+			dictionary.id(), ByteBuffer.wrap(dictionary.content()), createdAt)
+		).wasApplied();
+
+		if (!wasApplied) throw new IllegalStateException("Dictionary id already in use: " + dictionary.id());
+
+		cache(dictionary, createdAt);
+	}
+
+	/**
+	 * @return one more than the highest dictionary id known to this store, active or not.
+	 */
+	public int nextId()
+	{
+		return dictionaries.keySet().stream()
+			.mapToInt(Integer::intValue)
+			.max()
+			.orElse(0) + 1;
+	}
+
+	/**
+	 * Reads the stored object column of up to limit rows of the primary table, as training samples.
+	 * Payloads written by a CompressingObjectCodec must be decompressed before training on them.
+	 * 
+	 * @param limit the maximum number of rows to read.
+	 * @return the stored objects.
+	 */
+	public Stream<ByteBuffer> sample(int limit)
+	{
+		Iterable<Row> rows = session.execute(SimpleStatement.newInstance(
+			String.format(SAMPLE, Columns.OBJECT, table.keyspace(), table.asTableName()), limit)
+		);
+
+		return StreamSupport.stream(rows.spliterator(), false)
+			.filter(row -> !row.isNull(0))
+			.map(row -> row.getByteBuffer(0));
+	}
+
+	/**
+	 * Caches the dictionary and makes it current once it's active, if it has the highest id.
+	 * 
+	 * @param createdAt when the dictionary was saved. If null, it's active immediately.
+	 */
+	private synchronized CompressionDictionary cache(CompressionDictionary dictionary, Instant createdAt)
+	{
+		if (dictionaries.putIfAbsent(dictionary.id(), dictionary) != null) return dictionary;
+
+		Instant now = Instant.now();
+		Instant activatesAt = (createdAt != null ? createdAt.plus(activationDelay) : now);
+
+		if (activatesAt.isAfter(now))
+		{
+			activations.put(dictionary.id(), activatesAt);
+		}
+		else
+		{
+			makeCurrent(dictionary);
+		}
+
+		return dictionary;
+	}
+
+	/**
+	 * Makes the dictionaries whose activation has passed current, if they have the highest id.
+	 */
+	private synchronized void activate(Instant now)
+	{
+		activations.entrySet().removeIf(activation -> {
+			if (activation.getValue().isAfter(now)) return false;
+
+			makeCurrent(dictionaries.get(activation.getKey()));
+			return true;
+		});
+	}
+
+	private void makeCurrent(CompressionDictionary dictionary)
+	{
+		if (current == null || dictionary.id() > current.id())
+		{
+			current = dictionary;
+		}
+	}
+}
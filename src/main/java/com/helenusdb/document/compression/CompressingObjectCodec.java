@@ -0,0 +1,302 @@
+package com.helenusdb.document.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+import com.helenusdb.core.exception.HelenusdbException;
+import com.strategicgains.noschema.document.ObjectCodec;
+
+/**
+ * An ObjectCodec that compresses the output of another codec. Every payload it writes starts
+ * with a nine-byte header: a four-byte magic number, the id of the CompressionAlgorithm used and
+ * the length of the rest of the payload, so data written with different algorithms, or left
+ * uncompressed, can be read by any instance. Compressed payloads follow the header with their
+ * uncompressed length (4 bytes).
+ * <p/>
+ * Payloads smaller than the minimum size, or that don't get smaller, are stored uncompressed
+ * (still with a header). Payloads without a valid header are read as-is, so tables written before
+ * compression was enabled stay readable, as are payloads gzipped by GzipCompressionObserver. A
+ * header is only valid if its magic number, algorithm id and length all match, so a headerless
+ * payload, e.g. BSON, which starts with its own length, is never mistaken for a compressed one.
+ * <p/>
+ * With a DictionaryStore, DEFLATE and ZSTD compress with the store's current dictionary. Its id
+ * follows the header, flagged in the algorithm byte, so payloads written with older dictionaries
+ * stay readable. Small documents that barely compress on their own benefit the most, so consider
+ * a lower minimum size.
+ * <p/>
+ * Use one instance per repository: it holds pools of native compression contexts.
+ * 
+ * <pre>
+ * new CompressingObjectCodec&lt;&gt;(jsonCodec, CompressionAlgorithm.LZ4).withMinimumSize(512);
+ * new CompressingObjectCodec&lt;&gt;(jsonCodec, CompressionAlgorithm.ZSTD).withDictionaries(store).withMinimumSize(64);
+ * </pre>
+ */
+public class CompressingObjectCodec<T>
+implements ObjectCodec<T>
+{
+	public static final int DEFAULT_MINIMUM_SIZE = 256;
+
+	// Starts a payload written by this codec: 0xFE, which never occurs in UTF-8 text and doesn't start Java serialization,
+	// gzip or Smile, then "HDC". As a little-endian BSON length it would exceed BSON's 16MB maximum document size.
+	static final int MAGIC = 0xFE484443;
+	private static final int MAGIC_SIZE = Integer.BYTES;
+	// The magic number, the algorithm id and the length of the rest of the payload.
+	static final int HEADER_SIZE = MAGIC_SIZE + 1 + Integer.BYTES;
+	// Set in the algorithm byte when a dictionary id follows the header.
+	static final byte DICTIONARY_FLAG = (byte) 0x80;
+	private static final int DICTIONARY_ID_SIZE = Integer.BYTES;
+	private static final int LENGTH_SIZE = Integer.BYTES;
+	private static final byte GZIP_MAGIC_0 = (byte) 0x1F;
+	private static final byte GZIP_MAGIC_1 = (byte) 0x8B;
+
+	private final ObjectCodec<T> codec;
+	private final CompressionAlgorithm algorithm;
+	private final int level;
+	private final Compressor compressor;
+
+	// Decompressors for payloads written with other algorithms, created on first use.
+	private final Compressor[] decompressors = new Compressor[CompressionAlgorithm.values().length];
+
+	// Compressors with a dictionary, by algorithm ordinal (high 32 bits) and dictionary id.
+	private final Map<Long, Compressor> dictionaryCompressors = new ConcurrentHashMap<>();
+
+	private int minimumSize = DEFAULT_MINIMUM_SIZE;
+	private DictionaryStore dictionaries;
+
+	public CompressingObjectCodec(ObjectCodec<T> codec, CompressionAlgorithm algorithm)
+	{
+		this(codec, algorithm, algorithm.defaultLevel());
+	}
+
+	public CompressingObjectCodec(ObjectCodec<T> codec, CompressionAlgorithm algorithm, int level)
+	{
+		super();
+		this.codec = Objects.requireNonNull(codec);
+		this.algorithm = Objects.requireNonNull(algorithm);
+		this.level = level;
+		this.compressor = algorithm.newCompressor(level);
+		this.decompressors[algorithm.ordinal()] = compressor;
+	}
+
+	/**
+	 * Payloads smaller than this are stored uncompressed. Defaults to 256 bytes.
+	 * 
+	 * @param bytes the minimum payload size to compress.
+	 * @return this codec.
+	 */
+	public CompressingObjectCodec<T> withMinimumSize(int bytes)
+	{
+		if (bytes < 0) throw new IllegalArgumentException("Minimum size must be non-negative: " + bytes);
+
+		this.minimumSize = bytes;
+		return this;
+	}
+
+	/**
+	 * Compresses with the store's current dictionary, when it has one, and reads payloads written
+	 * with any dictionary it has.
+	 * 
+	 * @param store the dictionaries for this codec's table.
+	 * @return this codec.
+	 * @throws IllegalArgumentException if the algorithm doesn't support dictionaries.
+	 */
+	public CompressingObjectCodec<T> withDictionaries(DictionaryStore store)
+	{
+		if (!algorithm.supportsDictionaries()) throw new IllegalArgumentException(algorithm + " does not support dictionaries");
+
+		this.dictionaries = Objects.requireNonNull(store);
+		return this;
+	}
+
+	public CompressionAlgorithm algorithm()
+	{
+		return algorithm;
+	}
+
+	@Override
+	public byte[] serialize(T object)
+	{
+		return compress(codec.serialize(object));
+	}
+
+	@Override
+	public T deserialize(byte[] bytes, Class<T> clazz)
+	{
+		if (bytes == null) return codec.deserialize(bytes, clazz);
+
+		return deserialize(ByteBuffer.wrap(bytes), clazz);
+	}
+
+	@Override
+	public T deserialize(ByteBuffer buffer, Class<T> clazz)
+	{
+		return codec.deserialize(decompress(buffer), clazz);
+	}
+
+	/**
+	 * Compresses an already-serialized payload and adds the header.
+	 * 
+	 * @param bytes a serialized object.
+	 * @return the payload to store.
+	 */
+	public byte[] compress(byte[] bytes)
+	{
+		if (bytes == null) return null;
+
+		if (compressor != null && bytes.length >= minimumSize)
+		{
+			CompressionDictionary dictionary = (dictionaries != null ? dictionaries.current() : null);
+			byte[] compressed = (dictionary != null
+				? compressWith(dictionary, bytes)
+				: compressor.compress(bytes, HEADER_SIZE + LENGTH_SIZE)
+			);
+
+			if (compressed.length < bytes.length + HEADER_SIZE)
+			{
+				ByteBuffer header = ByteBuffer.wrap(compressed)
+					.putInt(MAGIC)
+					.put(dictionary != null ? (byte) (algorithm.id() | DICTIONARY_FLAG) : algorithm.id())
+					.putInt(compressed.length - HEADER_SIZE);
+
+				if (dictionary != null) header.putInt(dictionary.id());
+
+				header.putInt(bytes.length);
+				return compressed;
+			}
+		}
+
+		byte[] stored = new byte[HEADER_SIZE + bytes.length];
+		ByteBuffer.wrap(stored).putInt(MAGIC).put(CompressionAlgorithm.NONE.id()).putInt(bytes.length);
+		System.arraycopy(bytes, 0, stored, HEADER_SIZE, bytes.length);
+		return stored;
+	}
+
+	/**
+	 * The inverse of compress(). Reads the remaining bytes of the buffer without changing its
+	 * position. Payloads without a valid header are returned as-is, unless gzipped.
+	 * 
+	 * @param buffer a stored payload.
+	 * @return the serialized object.
+	 */
+	public ByteBuffer decompress(ByteBuffer buffer)
+	{
+		ByteBuffer b = buffer.duplicate();
+		CompressionAlgorithm stored = algorithmOf(b);
+
+		if (stored == null)
+		{
+			return (isGzipped(b) ? ByteBuffer.wrap(gunzip(b)) : b);
+		}
+
+		boolean hasDictionary = hasDictionary(b);
+		b.position(b.position() + HEADER_SIZE);
+
+		if (stored == CompressionAlgorithm.NONE) return b.slice();
+
+		Compressor decompressor = (hasDictionary ? dictionaryDecompressor(stored, b.getInt()) : decompressor(stored));
+		int length = b.getInt();
+		return ByteBuffer.wrap(decompressor.decompress(b, length));
+	}
+
+	/**
+	 * @return the algorithm in the payload header, or null if the payload has no valid header.
+	 */
+	static CompressionAlgorithm algorithmOf(ByteBuffer b)
+	{
+		if (b.remaining() < HEADER_SIZE || b.getInt(b.position()) != MAGIC) return null;
+
+		int rest = b.remaining() - HEADER_SIZE;
+
+		if (b.getInt(b.position() + MAGIC_SIZE + 1) != rest) return null;
+
+		CompressionAlgorithm algorithm = CompressionAlgorithm.fromId((byte) (b.get(b.position() + MAGIC_SIZE) & ~DICTIONARY_FLAG));
+
+		if (algorithm == null || algorithm == CompressionAlgorithm.NONE) return algorithm;
+
+		return (rest >= (hasDictionary(b) ? DICTIONARY_ID_SIZE : 0) + LENGTH_SIZE ? algorithm : null);
+	}
+
+	/**
+	 * @return the id of the dictionary in the payload header, or zero if the payload wasn't compressed with one.
+	 */
+	static int dictionaryIdOf(ByteBuffer b)
+	{
+		if (algorithmOf(b) == null || !hasDictionary(b)) return 0;
+
+		return b.getInt(b.position() + HEADER_SIZE);
+	}
+
+	private static boolean hasDictionary(ByteBuffer b)
+	{
+		return ((b.get(b.position() + MAGIC_SIZE) & DICTIONARY_FLAG) != 0);
+	}
+
+	private byte[] compressWith(CompressionDictionary dictionary, byte[] bytes)
+	{
+		return compressor(algorithm, dictionary).compress(bytes, HEADER_SIZE + DICTIONARY_ID_SIZE + LENGTH_SIZE);
+	}
+
+	private Compressor dictionaryDecompressor(CompressionAlgorithm stored, int dictionaryId)
+	{
+		Compressor decompressor = dictionaryCompressors.get(key(stored, dictionaryId));
+
+		if (decompressor != null) return decompressor;
+
+		CompressionDictionary dictionary = (dictionaries != null ? dictionaries.get(dictionaryId) : null);
+
+		if (dictionary == null)
+		{
+			throw new HelenusdbException("Error decompressing " + stored + " data", new IllegalStateException("Unknown compression dictionary: " + dictionaryId));
+		}
+
+		return compressor(stored, dictionary);
+	}
+
+	private Compressor compressor(CompressionAlgorithm with, CompressionDictionary dictionary)
+	{
+		return dictionaryCompressors.computeIfAbsent(key(with, dictionary.id()),
+			k -> with.newCompressor((with == algorithm ? level : with.defaultLevel()), dictionary.content())
+		);
+	}
+
+	private static long key(CompressionAlgorithm algorithm, int dictionaryId)
+	{
+		return ((long) algorithm.ordinal() << 32) | (dictionaryId & 0xFFFFFFFFL);
+	}
+
+	private Compressor decompressor(CompressionAlgorithm stored)
+	{
+		Compressor decompressor = decompressors[stored.ordinal()];
+
+		if (decompressor == null)
+		{
+			// A racing thread may create another, which is harmless.
+			decompressor = stored.newCompressor(stored.defaultLevel());
+			decompressors[stored.ordinal()] = decompressor;
+		}
+
+		return decompressor;
+	}
+
+	private static boolean isGzipped(ByteBuffer b)
+	{
+		return (b.remaining() >= 2 && b.get(b.position()) == GZIP_MAGIC_0 && b.get(b.position() + 1) == GZIP_MAGIC_1);
+	}
+
+	private static byte[] gunzip(ByteBuffer b)
+	{
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(Compressor.toArray(b))))
+		{
+			return gzip.readAllBytes();
+		}
+		catch (IOException e)
+		{
+			throw new HelenusdbException("Error decompressing gzip data", e);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.helenusdb.document.compression;
+
+import java.util.zip.Deflater;
+
+/**
+ * The compression algorithms a CompressingObjectCodec can write. Each is identified in the
+ * payload header by its id, which must never change once data has been written with it.
+ * <p/>
+ * DEFLATE uses the JDK. LZ4, SNAPPY and ZSTD require lz4-java, snappy-java and zstd-jni,
+ * respectively, on the classpath. DEFLATE and ZSTD can also compress with a CompressionDictionary.
+ */
+public enum CompressionAlgorithm
+{
+	/**
+	 * Stored uncompressed, but with a header.
+	 */
+	NONE(0, 0, false),
+
+	/**
+	 * Levels 1 (fastest) to 9 (smallest).
+	 */
+	DEFLATE(1, Deflater.DEFAULT_COMPRESSION, true),
+
+	/**
+	 * Level 0 is the fast compressor. Levels 1 to 17 use LZ4 HC, trading speed for ratio.
+	 */
+	LZ4(2, 0, false),
+
+	/**
+	 * Has no levels.
+	 */
+	SNAPPY(3, 0, false),
+
+	/**
+	 * Levels 1 (fastest) to 22 (smallest). Negative levels are faster still.
+	 */
+	ZSTD(4, 3, true);
+
+	private final byte id;
+	private final int defaultLevel;
+	private final boolean supportsDictionaries;
+
+	CompressionAlgorithm(int id, int defaultLevel, boolean supportsDictionaries)
+	{
+		this.id = (byte) id;
+		this.defaultLevel = defaultLevel;
+		this.supportsDictionaries = supportsDictionaries;
+	}
+
+	public byte id()
+	{
+		return id;
+	}
+
+	public int defaultLevel()
+	{
+		return defaultLevel;
+	}
+
+	public boolean supportsDictionaries()
+	{
+		return supportsDictionaries;
+	}
+
+	/**
+	 * @return the algorithm with the given header id, or null if there is none.
+	 */
+	public static CompressionAlgorithm fromId(byte id)
+	{
+		for (CompressionAlgorithm algorithm : values())
+		{
+			if (algorithm.id == id) return algorithm;
+		}
+
+		return null;
+	}
+
+	Compressor newCompressor(int level)
+	{
+		return newCompressor(level, null);
+	}
+
+	/**
+	 * @param level the compression level.
+	 * @param dictionary the dictionary to (de)compress with. Null for none.
+	 */
+	Compressor newCompressor(int level, byte[] dictionary)
+	{
+		if (dictionary != null && !supportsDictionaries) throw new IllegalArgumentException(this + " does not support dictionaries");
+
+		switch(this)
+		{
+			case DEFLATE: return new DeflateCompressor(level, dictionary);
+			case LZ4: return new Lz4Compressor(level);
+			case SNAPPY: return new SnappyCompressor();
+			case ZSTD: return new ZstdCompressor(level, dictionary);
+			default: return null;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.helenusdb.document.compression;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A versioned, preset dictionary for compressing small, similar payloads: content that occurs in
+ * most of them, like JSON field names, so each payload can refer to it instead of repeating it.
+ * The id is written into the header of every payload compressed with it, so it must never be
+ * reused for different bytes.
+ * 
+ * @see DictionaryTrainer
+ * @see DictionaryStore
+ */
+public final class CompressionDictionary
+{
+	private final int id;
+	private final byte[] bytes;
+
+	public CompressionDictionary(int id, byte[] bytes)
+	{
+		super();
+		Objects.requireNonNull(bytes);
+
+		if (id <= 0) throw new IllegalArgumentException("Dictionary id must be positive: " + id);
+		if (bytes.length == 0) throw new IllegalArgumentException("Dictionary must not be empty");
+
+		this.id = id;
+		this.bytes = bytes.clone();
+	}
+
+	public int id()
+	{
+		return id;
+	}
+
+	/**
+	 * @return a copy of the dictionary content.
+	 */
+	public byte[] bytes()
+	{
+		return bytes.clone();
+	}
+
+	public int size()
+	{
+		return bytes.length;
+	}
+
+	byte[] content()
+	{
+		return bytes;
+	}
+
+	@Override
+	public boolean equals(Object that)
+	{
+		if (this == that) return true;
+		if (!(that instanceof CompressionDictionary)) return false;
+
+		CompressionDictionary other = (CompressionDictionary) that;
+		return (id == other.id && Arrays.equals(bytes, other.bytes));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * id + Arrays.hashCode(bytes);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("CompressionDictionary(id=%d, size=%d)", id, bytes.length);
+	}
+}
@@ -0,0 +1,35 @@
+package com.helenusdb.document.compression;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block compression algorithm. Implementations are thread-safe.
+ */
+interface Compressor
+{
+	/**
+	 * Compresses the bytes into a new array, leaving headerSize bytes at the start of it
+	 * for the caller to fill in.
+	 * 
+	 * @param bytes the uncompressed bytes.
+	 * @param headerSize the number of bytes to reserve before the compressed data.
+	 * @return an array, exactly sized, of headerSize bytes followed by the compressed data.
+	 */
+	byte[] compress(byte[] bytes, int headerSize);
+
+	/**
+	 * Decompresses the remaining bytes of the buffer without changing its position.
+	 * 
+	 * @param compressed the compressed data.
+	 * @param length the uncompressed length.
+	 * @return the uncompressed bytes.
+	 */
+	byte[] decompress(ByteBuffer compressed, int length);
+
+	static byte[] toArray(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+}
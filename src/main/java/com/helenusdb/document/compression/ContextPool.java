@@ -0,0 +1,51 @@
+package com.helenusdb.document.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable (de)compression contexts, such as Deflaters, whose native state is
+ * expensive to create. Contexts are reset when released. When the pool is full, released contexts
+ * are closed instead of retained.
+ */
+final class ContextPool<C>
+{
+	private static final int DEFAULT_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+	private final BlockingQueue<C> idle;
+	private final Supplier<C> factory;
+	private final Consumer<C> reset;
+	private final Consumer<C> close;
+
+	ContextPool(Supplier<C> factory, Consumer<C> reset, Consumer<C> close)
+	{
+		this(DEFAULT_SIZE, factory, reset, close);
+	}
+
+	ContextPool(int size, Supplier<C> factory, Consumer<C> reset, Consumer<C> close)
+	{
+		super();
+		this.idle = new ArrayBlockingQueue<>(size);
+		this.factory = factory;
+		this.reset = reset;
+		this.close = close;
+	}
+
+	C acquire()
+	{
+		C context = idle.poll();
+		return (context != null ? context : factory.get());
+	}
+
+	void release(C context)
+	{
+		reset.accept(context);
+
+		if (!idle.offer(context))
+		{
+			close.accept(context);
+		}
+	}
+}
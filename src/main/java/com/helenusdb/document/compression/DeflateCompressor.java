@@ -0,0 +1,122 @@
+package com.helenusdb.document.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.helenusdb.core.exception.HelenusdbException;
+
+/**
+ * Deflate (zlib format) with the JDK's Deflater and Inflater, whose native contexts are pooled.
+ * With a preset dictionary, only its last 32KB (the Deflate window) are used.
+ */
+final class DeflateCompressor
+implements Compressor
+{
+	private final ContextPool<Deflater> deflaters;
+	private final ContextPool<Inflater> inflaters = new ContextPool<>(Inflater::new, Inflater::reset, Inflater::end);
+
+	// The preset dictionary. Null for none. Reset clears it, so it's set again on each use.
+	private final byte[] dictionary;
+
+	DeflateCompressor(int level)
+	{
+		this(level, null);
+	}
+
+	DeflateCompressor(int level, byte[] dictionary)
+	{
+		super();
+		this.deflaters = new ContextPool<>(() -> new Deflater(level), Deflater::reset, Deflater::end);
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public byte[] compress(byte[] bytes, int headerSize)
+	{
+		Deflater deflater = deflaters.acquire();
+
+		try
+		{
+			if (dictionary != null) deflater.setDictionary(dictionary);
+
+			deflater.setInput(bytes);
+			deflater.finish();
+			// Deflate's worst case is a few bytes per 16KB block larger than its input.
+			byte[] out = new byte[headerSize + bytes.length + (bytes.length >> 12) + 16];
+			int length = headerSize;
+
+			while (!deflater.finished())
+			{
+				if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+
+				length += deflater.deflate(out, length, out.length - length);
+			}
+
+			return (length == out.length ? out : Arrays.copyOf(out, length));
+		}
+		finally
+		{
+			deflaters.release(deflater);
+		}
+	}
+
+	@Override
+	public byte[] decompress(ByteBuffer compressed, int length)
+	{
+		Inflater inflater = inflaters.acquire();
+
+		try
+		{
+			inflater.setInput(compressed.duplicate());
+			byte[] out = new byte[length];
+			int count = 0;
+
+			while (count < length && !inflater.finished())
+			{
+				int n = inflater.inflate(out, count, length - count);
+
+				if (n == 0 && inflater.needsDictionary() && dictionary != null)
+				{
+					setDictionary(inflater);
+					continue;
+				}
+
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				{
+					throw new DataFormatException("Truncated deflate data");
+				}
+
+				count += n;
+			}
+
+			if (count != length) throw new DataFormatException("Expected " + length + " bytes but inflated " + count);
+
+			return out;
+		}
+		catch (DataFormatException e)
+		{
+			throw new HelenusdbException("Error decompressing deflate data", e);
+		}
+		finally
+		{
+			inflaters.release(inflater);
+		}
+	}
+
+	private void setDictionary(Inflater inflater)
+	throws DataFormatException
+	{
+		try
+		{
+			inflater.setDictionary(dictionary);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// The data was compressed with a different dictionary (Adler-32 mismatch).
+			throw new DataFormatException("Wrong deflate dictionary");
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.helenusdb.document.compression;
+
+import com.helenusdb.document.schema.AbstractSchemaProvider;
+
+/**
+ * The side table holding a table's compression dictionaries, named &lt;table&gt;_dictionaries.
+ */
+public class DictionarySchemaProvider
+extends AbstractSchemaProvider
+{
+	public static class Columns
+	{
+		public static final String ID = "id";
+		public static final String DICTIONARY = "dictionary";
+		public static final String CREATED_AT = "created_at";
+
+		private Columns()
+		{
+			// prevents instantiation.
+		}
+	}
+
+	static final String TABLE_SUFFIX = "_dictionaries";
+
+	private static final String DROP_TABLE = "drop table if exists %s.%s;";
+	private static final String CREATE_TABLE = "create table if not exists %s.%s" +
+	"(" +
+		Columns.ID + " int primary key," +
+		Columns.DICTIONARY + " blob," +
+		Columns.CREATED_AT + " timestamp" +
+	")";
+
+	private String keyspace;
+	private String table;
+
+	/**
+	 * @param keyspace the keyspace of the table.
+	 * @param table the name of the table whose documents are compressed, without the suffix.
+	 */
+	public DictionarySchemaProvider(String keyspace, String table)
+	{
+		super();
+		this.keyspace = keyspace;
+		this.table = table + TABLE_SUFFIX;
+	}
+
+	public String tableName()
+	{
+		return table;
+	}
+
+	@Override
+	public String asCreateScript()
+	{
+		return String.format(CREATE_TABLE, keyspace, table);
+	}
+
+	@Override
+	public String asDropScript()
+	{
+		return String.format(DROP_TABLE, keyspace, table);
+	}
+}
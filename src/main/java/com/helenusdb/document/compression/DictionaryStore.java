@@ -0,0 +1,21 @@
+package com.helenusdb.document.compression;
+
+/**
+ * Where a CompressingObjectCodec finds its dictionaries. Implementations must be thread-safe
+ * and should cache: both methods are called on every compress and decompress, respectively.
+ * 
+ * @see CassandraDictionaryStore
+ */
+public interface DictionaryStore
+{
+	/**
+	 * @return the dictionary new payloads are compressed with, or null to compress without one.
+	 */
+	CompressionDictionary current();
+
+	/**
+	 * @param id a dictionary id from a payload header.
+	 * @return the dictionary with that id, or null if there is none.
+	 */
+	CompressionDictionary get(int id);
+}
@@ -0,0 +1,220 @@
+package com.helenusdb.document.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds a raw-content dictionary from sample payloads, usable by both DEFLATE and ZSTD. Each
+ * sample is cut into short segments, and each segment is scored by how many samples share its
+ * 8-byte substrings. The best segments are chosen greedily, no substring counted twice, until
+ * the dictionary is full. The best segments go last, since Deflate's window favors the end of
+ * the dictionary.
+ * <p/>
+ * Train on payloads before compression, ideally a few thousand recent ones. Not thread-safe.
+ */
+public class DictionaryTrainer
+{
+	public static final int DEFAULT_MAXIMUM_SIZE = 16 * 1024;
+	public static final int DEFLATE_MAXIMUM_SIZE = 32 * 1024;
+
+	// Bounds the memory used while training.
+	private static final int MAXIMUM_SAMPLE_BYTES = 4 * 1024 * 1024;
+	private static final int KMER_SIZE = 8;
+	private static final int SEGMENT_SIZE = 32;
+
+	private final int maximumSize;
+	private final List<byte[]> samples = new ArrayList<>();
+	private int sampleBytes;
+
+	public DictionaryTrainer()
+	{
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param maximumSize the largest dictionary to build. Deflate only uses the last 32KB.
+	 */
+	public DictionaryTrainer(int maximumSize)
+	{
+		super();
+
+		if (maximumSize < SEGMENT_SIZE) throw new IllegalArgumentException("Maximum size must be at least " + SEGMENT_SIZE + ": " + maximumSize);
+
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * @param sample an uncompressed payload.
+	 * @return false if the sample was ignored because enough have been added already.
+	 */
+	public boolean addSample(byte[] sample)
+	{
+		if (sampleBytes + sample.length > MAXIMUM_SAMPLE_BYTES) return false;
+
+		samples.add(sample);
+		sampleBytes += sample.length;
+		return true;
+	}
+
+	/**
+	 * Adds the remaining bytes of the buffer without changing its position.
+	 * 
+	 * @see #addSample(byte[])
+	 */
+	public boolean addSample(ByteBuffer sample)
+	{
+		return addSample(Compressor.toArray(sample));
+	}
+
+	public int getSampleCount()
+	{
+		return samples.size();
+	}
+
+	/**
+	 * @param id the id of the new dictionary, which must not have been used before for this table.
+	 * @return a new dictionary.
+	 * @throws IllegalStateException if the samples have nothing in common.
+	 */
+	public CompressionDictionary train(int id)
+	{
+		Map<Long, Integer> counts = countSharedKmers();
+		PriorityQueue<Segment> candidates = new PriorityQueue<>();
+
+		for (byte[] sample : samples)
+		{
+			for (int offset = 0; offset + KMER_SIZE <= sample.length; offset += SEGMENT_SIZE)
+			{
+				Segment segment = new Segment(sample, offset, Math.min(SEGMENT_SIZE, sample.length - offset));
+				segment.score(counts);
+
+				if (segment.score > 0) candidates.add(segment);
+			}
+		}
+
+		List<Segment> chosen = new ArrayList<>();
+		int size = 0;
+
+		while (!candidates.isEmpty() && size < maximumSize)
+		{
+			Segment best = candidates.poll();
+
+			// Scores only go down as k-mers are used, so re-score lazily, only when a segment reaches the top.
+			if (best.score(counts) <= 0) continue;
+
+			if (!candidates.isEmpty() && best.score < candidates.peek().score)
+			{
+				candidates.add(best);
+				continue;
+			}
+
+			if (size + best.length > maximumSize) continue;
+
+			chosen.add(best);
+			size += best.length;
+			best.consume(counts);
+		}
+
+		if (chosen.isEmpty()) throw new IllegalStateException("Not enough shared content in " + samples.size() + " samples to train a dictionary");
+
+		ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+
+		for (int i = chosen.size() - 1; i >= 0; i--)
+		{
+			Segment segment = chosen.get(i);
+			dictionary.write(segment.sample, segment.offset, segment.length);
+		}
+
+		return new CompressionDictionary(id, dictionary.toByteArray());
+	}
+
+	/**
+	 * @return for each k-mer in at least 1% of the samples (and two or more), the number of samples it occurs in.
+	 */
+	private Map<Long, Integer> countSharedKmers()
+	{
+		Map<Long, Integer> counts = new HashMap<>();
+		Set<Long> seen = new HashSet<>();
+
+		for (byte[] sample : samples)
+		{
+			seen.clear();
+
+			for (int i = 0; i + KMER_SIZE <= sample.length; i++)
+			{
+				Long kmer = kmer(sample, i);
+
+				if (seen.add(kmer)) counts.merge(kmer, 1, Integer::sum);
+			}
+		}
+
+		// Content in only a few samples isn't worth the room it takes.
+		int minimumCount = Math.max(2, samples.size() / 100);
+		counts.values().removeIf(count -> count < minimumCount);
+		return counts;
+	}
+
+	private static long kmer(byte[] bytes, int offset)
+	{
+		long kmer = 0;
+
+		for (int i = offset; i < offset + KMER_SIZE; i++)
+		{
+			kmer = (kmer << 8) | (bytes[i] & 0xFF);
+		}
+
+		return kmer;
+	}
+
+	private static class Segment
+	implements Comparable<Segment>
+	{
+		private final byte[] sample;
+		private final int offset;
+		private final int length;
+		private long score;
+
+		Segment(byte[] sample, int offset, int length)
+		{
+			super();
+			this.sample = sample;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		long score(Map<Long, Integer> counts)
+		{
+			long total = 0;
+
+			for (int i = offset; i + KMER_SIZE <= offset + length; i++)
+			{
+				total += counts.getOrDefault(kmer(sample, i), 0);
+			}
+
+			this.score = total;
+			return total;
+		}
+
+		void consume(Map<Long, Integer> counts)
+		{
+			for (int i = offset; i + KMER_SIZE <= offset + length; i++)
+			{
+				counts.remove(kmer(sample, i));
+			}
+		}
+
+		@Override
+		public int compareTo(Segment that)
+		{
+			// Highest score first.
+			return Long.compare(that.score, this.score);
+		}
+	}
+}
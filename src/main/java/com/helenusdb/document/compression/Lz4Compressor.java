@@ -0,0 +1,69 @@
+package com.helenusdb.document.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.helenusdb.core.exception.HelenusdbException;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * LZ4 block compression via lz4-java, which must be on the classpath. Levels above zero
+ * select the slower, higher-ratio LZ4 HC compressor. The compressors are thread-safe.
+ * <p/>
+ * Decompression uses the safe decompressor, which never reads past the compressed data, and
+ * reads it straight from the buffer.
+ */
+final class Lz4Compressor
+implements Compressor
+{
+	// An LZ4 block can't expand by more than this factor, which bounds a plausible uncompressed length.
+	private static final int MAX_RATIO = 255;
+
+	private final LZ4Compressor compressor;
+	private final LZ4SafeDecompressor decompressor;
+
+	Lz4Compressor(int level)
+	{
+		super();
+		LZ4Factory factory = LZ4Factory.fastestInstance();
+		this.compressor = (level > 0 ? factory.highCompressor(level) : factory.fastCompressor());
+		this.decompressor = factory.safeDecompressor();
+	}
+
+	@Override
+	public byte[] compress(byte[] bytes, int headerSize)
+	{
+		byte[] out = new byte[headerSize + compressor.maxCompressedLength(bytes.length)];
+		int length = compressor.compress(bytes, 0, bytes.length, out, headerSize);
+		return Arrays.copyOf(out, headerSize + length);
+	}
+
+	@Override
+	public byte[] decompress(ByteBuffer compressed, int length)
+	{
+		int compressedLength = compressed.remaining();
+
+		if (length < 0 || length > (long) compressedLength * MAX_RATIO)
+		{
+			throw new HelenusdbException("Error decompressing LZ4 data", new IllegalStateException("Invalid uncompressed length " + length + " for " + compressedLength + " compressed bytes"));
+		}
+
+		try
+		{
+			ByteBuffer out = ByteBuffer.allocate(length);
+			int count = decompressor.decompress(compressed, compressed.position(), compressedLength, out, 0, length);
+
+			if (count != length) throw new HelenusdbException("Error decompressing LZ4 data", new IllegalStateException("Expected " + length + " bytes but decompressed " + count));
+
+			return out.array();
+		}
+		catch (LZ4Exception e)
+		{
+			throw new HelenusdbException("Error decompressing LZ4 data", e);
+		}
+	}
+}
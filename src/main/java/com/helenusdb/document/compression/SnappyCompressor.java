@@ -0,0 +1,50 @@
+package com.helenusdb.document.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.xerial.snappy.Snappy;
+
+import com.helenusdb.core.exception.HelenusdbException;
+
+/**
+ * Snappy compression via snappy-java, which must be on the classpath. Snappy has no levels.
+ */
+final class SnappyCompressor
+implements Compressor
+{
+	@Override
+	public byte[] compress(byte[] bytes, int headerSize)
+	{
+		try
+		{
+			byte[] out = new byte[headerSize + Snappy.maxCompressedLength(bytes.length)];
+			int length = Snappy.compress(bytes, 0, bytes.length, out, headerSize);
+			return Arrays.copyOf(out, headerSize + length);
+		}
+		catch (IOException e)
+		{
+			throw new HelenusdbException("Error compressing Snappy data", e);
+		}
+	}
+
+	@Override
+	public byte[] decompress(ByteBuffer compressed, int length)
+	{
+		try
+		{
+			byte[] in = Compressor.toArray(compressed);
+			byte[] out = new byte[length];
+			int count = Snappy.uncompress(in, 0, in.length, out, 0);
+
+			if (count != length) throw new IOException("Expected " + length + " bytes but uncompressed " + count);
+
+			return out;
+		}
+		catch (IOException e)
+		{
+			throw new HelenusdbException("Error decompressing Snappy data", e);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.helenusdb.document.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+import com.helenusdb.core.exception.HelenusdbException;
+
+/**
+ * Zstandard compression via zstd-jni, which must be on the classpath. The native compression
+ * and decompression contexts are pooled. A dictionary, if any, is loaded into each context when
+ * it's created and stays loaded for every frame after.
+ */
+final class ZstdCompressor
+implements Compressor
+{
+	private final ContextPool<ZstdCompressCtx> compressors;
+	private final ContextPool<ZstdDecompressCtx> decompressors;
+
+	ZstdCompressor(int level)
+	{
+		this(level, null);
+	}
+
+	ZstdCompressor(int level, byte[] dictionary)
+	{
+		super();
+		this.compressors = new ContextPool<>(() -> newCompressCtx(level, dictionary), c -> {}, ZstdCompressCtx::close);
+		this.decompressors = new ContextPool<>(() -> newDecompressCtx(dictionary), c -> {}, ZstdDecompressCtx::close);
+	}
+
+	private static ZstdCompressCtx newCompressCtx(int level, byte[] dictionary)
+	{
+		ZstdCompressCtx context = new ZstdCompressCtx().setLevel(level);
+
+		// Trained (ZDICT) dictionaries and raw content are both accepted.
+		if (dictionary != null) context.loadDict(dictionary);
+
+		return context;
+	}
+
+	private static ZstdDecompressCtx newDecompressCtx(byte[] dictionary)
+	{
+		ZstdDecompressCtx context = new ZstdDecompressCtx();
+
+		if (dictionary != null) context.loadDict(dictionary);
+
+		return context;
+	}
+
+	@Override
+	public byte[] compress(byte[] bytes, int headerSize)
+	{
+		ZstdCompressCtx context = compressors.acquire();
+
+		try
+		{
+			byte[] out = new byte[headerSize + (int) Zstd.compressBound(bytes.length)];
+			int length = context.compressByteArray(out, headerSize, out.length - headerSize, bytes, 0, bytes.length);
+			return Arrays.copyOf(out, headerSize + length);
+		}
+		catch (ZstdException e)
+		{
+			throw new HelenusdbException("Error compressing Zstd data", e);
+		}
+		finally
+		{
+			compressors.release(context);
+		}
+	}
+
+	@Override
+	public byte[] decompress(ByteBuffer compressed, int length)
+	{
+		ZstdDecompressCtx context = decompressors.acquire();
+
+		try
+		{
+			byte[] in = Compressor.toArray(compressed);
+			byte[] out = new byte[length];
+			int count = context.decompressByteArray(out, 0, length, in, 0, in.length);
+
+			if (count != length) throw new HelenusdbException("Error decompressing Zstd data", new IllegalStateException("Expected " + length + " bytes but decompressed " + count));
+
+			return out;
+		}
+		catch (ZstdException e)
+		{
+			throw new HelenusdbException("Error decompressing Zstd data", e);
+		}
+		finally
+		{
+			decompressors.release(context);
+		}
+	}
+}
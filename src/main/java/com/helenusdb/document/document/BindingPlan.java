@@ -0,0 +1,119 @@
+package com.helenusdb.document.document;
+
+import java.util.List;
+
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.data.SettableByIndex;
+import com.helenusdb.document.key.DataTypes;
+import com.helenusdb.document.key.KeyComponent;
+import com.helenusdb.document.key.KeyDefinition;
+
+/**
+ * A prepared statement plus where and how its key columns are bound. Key values are written
+ * into a BoundStatementBuilder by index with the setter for each column's type, instead of
+ * being boxed into an Object[] for the driver to match to codecs one value at a time.
+ */
+final class BindingPlan
+{
+	private final PreparedStatement statement;
+
+	// The type of each key column, in KeyDefinition order.
+	private final DataTypes[] keyTypes;
+
+	// The name of each key column, for error messages.
+	private final String[] keyColumns;
+
+	// The index of the bind marker for the first key column.
+	private final int keyOffset;
+
+	BindingPlan(PreparedStatement statement, KeyDefinition keys, int keyOffset)
+	{
+		super();
+		this.statement = statement;
+		this.keyOffset = keyOffset;
+		List<KeyComponent> components = keys.components();
+		this.keyTypes = new DataTypes[components.size()];
+		this.keyColumns = new String[components.size()];
+
+		for (int i = 0; i < keyTypes.length; i++)
+		{
+			keyTypes[i] = components.get(i).type();
+			keyColumns[i] = components.get(i).column();
+		}
+	}
+
+	PreparedStatement statement()
+	{
+		return statement;
+	}
+
+	BoundStatementBuilder builder()
+	{
+		return statement.boundStatementBuilder();
+	}
+
+	/**
+	 * Binds the leading key columns from the given values, which may be a prefix of the key.
+	 * 
+	 * @throws IllegalArgumentException naming the column, if a value can't be bound to it.
+	 */
+	<S extends SettableByIndex<S>> S bindKeys(S settable, List<Object> values)
+	{
+		int count = checkKeyCount(values.size());
+		S result = settable;
+
+		for (int i = 0; i < count; i++)
+		{
+			result = bindKey(result, i, values.get(i));
+		}
+
+		return result;
+	}
+
+	<S extends SettableByIndex<S>> S bindKeys(S settable, Object[] values)
+	{
+		int count = checkKeyCount(values.length);
+		S result = settable;
+
+		for (int i = 0; i < count; i++)
+		{
+			result = bindKey(result, i, values[i]);
+		}
+
+		return result;
+	}
+
+	BoundStatement bindKeys(List<Object> values)
+	{
+		return bindKeys(builder(), values).build();
+	}
+
+	BoundStatement bindKeys(Object[] values)
+	{
+		return bindKeys(builder(), values).build();
+	}
+
+	private <S extends SettableByIndex<S>> S bindKey(S settable, int i, Object value)
+	{
+		try
+		{
+			return keyTypes[i].bindTo(settable, keyOffset + i, value);
+		}
+		catch (ClassCastException | IllegalArgumentException e)
+		{
+			throw new IllegalArgumentException("Invalid value for key column " + keyColumns[i] + " (" + keyTypes[i].cassandraType() + "): " + value, e);
+		}
+	}
+
+	private int checkKeyCount(int count)
+	{
+		if (count > keyTypes.length)
+		{
+			throw new IllegalArgumentException("Too many key values: expected at most " + keyTypes.length + " but got " + count);
+		}
+
+		return count;
+	}
+}
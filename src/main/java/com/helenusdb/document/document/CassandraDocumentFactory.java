@@ -10,6 +10,7 @@ import com.helenusdb.core.exception.InvalidIdentifierException;
 import com.helenusdb.document.document.DocumentSchemaProvider.Columns;
 import com.helenusdb.document.exception.KeyDefinitionException;
 import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
 import com.strategicgains.noschema.document.AbstractDocumentFactory;
 import com.strategicgains.noschema.document.Document;
 import com.strategicgains.noschema.document.ObjectCodec;
@@ -33,24 +34,44 @@ extends AbstractDocumentFactory<T>
 
 	public Document<T> asDocument(Row row)
 	{
-		if (row == null)
+		Document<T> d = asHeader(row);
+
+		if (d == null)
 		{
 			return null;
 		}
 
-		Document<T> d = new Document<>();
 		ByteBuffer b = row.getByteBuffer(Columns.OBJECT);
 
-		if (b != null && b.hasArray())
+		if (b != null)
 		{
-			//Force the reading of all the bytes.
-			d.setObject((b.array()));
+			// Keep a read-only view of the value instead of copying it.
+			d.setObject(b);
 		}
 
+		return d;
+	}
+
+	/**
+	 * Creates a Document from a row without its object: the identifier, type, metadata and
+	 * timestamps only. The row must contain the key columns and the metadata columns.
+	 * 
+	 * @param row a row read with the key and metadata columns. May be null.
+	 * @return a Document without an object, or null if the row is null.
+	 */
+	public Document<T> asHeader(Row row)
+	{
+		if (row == null)
+		{
+			return null;
+		}
+
+		Document<T> d = new Document<>();
+		d.setIdentifier(KeyPropertyConverter.identifier(keys, row));
 		d.setType(row.getString(Columns.TYPE));
 		d.setMetadata(row.getMap(Columns.METADATA, String.class, String.class));
-		d.setCreatedAt(new Date(row.getInstant(Columns.CREATED_AT).getEpochSecond()));
-		d.setUpdatedAt(new Date(row.getInstant(Columns.UPDATED_AT).getEpochSecond()));
+		d.setCreatedAt(new Date(row.getInstant(Columns.CREATED_AT).toEpochMilli()));
+		d.setUpdatedAt(new Date(row.getInstant(Columns.UPDATED_AT).toEpochMilli()));
 		return d;
 	}
 
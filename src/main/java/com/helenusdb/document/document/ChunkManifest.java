@@ -0,0 +1,100 @@
+package com.helenusdb.document.document;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * Describes where a chunked object is stored: the chunk set (partition) in the chunks table,
+ * the object's length and the size of its chunks. It's stored in the document metadata, in
+ * place of the object, so the rows of the table and its views all refer to the same chunks.
+ */
+public final class ChunkManifest
+{
+	public static final String METADATA_KEY = "chunks";
+
+	private final UUID chunkSet;
+	private final int length;
+	private final int chunkSize;
+
+	public ChunkManifest(UUID chunkSet, int length, int chunkSize)
+	{
+		super();
+		this.chunkSet = Objects.requireNonNull(chunkSet);
+		this.length = length;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return the manifest in the document's metadata, or null if the document isn't chunked.
+	 * @throws IllegalArgumentException if the manifest is malformed.
+	 */
+	public static ChunkManifest of(Document<?> document)
+	{
+		if (document == null) return null;
+
+		return parse(document.getMetadata().get(METADATA_KEY));
+	}
+
+	/**
+	 * @param value a manifest as stored in document metadata, or null.
+	 * @return the manifest, or null if the value is null.
+	 * @throws IllegalArgumentException if the manifest is malformed.
+	 */
+	public static ChunkManifest parse(String value)
+	{
+		if (value == null) return null;
+
+		String[] parts = value.split(":");
+
+		if (parts.length != 3) throw new IllegalArgumentException("Invalid chunk manifest: " + value);
+
+		return new ChunkManifest(UUID.fromString(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+	}
+
+	public UUID chunkSet()
+	{
+		return chunkSet;
+	}
+
+	public int length()
+	{
+		return length;
+	}
+
+	public int chunkSize()
+	{
+		return chunkSize;
+	}
+
+	public int chunkCount()
+	{
+		return (int) ((length + (long) chunkSize - 1) / chunkSize);
+	}
+
+	@Override
+	public boolean equals(Object that)
+	{
+		if (this == that) return true;
+		if (!(that instanceof ChunkManifest)) return false;
+
+		ChunkManifest other = (ChunkManifest) that;
+		return (chunkSet.equals(other.chunkSet) && length == other.length && chunkSize == other.chunkSize);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(chunkSet, length, chunkSize);
+	}
+
+	/**
+	 * @return the metadata value: chunk set, length and chunk size, separated by colons.
+	 */
+	@Override
+	public String toString()
+	{
+		return chunkSet + ":" + length + ":" + chunkSize;
+	}
+}
@@ -0,0 +1,62 @@
+package com.helenusdb.document.document;
+
+import com.helenusdb.document.PrimaryTable;
+import com.helenusdb.document.schema.AbstractSchemaProvider;
+
+/**
+ * The side table holding the chunks of a chunked PrimaryTable's large objects, named
+ * &lt;table&gt;_chunks. The chunks of one object share a partition, in order.
+ */
+public class ChunkSchemaProvider
+extends AbstractSchemaProvider
+{
+	public static class Columns
+	{
+		public static final String CHUNK_SET = "chunk_set";
+		public static final String CHUNK = "chunk";
+		public static final String DATA = "data";
+
+		private Columns()
+		{
+			// prevents instantiation.
+		}
+	}
+
+	static final String TABLE_SUFFIX = "_chunks";
+
+	private static final String DROP_TABLE = "drop table if exists %s.%s;";
+	private static final String CREATE_TABLE = "create table if not exists %s.%s" +
+	"(" +
+		Columns.CHUNK_SET + " uuid," +
+		Columns.CHUNK + " int," +
+		Columns.DATA + " blob," +
+		"primary key ((" + Columns.CHUNK_SET + "), " + Columns.CHUNK + ")" +
+	")";
+
+	private String keyspace;
+	private String table;
+
+	public ChunkSchemaProvider(PrimaryTable table)
+	{
+		super();
+		this.keyspace = table.keyspace();
+		this.table = tableName(table);
+	}
+
+	static String tableName(PrimaryTable table)
+	{
+		return table.asTableName() + TABLE_SUFFIX;
+	}
+
+	@Override
+	public String asCreateScript()
+	{
+		return String.format(CREATE_TABLE, keyspace, table);
+	}
+
+	@Override
+	public String asDropScript()
+	{
+		return String.format(DROP_TABLE, keyspace, table);
+	}
+}
@@ -0,0 +1,206 @@
+package com.helenusdb.document.document;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.helenusdb.core.Identifiable;
+import com.helenusdb.core.exception.HelenusdbException;
+import com.helenusdb.document.AsyncWindow;
+import com.helenusdb.document.PrimaryTable;
+import com.helenusdb.document.document.ChunkSchemaProvider.Columns;
+import com.helenusdb.document.exception.MissingChunkException;
+import com.helenusdb.document.key.IdentifierCodec;
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * Splits the large objects of a chunked PrimaryTable into chunks, and reassembles them on read.
+ * <p/>
+ * A chunk set's id is derived from the document's identifier and object, so chunks are never
+ * overwritten with different content: a changed object is written to a new chunk set, before the
+ * rows that refer to it, and the old set is deleted after. A reader never sees a manifest before
+ * its chunks exist, nor a mix of old and new chunks. Rewriting an unchanged object rewrites the
+ * same chunks and manifest.
+ */
+public class ChunkStore
+{
+	// The maximum number of chunks of one document read at once.
+	private static final int READ_CONCURRENCY = 8;
+	private static final String INSERT_CQL = "insert into %s.%s (%s, %s, %s) values (?, ?, ?)%s";
+	private static final String READ_CQL = "select %s from %s.%s where %s = ? and %s = ?";
+	private static final String DELETE_CQL = "delete from %s.%s where %s = ?";
+
+	private final CqlSession session;
+	private final PrimaryTable table;
+	private final String chunkTable;
+	private final IdentifierCodec identifierCodec;
+
+	// Prepared on first use. Racing threads may both prepare a statement, which is harmless.
+	private PreparedStatement insert;
+	private PreparedStatement read;
+	private PreparedStatement delete;
+
+	public ChunkStore(CqlSession session, PrimaryTable table)
+	{
+		super();
+		this.session = session;
+		this.table = table;
+		this.chunkTable = ChunkSchemaProvider.tableName(table);
+		this.identifierCodec = new IdentifierCodec(table.keys());
+	}
+
+	/**
+	 * If the document's object is over the table's threshold, moves it into chunks: the object
+	 * is replaced by an empty one and a manifest is added to the metadata. Otherwise, removes any
+	 * manifest from the metadata.
+	 * 
+	 * @param document a primary table document with its serialized object.
+	 * @return the statements that write the chunks, which must succeed before the document is written.
+	 */
+	public List<BoundStatement> split(Document<?> document)
+	{
+		ByteBuffer object = document.getObjectBuffer();
+
+		if (object == null || object.remaining() <= table.chunkThreshold())
+		{
+			if (document.getMetadata().containsKey(ChunkManifest.METADATA_KEY))
+			{
+				Map<String, String> metadata = new HashMap<>(document.getMetadata());
+				metadata.remove(ChunkManifest.METADATA_KEY);
+				document.setMetadata(metadata);
+			}
+
+			return Collections.emptyList();
+		}
+
+		ChunkManifest manifest = new ChunkManifest(chunkSetId(document, object), object.remaining(), table.chunkSize());
+		List<BoundStatement> writes = new ArrayList<>(manifest.chunkCount());
+
+		for (int i = 0; i < manifest.chunkCount(); i++)
+		{
+			int offset = i * manifest.chunkSize();
+			int length = Math.min(manifest.chunkSize(), manifest.length() - offset);
+			writes.add(prepareInsert().bind(manifest.chunkSet(), i, object.slice(object.position() + offset, length)));
+		}
+
+		document.setObject(ByteBuffer.allocate(0));
+		document.withMetadata(ChunkManifest.METADATA_KEY, manifest.toString());
+		return writes;
+	}
+
+	/**
+	 * Reads the chunks of a chunked document, at most a few at a time, directly into its object.
+	 * Documents without a manifest are returned as-is.
+	 * 
+	 * @param document a document read from the table or one of its views.
+	 * @return a future completing with the document, or failing with MissingChunkException.
+	 */
+	public <T extends Identifiable> CompletableFuture<Document<T>> assemble(Document<T> document)
+	{
+		ChunkManifest manifest = ChunkManifest.of(document);
+
+		if (manifest == null) return CompletableFuture.completedFuture(document);
+
+		byte[] object = new byte[manifest.length()];
+		List<Integer> chunks = IntStream.range(0, manifest.chunkCount()).boxed().toList();
+		return AsyncWindow.map(chunks, READ_CONCURRENCY, i -> session.executeAsync(prepareRead().bind(manifest.chunkSet(), i))
+				.thenApply(rs -> copy(manifest, i, rs.one(), object)))
+			.thenApply(v -> {
+				document.setObject(object);
+				return document;
+			});
+	}
+
+	/**
+	 * @return a statement deleting all the chunks of the manifest's chunk set.
+	 */
+	public BoundStatement delete(ChunkManifest manifest)
+	{
+		return prepareDelete().bind(manifest.chunkSet());
+	}
+
+	private static Integer copy(ChunkManifest manifest, int i, Row row, byte[] object)
+	{
+		if (row == null || row.isNull(0)) throw new MissingChunkException("Missing chunk " + i + " of " + manifest.chunkSet());
+
+		ByteBuffer data = row.getByteBuffer(0);
+		int offset = i * manifest.chunkSize();
+		int expected = Math.min(manifest.chunkSize(), manifest.length() - offset);
+
+		if (data.remaining() != expected) throw new MissingChunkException("Chunk " + i + " of " + manifest.chunkSet() + " has " + data.remaining() + " bytes, expected " + expected);
+
+		data.duplicate().get(object, offset, expected);
+		return i;
+	}
+
+	/**
+	 * A name-based (version 3) UUID of the identifier and object.
+	 */
+	private UUID chunkSetId(Document<?> document, ByteBuffer object)
+	{
+		try
+		{
+			MessageDigest md5 = MessageDigest.getInstance("MD5");
+			md5.update(identifierCodec.encode(document.getIdentifier()));
+			md5.update(object.duplicate());
+			byte[] hash = md5.digest();
+			hash[6] = (byte) ((hash[6] & 0x0F) | 0x30);
+			hash[8] = (byte) ((hash[8] & 0x3F) | 0x80);
+			ByteBuffer b = ByteBuffer.wrap(hash);
+			return new UUID(b.getLong(), b.getLong());
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new HelenusdbException("MD5 is not available", e);
+		}
+	}
+
+	private PreparedStatement prepareInsert()
+	{
+		if (insert == null)
+		{
+			String ttl = (table.ttl() > 0 ? " using ttl " + table.ttl() : "");
+			insert = prepare(String.format(INSERT_CQL, table.keyspace(), chunkTable, Columns.CHUNK_SET, Columns.CHUNK, Columns.DATA, ttl));
+		}
+
+		return insert;
+	}
+
+	private PreparedStatement prepareRead()
+	{
+		if (read == null)
+		{
+			read = prepare(String.format(READ_CQL, Columns.DATA, table.keyspace(), chunkTable, Columns.CHUNK_SET, Columns.CHUNK));
+		}
+
+		return read;
+	}
+
+	private PreparedStatement prepareDelete()
+	{
+		if (delete == null)
+		{
+			delete = prepare(String.format(DELETE_CQL, table.keyspace(), chunkTable, Columns.CHUNK_SET));
+		}
+
+		return delete;
+	}
+
+	private PreparedStatement prepare(String cql)
+	{
+		return session.prepare(SimpleStatement.newInstance(cql).setIdempotent(true));
+	}
+}
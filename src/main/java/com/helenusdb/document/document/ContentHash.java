@@ -0,0 +1,94 @@
+package com.helenusdb.document.document;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
+import com.strategicgains.noschema.document.Document;
+
+/**
+ * A CRC32C of a document's type and serialized object, stored in the document metadata so
+ * it's written with every row without a schema change. It lets a unit of work recognize
+ * updates that would rewrite exactly what's already stored and drop them.
+ * <p/>
+ * The hash only rules changes out cheaply. A write is only considered unchanged if the
+ * object bytes are also equal, so a hash collision can never drop a real update.
+ */
+public final class ContentHash
+{
+	public static final String METADATA_KEY = "content-hash";
+
+	private ContentHash()
+	{
+		// prevents instantiation.
+	}
+
+	/**
+	 * @return the content hash of the document's type and object, as 8 hex digits.
+	 */
+	public static String of(Document<?> document)
+	{
+		CRC32C crc = new CRC32C();
+
+		if (document.getType() != null)
+		{
+			crc.update(document.getType().getBytes(StandardCharsets.UTF_8));
+		}
+
+		ByteBuffer object = document.getObjectBuffer();
+
+		if (object != null)
+		{
+			crc.update(object.duplicate());
+		}
+
+		return String.format("%08x", crc.getValue());
+	}
+
+	/**
+	 * Adds the content hash to the document's metadata. Call after the object is final,
+	 * i.e. after any observers that transform it.
+	 * 
+	 * @return the document.
+	 */
+	public static <T extends Document<?>> T stamp(T document)
+	{
+		document.withMetadata(METADATA_KEY, of(document));
+		return document;
+	}
+
+	/**
+	 * Determines whether writing the dirty document over the clean (stored) one would change
+	 * nothing. Both must carry equal content hashes, and have the same identifier, type,
+	 * metadata and object bytes. Documents without a content hash are never unchanged.
+	 * 
+	 * @param keys the key definition of the table the documents belong to.
+	 * @param dirty the document about to be written.
+	 * @param clean the document as stored. May be null.
+	 * @return true if the write can be skipped.
+	 */
+	public static boolean isUnchanged(KeyDefinition keys, Document<?> dirty, Document<?> clean)
+	{
+		if (clean == null) return false;
+
+		String hash = dirty.getMetadata().get(METADATA_KEY);
+
+		return (hash != null
+			&& hash.equals(clean.getMetadata().get(METADATA_KEY))
+			&& Objects.equals(dirty.getType(), clean.getType())
+			&& dirty.getMetadata().equals(clean.getMetadata())
+			&& Objects.equals(dirty.getObjectBuffer(), clean.getObjectBuffer())
+			&& sameIdentifier(keys, dirty, clean));
+	}
+
+	private static boolean sameIdentifier(KeyDefinition keys, Document<?> dirty, Document<?> clean)
+	{
+		if (dirty.getIdentifier() == null || clean.getIdentifier() == null) return false;
+
+		return KeyPropertyConverter.normalize(keys, dirty.getIdentifier())
+			.equals(KeyPropertyConverter.normalize(keys, clean.getIdentifier()));
+	}
+}
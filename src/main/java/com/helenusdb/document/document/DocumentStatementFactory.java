@@ -1,13 +1,19 @@
 package com.helenusdb.document.document;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.ListType;
+import com.datastax.oss.driver.api.core.type.TupleType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
 import com.helenusdb.core.Identifiable;
 import com.helenusdb.core.Identifier;
 import com.helenusdb.core.exception.InvalidIdentifierException;
@@ -16,38 +22,67 @@ import com.helenusdb.document.CqlStatementFactory;
 import com.helenusdb.document.PrimaryTable;
 import com.helenusdb.document.document.DocumentSchemaProvider.Columns;
 import com.helenusdb.document.exception.KeyDefinitionException;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
 import com.strategicgains.noschema.exception.InvalidObjectIdException;
 
 public final class DocumentStatementFactory<T extends Identifiable>
 implements CqlStatementFactory<T>
 {
+	private static final ByteBuffer EMPTY_OBJECT = ByteBuffer.allocate(0).asReadOnlyBuffer();
 	private static final String SELECT_COLUMNS = String.join(",", Columns.OBJECT, Columns.TYPE, Columns.METADATA, Columns.CREATED_AT, Columns.UPDATED_AT);
 	private static final String CREATE_CQL = "insert into %s.%s (%s, %s, %s, %s, %s, %s) values (%s)";
 	private static final String DELETE_CQL = "delete from %s.%s where %s";
-	private static final String EXISTS_CQL = "select count(*) from %s.%s  where %s limit 1";
-	private static final String READ_CQL = "select " + SELECT_COLUMNS + " from %s.%s where %s limit 1";
-	private static final String READ_ALL_CQL = "select " + SELECT_COLUMNS + " from %s.%s where %s";
+	private static final String EXISTS_CQL = "select %s from %s.%s where %s limit 1";
+	private static final String EXISTS_IN_CQL = "select %s from %s.%s where %s";
+	private static final String HEADER_COLUMNS = String.join(",", Columns.TYPE, Columns.METADATA, Columns.CREATED_AT, Columns.UPDATED_AT);
+	private static final String READ_CQL = "select %s," + SELECT_COLUMNS + " from %s.%s where %s limit 1";
+	private static final String READ_ALL_CQL = "select %s," + SELECT_COLUMNS + " from %s.%s where %s";
+	private static final String READ_IDS_CQL = "select %s from %s.%s where %s";
+	private static final String READ_HEADERS_CQL = "select %s," + HEADER_COLUMNS + " from %s.%s where %s";
 	private static final String UPDATE_CQL = "update %s.%s set %s = ?, %s = ?, %s = ?, %s = ? where %s";
+	private static final String SCAN_KEYS_CQL = "select %s from %s.%s";
+	private static final String READ_IN_CQL = "select %s," + SELECT_COLUMNS + " from %s.%s where %s";
 
-	// These are used IFF there is a single primary table (with no views) and it is unique.
+	// These are used IFF there is a single primary table (with no views) and it is unique, or
+	// when conditional writes are requested explicitly (see createIfNotExists()).
 	private static final String DELETE_UNIQUE_CQL = DELETE_CQL + " if exists";
 	private static final String CREATE_UNIQUE_CQL = CREATE_CQL + " if not exists";
 	private static final String UPDATE_UNIQUE_CQL = UPDATE_CQL + " if exists";
 
-	private static final String CREATE = "create";
-	private static final String DELETE = "delete";
-	private static final String EXISTS = "exists";
-	private static final String READ = "read";
-	private static final String READ_ALL = "readAll_";
-	private static final String UPDATE = "update";
-	private static final String UPSERT = "upsert";
+	// Slots in plans[]. The readAll(), readIds() and readHeaders() statements each take one
+	// slot per number of key parameters, starting at READ_ALL, readIdsSlot and readHeadersSlot.
+	private static final int CREATE = 0;
+	private static final int DELETE = 1;
+	private static final int EXISTS = 2;
+	private static final int EXISTS_IN = 3;
+	private static final int READ = 4;
+	private static final int READ_IN = 5;
+	private static final int SCAN_KEYS = 6;
+	private static final int UPDATE = 7;
+	private static final int UPSERT = 8;
+	private static final int CREATE_IF_NOT_EXISTS = 9;
+	private static final int UPDATE_IF_EXISTS = 10;
+	private static final int DELETE_IF_EXISTS = 11;
+	private static final int READ_ALL = 12;
+
+	// The number of non-key bind markers preceding the keys in an update.
+	private static final int UPDATE_KEY_OFFSET = 4;
 
 	private CqlSession session;
 	private AbstractTable table;
-	private Map<String, PreparedStatement> statements = new ConcurrentHashMap<>();
 	private CassandraDocumentFactory<T> documentFactory;
 	private boolean useLightweightTxns;
 
+	// The number of key columns, which is also the index of the first document column in a create.
+	private int keyCount;
+	private int readIdsSlot;
+	private int readHeadersSlot;
+
+	// Prepared on first use. Racing threads may both prepare a statement, which is harmless:
+	// the driver caches prepared statements and plans are immutable.
+	private BindingPlan[] plans;
+
 	public DocumentStatementFactory(CqlSession session, AbstractTable table, ObjectCodec<T> codec)
 	{
 		this(session, table, new CassandraDocumentFactory<>(table.keys(), codec));
@@ -59,6 +94,10 @@ implements CqlStatementFactory<T>
 		this.session = session;
 		this.table = table;
 		this.documentFactory = factory;
+		this.keyCount = table.keys().size();
+		this.readIdsSlot = READ_ALL + keyCount + 1;
+		this.readHeadersSlot = readIdsSlot + keyCount + 1;
+		this.plans = new BindingPlan[readHeadersSlot + keyCount + 1];
 
 		if ((table instanceof PrimaryTable primary) && !primary.hasViews())
 		{
@@ -66,67 +105,92 @@ implements CqlStatementFactory<T>
 		}
 	}
 
-	private PreparedStatement prepareCreate()
+	public KeyDefinition keys()
+	{
+		return table.keys();
+	}
+
+	private BindingPlan prepareCreate()
 	{
+		BindingPlan plan = plans[CREATE];
+		if (plan != null) return plan;
+
 		String cql = useLightweightTxns ? CREATE_UNIQUE_CQL : CREATE_CQL;
-		return statements.computeIfAbsent(CREATE, k -> 
-			session.prepare(
-				String.format(cql,
-					table.keyspace(),
-					table.asTableName(),
-					table.keys().asSelectProperties(),
-					Columns.OBJECT,
-					Columns.TYPE,
-					Columns.METADATA,
-					Columns.CREATED_AT,
-					Columns.UPDATED_AT,
-					table.keys().asQuestionMarks(5)))
-		);
-	}
-
-	private PreparedStatement prepareDelete()
+		return prepare(CREATE, 0, !useLightweightTxns,
+			String.format(cql,
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asSelectProperties(),
+				Columns.OBJECT,
+				Columns.TYPE,
+				Columns.METADATA,
+				Columns.CREATED_AT,
+				Columns.UPDATED_AT,
+				table.keys().asQuestionMarks(5)));
+	}
+
+	private BindingPlan prepareDelete()
 	{
+		BindingPlan plan = plans[DELETE];
+		if (plan != null) return plan;
+
 		String cql = useLightweightTxns ? DELETE_UNIQUE_CQL : DELETE_CQL;
-		return statements.computeIfAbsent(DELETE, k ->
-			session.prepare(
-				String.format(cql,
-					table.keyspace(),
-					table.asTableName(),
-					table.keys().asIdentityClause()))
-		);
+		return prepare(DELETE, 0, !useLightweightTxns,
+			String.format(cql,
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asIdentityClause()));
 	}
 
-	private PreparedStatement prepareExists()
+	private BindingPlan prepareExists()
 	{
-		return statements.computeIfAbsent(EXISTS, k -> 
-			session.prepare(
-				String.format(EXISTS_CQL,
-					table.keyspace(),
-					table.asTableName(),
-					table.keys().asIdentityClause()))
-		);
+		BindingPlan plan = plans[EXISTS];
+		if (plan != null) return plan;
+
+		return prepare(EXISTS, 0, true,
+			String.format(EXISTS_CQL,
+				table.keys().component(0).column(),
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asIdentityClause()));
+	}
+
+	private BindingPlan prepareExistsIn()
+	{
+		BindingPlan plan = plans[EXISTS_IN];
+		if (plan != null) return plan;
+
+		return prepare(EXISTS_IN, 0, true,
+			String.format(EXISTS_IN_CQL,
+				table.keys().asSelectProperties(),
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asPartitionInClause()));
 	}
 
-	private PreparedStatement prepareUpdate()
+	private BindingPlan prepareUpdate()
 	{
+		BindingPlan plan = plans[UPDATE];
+		if (plan != null) return plan;
+
 		String cql = useLightweightTxns ? UPDATE_UNIQUE_CQL : UPDATE_CQL;
-		return statements.computeIfAbsent(UPDATE, k -> 
-			session.prepare(
-				String.format(cql,
-					table.keyspace(),
-					table.asTableName(),
-					Columns.OBJECT,
-					Columns.TYPE,
-					Columns.METADATA,
-					Columns.UPDATED_AT,
-					table.keys().asIdentityClause()))
-		);
-	}
-
-	private PreparedStatement prepareUpsert()
-	{
-		return statements.computeIfAbsent(UPSERT, k -> 
-		session.prepare(
+		return prepare(UPDATE, UPDATE_KEY_OFFSET, !useLightweightTxns,
+			String.format(cql,
+				table.keyspace(),
+				table.asTableName(),
+				Columns.OBJECT,
+				Columns.TYPE,
+				Columns.METADATA,
+				Columns.UPDATED_AT,
+				table.keys().asIdentityClause()));
+	}
+
+	private BindingPlan prepareUpsert()
+	{
+		BindingPlan plan = plans[UPSERT];
+		if (plan != null) return plan;
+
+		return prepare(UPSERT, 0, true,
 			String.format(CREATE_CQL,
 				table.keyspace(),
 				table.asTableName(),
@@ -136,30 +200,160 @@ implements CqlStatementFactory<T>
 				Columns.METADATA,
 				Columns.CREATED_AT,
 				Columns.UPDATED_AT,
-				table.keys().asQuestionMarks(5)))
-		);
+				table.keys().asQuestionMarks(5)));
+	}
+
+	private BindingPlan prepareCreateIfNotExists()
+	{
+		BindingPlan plan = plans[CREATE_IF_NOT_EXISTS];
+		if (plan != null) return plan;
+
+		return prepare(CREATE_IF_NOT_EXISTS, 0, false,
+			String.format(CREATE_UNIQUE_CQL,
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asSelectProperties(),
+				Columns.OBJECT,
+				Columns.TYPE,
+				Columns.METADATA,
+				Columns.CREATED_AT,
+				Columns.UPDATED_AT,
+				table.keys().asQuestionMarks(5)));
 	}
 
-	private PreparedStatement prepareRead()
+	private BindingPlan prepareUpdateIfExists()
 	{
-		return statements.computeIfAbsent(READ, k -> 
-		session.prepare(
+		BindingPlan plan = plans[UPDATE_IF_EXISTS];
+		if (plan != null) return plan;
+
+		return prepare(UPDATE_IF_EXISTS, UPDATE_KEY_OFFSET, false,
+			String.format(UPDATE_UNIQUE_CQL,
+				table.keyspace(),
+				table.asTableName(),
+				Columns.OBJECT,
+				Columns.TYPE,
+				Columns.METADATA,
+				Columns.UPDATED_AT,
+				table.keys().asIdentityClause()));
+	}
+
+	private BindingPlan prepareDeleteIfExists()
+	{
+		BindingPlan plan = plans[DELETE_IF_EXISTS];
+		if (plan != null) return plan;
+
+		return prepare(DELETE_IF_EXISTS, 0, false,
+			String.format(DELETE_UNIQUE_CQL,
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asIdentityClause()));
+	}
+
+	private BindingPlan prepareRead()
+	{
+		BindingPlan plan = plans[READ];
+		if (plan != null) return plan;
+
+		return prepare(READ, 0, true,
 			String.format(READ_CQL,
+				table.keys().asSelectProperties(),
 				table.keyspace(),
 				table.asTableName(),
-				table.keys().asIdentityClause()))
-		);
+				table.keys().asIdentityClause()));
 	}
 
-	private PreparedStatement prepareReadAll(int keyCount)
+	private BindingPlan prepareReadAll(int keyCount)
 	{
-		return statements.computeIfAbsent(READ_ALL + keyCount, k -> 
-		session.prepare(
+		int slot = slot(READ_ALL, keyCount);
+		BindingPlan plan = plans[slot];
+		if (plan != null) return plan;
+
+		return prepare(slot, 0, true,
 			String.format(READ_ALL_CQL,
+				table.keys().asSelectProperties(),
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asIdentityClause(keyCount)));
+	}
+
+	private BindingPlan prepareReadIds(int keyCount)
+	{
+		int slot = slot(readIdsSlot, keyCount);
+		BindingPlan plan = plans[slot];
+		if (plan != null) return plan;
+
+		return prepare(slot, 0, true,
+			String.format(READ_IDS_CQL,
+				table.keys().asSelectProperties(),
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asIdentityClause(keyCount)));
+	}
+
+	private BindingPlan prepareReadHeaders(int keyCount)
+	{
+		int slot = slot(readHeadersSlot, keyCount);
+		BindingPlan plan = plans[slot];
+		if (plan != null) return plan;
+
+		return prepare(slot, 0, true,
+			String.format(READ_HEADERS_CQL,
+				table.keys().asSelectProperties(),
+				table.keyspace(),
+				table.asTableName(),
+				table.keys().asIdentityClause(keyCount)));
+	}
+
+	private BindingPlan prepareScanKeys()
+	{
+		BindingPlan plan = plans[SCAN_KEYS];
+		if (plan != null) return plan;
+
+		return prepare(SCAN_KEYS, 0, true,
+			String.format(SCAN_KEYS_CQL,
+				table.keys().asSelectProperties(),
+				table.keyspace(),
+				table.asTableName()));
+	}
+
+	private BindingPlan prepareReadIn()
+	{
+		BindingPlan plan = plans[READ_IN];
+		if (plan != null) return plan;
+
+		return prepare(READ_IN, 0, true,
+			String.format(READ_IN_CQL,
+				table.keys().asSelectProperties(),
 				table.keyspace(),
 				table.asTableName(),
-				table.keys().asIdentityClause(keyCount)))
-		);
+				table.keys().asPartitionInClause()));
+	}
+
+	private int slot(int first, int parameterCount)
+	{
+		if (parameterCount > keyCount)
+		{
+			throw new IllegalArgumentException("Too many key parameters: expected at most " + keyCount + " but got " + parameterCount);
+		}
+
+		return first + parameterCount;
+	}
+
+	private BindingPlan prepare(int slot, int keyOffset, boolean isIdempotent, String cql)
+	{
+		BindingPlan plan = new BindingPlan(prepare(isIdempotent, cql), table.keys(), keyOffset);
+		plans[slot] = plan;
+		return plan;
+	}
+
+	/**
+	 * Prepares the statement, marking it (and the statements bound from it) as idempotent or
+	 * not. Idempotent statements may be retried on timeout and executed speculatively by the
+	 * driver. Lightweight transactions are never idempotent.
+	 */
+	private PreparedStatement prepare(boolean isIdempotent, String cql)
+	{
+		return session.prepare(SimpleStatement.newInstance(cql).setIdempotent(isIdempotent));
 	}
 
 	@Override
@@ -171,13 +365,13 @@ implements CqlStatementFactory<T>
 	@Override
 	public BoundStatement delete(Identifier id)
 	{
-		return bindIdentity(prepareDelete(), id);
+		return prepareDelete().bindKeys(id.components());
 	}
 
 	@Override
 	public BoundStatement exists(Identifier id)
 	{
-		return bindIdentity(prepareExists(), id);
+		return prepareExists().bindKeys(id.components());
 	}
 
 	@Override
@@ -192,62 +386,158 @@ implements CqlStatementFactory<T>
 		return bindCreate(prepareUpsert(), entity);
 	}
 
+	/**
+	 * A lightweight transaction that inserts the row only if it doesn't exist, whether or not
+	 * the table has views. Its result set's wasApplied() is false if the row already existed.
+	 */
+	public BoundStatement createIfNotExists(T entity)
+	{
+		return bindCreate(prepareCreateIfNotExists(), entity);
+	}
+
+	/**
+	 * A lightweight transaction that updates the row only if it exists. Its result set's
+	 * wasApplied() is false if the row didn't exist.
+	 */
+	public BoundStatement updateIfExists(T entity)
+	{
+		return bindUpdate(prepareUpdateIfExists(), entity);
+	}
+
+	/**
+	 * A lightweight transaction that deletes the row only if it exists. Its result set's
+	 * wasApplied() is false if the row didn't exist.
+	 */
+	public BoundStatement deleteIfExists(Identifier id)
+	{
+		return prepareDeleteIfExists().bindKeys(id.components());
+	}
+
 	@Override
 	public BoundStatement read(Identifier id)
 	{
-		return bindIdentity(prepareRead(), id);
+		return prepareRead().bindKeys(id.components());
 	}
 
 	@Override
 	public BoundStatement readAll(Object... parameters)
 	{
-		return prepareReadAll(parameters.length).bind(parameters);
+		return prepareReadAll(parameters.length).bindKeys(parameters);
 	}
 
-	protected BoundStatement bindIdentity(PreparedStatement bs, Identifier id)
+	@Override
+	public BoundStatement readIds(Object... parameters)
 	{
-		return bs.bind(id.components().toArray());
+		return prepareReadIds(parameters.length).bindKeys(parameters);
 	}
 
-	protected BoundStatement bindCreate(PreparedStatement ps, T entity)
+	@Override
+	public BoundStatement readHeaders(Object... parameters)
 	{
-		Document<T> document = asDocument(entity);
-		Date now = new Date();
-		document.setCreatedAt(now);
-		document.setUpdatedAt(now);
-		Identifier id = document.getIdentifier();
-		Object[] values = new Object[id.size() + 5]; // Identifier + object + metadata + createdAt + updatedAt.
-		fill(values, 0, id.components().toArray());
-		fill(values, id.size(),
-			(document.hasObject() ? ByteBuffer.wrap(document.getObject()) : ByteBuffer.wrap(new byte[0])),
-				document.getType(),
-				document.getMetadata(),
-				document.getCreatedAt().toInstant(),
-			    document.getUpdatedAt().toInstant());
-		return ps.bind(values);
-	}
-
-	protected BoundStatement bindUpdate(PreparedStatement ps, T entity)
+		return prepareReadHeaders(parameters.length).bindKeys(parameters);
+	}
+
+	@Override
+	public BoundStatement scanKeys()
 	{
-		Document<T> document = asDocument(entity);
-		document.setUpdatedAt(new Date());
-		Identifier id = document.getIdentifier();
-		Object[] values = new Object[id.size() + 4];
-			fill(values, 0,
-				(document.hasObject() ? ByteBuffer.wrap(document.getObject()) : ByteBuffer.wrap(new byte[0])),
-					document.getType(),
-					document.getMetadata(),
-				    document.getUpdatedAt().toInstant());
-			fill(values, 4, id.components().toArray());
-			return ps.bind(values);
+		return prepareScanKeys().statement().bind();
 	}
 
-	private void fill(Object[] array, int offset, Object... values)
+	/**
+	 * Reads many rows from a single partition. All the identifiers must be complete and
+	 * share the same partition key values. The key columns are included in the results so
+	 * rows can be matched back to the identifiers.
+	 */
+	@Override
+	public BoundStatement readIn(List<Identifier> ids)
+	{
+		return bindPartitionIn(prepareReadIn(), ids);
+	}
+
+	/**
+	 * Like readIn() but selects only the key columns. A row is returned for each identifier
+	 * that exists.
+	 */
+	@Override
+	public BoundStatement existsIn(List<Identifier> ids)
 	{
-		for (int i = offset; i < values.length + offset; i++)
+		return bindPartitionIn(prepareExistsIn(), ids);
+	}
+
+	private BoundStatement bindPartitionIn(BindingPlan plan, List<Identifier> ids)
+	{
+		int partitionSize = table.keys().partitionKeySize();
+		int clusteringSize = table.keys().clusteringKeySize();
+		List<Object> first = KeyPropertyConverter.normalize(table.keys(), ids.get(0)).components();
+		BoundStatementBuilder builder = plan.bindKeys(plan.builder(), first.subList(0, partitionSize));
+		DataType clusteringType = plan.statement().getVariableDefinitions().get(partitionSize).getType();
+		TupleType tupleType = (clusteringSize > 1
+			? (TupleType) ((ListType) clusteringType).getElementType()
+			: null);
+		List<Object> clustering = new ArrayList<>(ids.size());
+
+		for (Identifier id : ids)
 		{
-			array[i] = values[i - offset];
+			List<Object> components = KeyPropertyConverter.normalize(table.keys(), id).components();
+
+			if (tupleType == null)
+			{
+				clustering.add(components.get(partitionSize));
+			}
+			else
+			{
+				clustering.add(tupleType.newValue(components.subList(partitionSize, partitionSize + clusteringSize).toArray()));
+			}
 		}
+
+		TypeCodec<List<Object>> codec = builder.codecRegistry().codecFor(clusteringType);
+		return builder.set(partitionSize, clustering, codec).build();
+	}
+
+	private BoundStatement bindCreate(BindingPlan plan, T entity)
+	{
+		Document<T> document = asDocument(entity);
+		stampTimes(document);
+
+		return plan.bindKeys(plan.builder(), document.getIdentifier().components())
+			.setByteBuffer(keyCount, objectOf(document))
+			.setString(keyCount + 1, document.getType())
+			.setMap(keyCount + 2, document.getMetadata(), String.class, String.class)
+			.setInstant(keyCount + 3, document.getCreatedAt().toInstant())
+			.setInstant(keyCount + 4, document.getUpdatedAt().toInstant())
+			.build();
+	}
+
+	private BoundStatement bindUpdate(BindingPlan plan, T entity)
+	{
+		Document<T> document = asDocument(entity);
+		stampTimes(document);
+
+		return plan.bindKeys(plan.builder(), document.getIdentifier().components())
+			.setByteBuffer(0, objectOf(document))
+			.setString(1, document.getType())
+			.setMap(2, document.getMetadata(), String.class, String.class)
+			.setInstant(3, document.getUpdatedAt().toInstant())
+			.build();
+	}
+
+	/**
+	 * Documents carry the timestamps of the logical write they belong to, so a primary table
+	 * and its views are written with the same created and updated times. The repository stamps
+	 * them once per write; only missing timestamps are set here.
+	 */
+	private void stampTimes(Document<T> document)
+	{
+		if (document.getCreatedAt() != null && document.getUpdatedAt() != null) return;
+
+		Date now = new Date();
+		if (document.getCreatedAt() == null) document.setCreatedAt(now);
+		if (document.getUpdatedAt() == null) document.setUpdatedAt(now);
+	}
+
+	private ByteBuffer objectOf(Document<T> document)
+	{
+		return (document.hasObject() ? document.getObjectBuffer() : EMPTY_OBJECT.duplicate());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,16 @@
+package com.helenusdb.document.exception;
+
+/**
+ * Thrown when a chunk referred to by a document's chunk manifest isn't stored. This happens
+ * if the document was updated or deleted, and its old chunks removed, while it was being read.
+ */
+public class MissingChunkException
+extends RuntimeException
+{
+	private static final long serialVersionUID = -2904813620743361182L;
+
+	public MissingChunkException(String message)
+	{
+		super(message);
+	}
+}
@@ -1,11 +1,14 @@
 package com.helenusdb.document.key;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
 
-import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.data.SettableByIndex;
 
 public enum DataTypes
 {
@@ -31,29 +34,104 @@ public enum DataTypes
 		return cassandraType;
 	}
 
-	public void bindTo(BoundStatement bs, int bsIndex, Object value)
-    {
-		switch(this)
+	/**
+	 * Sets a key value on a statement (or builder) by index, using the setter for this type
+	 * rather than a codec looked up from the value's class. Numbers of another type are converted
+	 * only if they fit exactly, e.g. a Long into an int column, and timestamps may be given as
+	 * Date or Instant.
+	 * 
+	 * @param settable a BoundStatement or BoundStatementBuilder.
+	 * @param index the index of the bind marker.
+	 * @param value the value to bind. May be null.
+	 * @return the settable with the value bound. BoundStatements are immutable, so this may be a new instance.
+	 * @throws ClassCastException if the value isn't of a type this column accepts.
+	 * @throws IllegalArgumentException if a number doesn't fit this column's type, e.g. a fraction or too large for an int.
+	 */
+	public <S extends SettableByIndex<S>> S bindTo(S settable, int index, Object value)
+	{
+		if (value == null) return settable.setToNull(index);
+
+		return switch(this)
 		{
-			case BIGINT: bs.setLong(bsIndex, (Long) value);
-			break;
-			case DECIMAL: bs.setBigDecimal(bsIndex, (BigDecimal) value);
-			break;
-			case DOUBLE: bs.setDouble(bsIndex, (Double) value);
-			break;
-			case FLOAT: bs.setFloat(bsIndex, (Float) value);
-			break;
-			case INTEGER: bs.setInt(bsIndex, (Integer) value);
-			break;
-			case TEXT: bs.setString(bsIndex, (String) value);
-			break;
-			case TIMESTAMP: bs.setInstant(bsIndex, ((Date) value).toInstant());
-			break;
-			case TIMEUUID:
-			case UUID: bs.setUuid(bsIndex, (UUID) value);
-			break;
+			case BIGINT -> settable.setLong(index, longValue((Number) value));
+			case DECIMAL -> settable.setBigDecimal(index, (BigDecimal) value);
+			case DOUBLE -> settable.setDouble(index, ((Number) value).doubleValue());
+			case FLOAT -> settable.setFloat(index, floatValue((Number) value));
+			case INTEGER -> settable.setInt(index, intValue((Number) value));
+			case TEXT -> settable.setString(index, (String) value);
+			case TIMESTAMP -> settable.setInstant(index, (value instanceof Date date ? date.toInstant() : (Instant) value));
+			case TIMEUUID, UUID -> settable.setUuid(index, (UUID) value);
+		};
+	}
+
+	/**
+	 * Converts a key value to the Java type this column is read back as (see
+	 * KeyPropertyConverter.marshal()), accepting the same values as bindTo(). E.g. an Integer
+	 * for a bigint column is returned as a Long and an Instant for a timestamp as a Date.
+	 * 
+	 * @param value the value to convert. May be null.
+	 * @return the value as this column's Java type, or null.
+	 * @throws ClassCastException if the value isn't of a type this column accepts.
+	 * @throws IllegalArgumentException if a number doesn't fit this column's type.
+	 */
+	public Object coerce(Object value)
+	{
+		if (value == null) return null;
+
+		return switch(this)
+		{
+			case BIGINT -> (value instanceof Long ? value : Long.valueOf(longValue((Number) value)));
+			case DECIMAL -> (BigDecimal) value;
+			case DOUBLE -> (value instanceof Double ? value : Double.valueOf(((Number) value).doubleValue()));
+			case FLOAT -> (value instanceof Float ? value : Float.valueOf(floatValue((Number) value)));
+			case INTEGER -> (value instanceof Integer ? value : Integer.valueOf(intValue((Number) value)));
+			case TEXT -> (String) value;
+			case TIMESTAMP -> (value instanceof Instant instant ? Date.from(instant) : (Date) value);
+			case TIMEUUID, UUID -> (UUID) value;
+		};
+	}
+
+	private static int intValue(Number value)
+	{
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) return value.intValue();
+
+		try
+		{
+			return new BigDecimal(value.toString()).intValueExact();
 		}
-    }
+		catch (ArithmeticException | NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Not an int: " + value, e);
+		}
+	}
+
+	private static long longValue(Number value)
+	{
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) return value.longValue();
+
+		try
+		{
+			return new BigDecimal(value.toString()).longValueExact();
+		}
+		catch (ArithmeticException | NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Not a bigint: " + value, e);
+		}
+	}
+
+	private static float floatValue(Number value)
+	{
+		if (value instanceof Float f) return f;
+
+		double d = value.doubleValue();
+
+		if (Math.abs(d) > Float.MAX_VALUE && !Double.isInfinite(d))
+		{
+			throw new IllegalArgumentException("Out of range for a float: " + value);
+		}
+
+		return (float) d;
+	}
 
 	public ByteBuffer toByteBuffer(Object value)
     {
@@ -81,10 +159,11 @@ public enum DataTypes
 				bb = ByteBuffer.allocate(Integer.BYTES).putInt((Integer) value);
 			break;
 			case TEXT:
-				bb = ByteBuffer.wrap(((String) value).getBytes());
+				bb = ByteBuffer.wrap(((String) value).getBytes(StandardCharsets.UTF_8));
 			break;
 			case TIMESTAMP:
-				bb = ByteBuffer.allocate(Long.SIZE).putLong(((Date) value).getTime());
+				long millis = (value instanceof Instant instant ? instant.toEpochMilli() : ((Date) value).getTime());
+				bb = ByteBuffer.allocate(Long.BYTES).putLong(millis);
 			break;
 			case TIMEUUID:
 			case UUID:
@@ -101,6 +180,39 @@ public enum DataTypes
 		return bb;
     }
 
+	/**
+	 * The inverse of toByteBuffer(). Reads all the remaining bytes of the buffer
+	 * without changing its position. Timestamps are returned as Date.
+	 * 
+	 * @param bb a buffer produced by toByteBuffer() for this type.
+	 * @return the value.
+	 */
+	public Object fromByteBuffer(ByteBuffer bb)
+	{
+		ByteBuffer b = bb.duplicate();
+
+		switch(this)
+		{
+			case BIGINT: return b.getLong();
+			case DECIMAL:
+				byte[] unscaled = new byte[b.remaining() - Integer.BYTES];
+				b.get(unscaled);
+				return new BigDecimal(new BigInteger(unscaled), b.getInt());
+			case DOUBLE: return b.getDouble();
+			case FLOAT: return b.getFloat();
+			case INTEGER: return b.getInt();
+			case TEXT:
+				byte[] bytes = new byte[b.remaining()];
+				b.get(bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			case TIMESTAMP: return new Date(b.getLong());
+			case TIMEUUID:
+			case UUID: return new UUID(b.getLong(), b.getLong());
+			default:
+				return null;
+		}
+	}
+
 	public static DataTypes from(String name)
     {
 		switch(name.toLowerCase())
@@ -0,0 +1,97 @@
+package com.helenusdb.document.key;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.helenusdb.core.Identifier;
+
+/**
+ * Encodes a primary-table Identifier as the object payload of an Index row, and decodes it
+ * again when the index is read. The encoding is typed by the primary table's KeyDefinition:
+ * 
+ * <pre>
+ * version (1 byte) | component count (1 byte) | { length (4 bytes) | value (length bytes) }*
+ * </pre>
+ * 
+ * Each value is written with DataTypes.toByteBuffer() for the type of its key component.
+ * Timestamps decode as Date.
+ */
+public class IdentifierCodec
+{
+	private static final byte VERSION = 1;
+
+	private KeyDefinition keys;
+
+	public IdentifierCodec(KeyDefinition keys)
+	{
+		super();
+		this.keys = keys;
+	}
+
+	public byte[] encode(Identifier id)
+	{
+		List<Object> components = id.components();
+
+		if (components.size() != keys.size())
+		{
+			throw new IllegalArgumentException("Expected " + keys.size() + " identifier components: " + id.toString());
+		}
+
+		List<ByteBuffer> values = new ArrayList<>(components.size());
+		int length = 2;
+
+		for (int i = 0; i < components.size(); i++)
+		{
+			ByteBuffer value = keys.component(i).type().toByteBuffer(components.get(i));
+			values.add(value);
+			length += Integer.BYTES + value.remaining();
+		}
+
+		ByteBuffer bb = ByteBuffer.allocate(length)
+			.put(VERSION)
+			.put((byte) values.size());
+		values.forEach(v -> bb.putInt(v.remaining()).put(v));
+		return bb.array();
+	}
+
+	/**
+	 * Decodes an Identifier encoded by encode(). Payloads that aren't in this format (e.g. the
+	 * toString() of an Identifier written by earlier versions) return null.
+	 * 
+	 * @param payload an encoded Identifier. May be null.
+	 * @return the Identifier, or null if the payload could not be decoded.
+	 */
+	public Identifier decode(ByteBuffer payload)
+	{
+		if (payload == null || payload.remaining() < 2) return null;
+
+		ByteBuffer bb = payload.duplicate();
+
+		if (bb.get() != VERSION || bb.get() != keys.size()) return null;
+
+		try
+		{
+			Identifier id = new Identifier();
+
+			for (int i = 0; i < keys.size(); i++)
+			{
+				int length = bb.getInt();
+
+				if (length < 0 || length > bb.remaining()) return null;
+
+				ByteBuffer value = bb.slice();
+				value.limit(length);
+				bb.position(bb.position() + length);
+				id.add(keys.component(i).type().fromByteBuffer(value));
+			}
+
+			return (bb.hasRemaining() ? null : id);
+		}
+		catch (BufferUnderflowException e)
+		{
+			return null;
+		}
+	}
+}
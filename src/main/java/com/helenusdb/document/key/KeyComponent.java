@@ -3,9 +3,11 @@
  */
 package com.helenusdb.document.key;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.reflect.InaccessibleObjectException;
 import java.util.function.UnaryOperator;
 
 import com.helenusdb.core.exception.InvalidIdentifierException;
@@ -17,6 +19,8 @@ import com.helenusdb.document.exception.KeyDefinitionException;
  */
 public class KeyComponent
 {
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
 	// the name of the DB column.
 	private String column;
 
@@ -29,8 +33,8 @@ public class KeyComponent
 	// the function to map the extracted property value from the object into the column value.
 	private UnaryOperator<Object> extractor;
 
-	// Cached during runtime extraction: Access Fields by property name. Used to extract values from objects.
-	private List<Field> keyFields;
+	// One accessor per segment of the property path (e.g. 'account' then 'id'). Each compiles a getter per concrete class.
+	private FieldAccessor[] accessors;
 
 	public KeyComponent(String column, DataTypes type)
 	throws KeyDefinitionException
@@ -96,6 +100,7 @@ public class KeyComponent
 		}
 
 		this.property = property;
+		this.accessors = compileAccessors(property);
 		return this;
 	}
 
@@ -145,84 +150,95 @@ public class KeyComponent
 
 	private Object findValue(Object entity)
 	{
-		List<Field> fields = getKeyFields(entity);
+		Object value = entity;
 
-		try
-		{
-			if (fields.size() == 1) return fields.get(0).get(entity);
-	
-			int i = 0;
-			Object obj = entity;
-			do
-			{
-				obj = fields.get(i++).get(obj);
-				if (obj == null) return null;
-			}
-			while (i < fields.size());
-	
-			return obj;
-		}
-		catch(IllegalAccessException e)
+		for (FieldAccessor accessor : accessors)
 		{
-			throw new InvalidIdentifierException("Unable to access field: " + property, e);
+			value = accessor.get(value);
+			if (value == null) return null;
 		}
+
+		return value;
 	}
 
-	private List<Field> getKeyFields(Object entity)
-	throws KeyDefinitionException
+	private static FieldAccessor[] compileAccessors(String property)
 	{
-		// Return the cached value, if available.
-		if (keyFields != null) return keyFields;
+		String[] path = property.split("\\.");
+		FieldAccessor[] result = new FieldAccessor[path.length];
 
-		// Otherwise, find the fields and cache them.
-		keyFields = findFields(property, entity);
-		return keyFields;
+		for (int i = 0; i < path.length; i++)
+		{
+			result[i] = new FieldAccessor(path[i]);
+		}
+
+		return result;
 	}
 
-	private List<Field> findFields(String property, Object entity)
+	private static Field findFieldInHierarchy(String property, Class<?> type)
 	throws KeyDefinitionException
 	{
-		String[] path = property.split("\\.");
-		int i = 0;
-		List<Field> fields = new ArrayList<>(path.length);
-		Object current = entity;
+		Class<?> currentClass = type;
+
 		do
 		{
-			Field field = findFieldInHierarchy(path[i++], current);
-			field.setAccessible(true);
-			fields.add(field);
 			try
 			{
-				current = field.get(current);
+				return currentClass.getDeclaredField(property);
 			}
-			catch (IllegalArgumentException | IllegalAccessException e)
+			catch (NoSuchFieldException e)
 			{
-				throw new KeyDefinitionException("Missing field: " + property, e);
+				currentClass = currentClass.getSuperclass();
 			}
 		}
-		while (i < path.length);
+		while (currentClass != null);
 
-		return fields;
+		throw new KeyDefinitionException("Missing field: " + property);
 	}
 
-	private Field findFieldInHierarchy(String property, Object entity)
-	throws KeyDefinitionException
+	/**
+	 * Reads a single named field. The getter is resolved once per concrete class and cached,
+	 * so entities of different (sub)classes sharing a key definition each get the right field.
+	 * Once compiled, reading the field involves no reflection.
+	 */
+	private static final class FieldAccessor
+	extends ClassValue<MethodHandle>
 	{
-		Class<?> currentClass = entity.getClass();
+		private final String name;
 
-		do
+		FieldAccessor(String name)
+		{
+			super();
+			this.name = name;
+		}
+
+		Object get(Object object)
 		{
+			MethodHandle getter = get(object.getClass());
+
 			try
 			{
-				return currentClass.getDeclaredField(property);
+				return (Object) getter.invokeExact(object);
 			}
-			catch (NoSuchFieldException e)
+			catch (Throwable t)
 			{
-				currentClass = currentClass.getSuperclass();
+				throw new InvalidIdentifierException("Unable to access field: " + name, t);
 			}
 		}
-		while (currentClass != null);
 
-		throw new KeyDefinitionException("Missing field: " + property);
+		@Override
+		protected MethodHandle computeValue(Class<?> type)
+		{
+			Field field = findFieldInHierarchy(name, type);
+
+			try
+			{
+				field.setAccessible(true);
+				return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+			}
+			catch (IllegalAccessException | InaccessibleObjectException e)
+			{
+				throw new KeyDefinitionException("Unable to access field: " + name, e);
+			}
+		}
 	}
 }
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,14 +17,13 @@ import com.helenusdb.document.key.ClusteringKeyComponent.Ordering;
  * It provides methods to add partition keys and clustering keys, which are essential components of Cassandra's and NoSchema's key model.
  * 
  * The class maintains a list of KeyComponent objects for partition keys and ClusteringKeyComponent objects for clustering keys.
- * It also maintains a map of key fields, which are cached at runtime for performance.
  * 
  * The class provides methods to add keys, check the size and presence of keys, and generate identifiers from an entity.
  * It also provides methods to generate string representations of the keys for use in Cassandra queries.
  * 
  * The class also provides methods to check if the key definition is unique and valid, and to set the uniqueness of the key definition.
  * 
- * The class uses Java reflection to find fields in an entity that correspond to the keys and to extract their values.
+ * Key values are read from an entity's fields via getters compiled once per concrete class (see KeyComponent).
  * It also uses Java streams to process the keys and generate string representations of them.
  * 
  * @author Todd Fredrich
@@ -90,6 +88,16 @@ public class KeyDefinition
 		return ((hasPartitionKey() ? partitionKey.size() : 0) + (hasClusteringKey() ? clusteringKey.size() : 0));
 	}
 
+	public int partitionKeySize()
+	{
+		return partitionKey.size();
+	}
+
+	public int clusteringKeySize()
+	{
+		return clusteringKey.size();
+	}
+
 	public boolean hasPartitionKey()
 	{
 		return !partitionKey.isEmpty();
@@ -113,19 +121,40 @@ public class KeyDefinition
 	throws KeyDefinitionException, InvalidIdentifierException
 	{
 		Identifier identifier = new Identifier();
-		List<String> missingProperties = new ArrayList<>(0);
-		AtomicBoolean kdeOccurred = new AtomicBoolean(false);
-
-		kdeOccurred.compareAndSet(false, extractKey(entity, partitionKey, identifier, missingProperties));
+		List<String> missingProperties = null;
+		boolean isMissingField = false;
+		int size = size();
 
-		if (hasClusteringKey())
+		for (int i = 0; i < size; i++)
 		{
-			kdeOccurred.compareAndSet(false, extractKey(entity, clusteringKey, identifier, missingProperties));
+			KeyComponent k = component(i);
+
+			try
+			{
+				Object value = k.extract(entity);
+
+				if (value != null)
+				{
+					identifier.add(value);
+					continue;
+				}
+			}
+			catch (KeyDefinitionException e)
+			{
+				isMissingField = true;
+			}
+			catch (InvalidIdentifierException e)
+			{
+				// reported below as a missing property.
+			}
+
+			if (missingProperties == null) missingProperties = new ArrayList<>(size - i);
+			missingProperties.add(k.property());
 		}
 
-		if (identifier.size() != size())
+		if (missingProperties != null)
 		{
-			if (kdeOccurred.get())
+			if (isMissingField)
 			{
 				throw new KeyDefinitionException("Missing fields: " + String.join(", ", missingProperties));
 			}
@@ -135,37 +164,6 @@ public class KeyDefinition
 		return identifier;
 	}
 
-	private <T extends KeyComponent> boolean extractKey(Object entity, List<T> keys, Identifier identifier, List<String> missingProperties)
-	{
-		AtomicBoolean kdeOccurred = new AtomicBoolean(false);
-
-		keys
-			.stream()
-			.forEach(k -> {
-				boolean kde = extractComponent(entity, k, identifier, missingProperties);
-				kdeOccurred.compareAndSet(false, kde);
-			});
-
-		return kdeOccurred.get();
-	}
-
-	private boolean extractComponent(Object entity, KeyComponent k, Identifier identifier, List<String> missingProperties)
-	{
-		try
-		{
-			Object value = k.extract(entity);
-			if (value != null) identifier.add(value);
-			else missingProperties.add(k.property());
-		}
-		catch (KeyDefinitionException | InvalidIdentifierException e)
-		{
-			missingProperties.add(k.property());
-			if (e instanceof KeyDefinitionException) return true;
-		}
-
-		return false;
-	}
-
 	public boolean isUnique()
 	{
 		return isUnique;
@@ -328,6 +326,41 @@ public class KeyDefinition
 			.append(")");
 	}
 
+	/**
+	 * Produces a where clause that fixes the partition key and selects many rows within that
+	 * partition with a single bind marker for the clustering key values. For a single clustering
+	 * column the marker binds a list of values. Otherwise, it binds a list of tuples.
+	 * <p/>
+	 * For example: "a = ? and b = ? and (c,d) in ?"
+	 * 
+	 * @return a where clause for reading many rows in a single partition.
+	 */
+	public String asPartitionInClause()
+	{
+		StringBuilder sb = new StringBuilder();
+		appendAsAssignments(partitionKey, sb, AND, partitionKey.size());
+
+		if (hasClusteringKey())
+		{
+			sb.append(AND);
+
+			if (clusteringKey.size() == 1)
+			{
+				sb.append(clusteringKey.get(0).column());
+			}
+			else
+			{
+				sb.append("(");
+				appendAsProperties(clusteringKey, sb, COMMA_DELIMITER);
+				sb.append(")");
+			}
+
+			sb.append(" in ?");
+		}
+
+		return sb.toString();
+	}
+
 	public List<KeyComponent> components()
 	{
 		return Stream.concat(partitionKey.stream(), clusteringKey.stream()).toList();
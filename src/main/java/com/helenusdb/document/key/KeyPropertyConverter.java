@@ -15,7 +15,12 @@
 */
 package com.helenusdb.document.key;
 
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
 import com.datastax.oss.driver.api.core.cql.Row;
+import com.helenusdb.core.Identifier;
 
 /**
  * @author toddf
@@ -33,13 +38,89 @@ public class KeyPropertyConverter
 			case FLOAT: return row.getFloat(property);
 			case INTEGER: return row.getInt(property);
 			case TEXT: return row.getString(property);
-			case TIMESTAMP: return row.getInstant(property);
+			case TIMESTAMP: return toDate(row.getInstant(property));
 			case TIMEUUID,
 				UUID: return row.getUuid(property);
 			default: throw new UnsupportedOperationException("Conversion of property type: " + type.toString());
 		}
     }
 
+	/**
+	 * Reads the key columns of a row into an Identifier, in KeyDefinition order.
+	 * The row must contain all the key columns.
+	 * 
+	 * @param keys the key definition of the table the row was read from.
+	 * @param row a row containing the key columns.
+	 * @return an Identifier for the row.
+	 */
+	public static final Identifier identifier(KeyDefinition keys, Row row)
+	{
+		Identifier id = new Identifier();
+
+		for (KeyComponent component : keys.components())
+		{
+			id.add(marshal(component.column(), component.type(), row));
+		}
+
+		return id;
+	}
+
+	/**
+	 * Key components may be given in any type their column accepts, e.g. an Integer for a bigint
+	 * or an Instant for a timestamp, but are read from a row (see marshal()) as the column's own
+	 * Java type. This returns an Identifier with every component converted to the type of its
+	 * KeyComponent (see DataTypes.coerce()) so Identifiers from either source compare equal.
+	 * <p/>
+	 * A component the column can't accept is left as-is, for binding it to report. Partial
+	 * identifiers are normalized as far as they go.
+	 * 
+	 * @param keys the key definition of the table the Identifier belongs to.
+	 * @param id an Identifier.
+	 * @return the same Identifier if all its components are already normalized. Otherwise, a normalized copy.
+	 */
+	public static final Identifier normalize(KeyDefinition keys, Identifier id)
+	{
+		final List<Object> components = id.components();
+		final int count = Math.min(components.size(), keys.size());
+		Identifier normalized = null;
+
+		for (int i = 0; i < count; i++)
+		{
+			Object component = components.get(i);
+			Object coerced = coerce(keys.component(i).type(), component);
+
+			if (normalized == null && coerced != component)
+			{
+				normalized = new Identifier();
+				components.subList(0, i).forEach(normalized::add);
+			}
+
+			if (normalized != null) normalized.add(coerced);
+		}
+
+		if (normalized == null) return id;
+
+		components.subList(count, components.size()).forEach(normalized::add);
+		return normalized;
+	}
+
+	private static Object coerce(DataTypes type, Object value)
+	{
+		try
+		{
+			return type.coerce(value);
+		}
+		catch (ClassCastException | IllegalArgumentException e)
+		{
+			return value;
+		}
+	}
+
+	private static Date toDate(Instant instant)
+	{
+		return (instant == null ? null : Date.from(instant));
+	}
+
 	private KeyPropertyConverter()
 	{
 		// Prevents instantiation.
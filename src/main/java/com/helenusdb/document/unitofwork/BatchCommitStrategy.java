@@ -9,6 +9,7 @@ import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
 import com.datastax.oss.driver.api.core.cql.BatchType;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
 import com.helenusdb.transact.exception.UnitOfWorkCommitException;
 import com.helenusdb.transact.exception.UnitOfWorkRollbackException;
 
@@ -34,8 +35,20 @@ implements UnitOfWorkCommitStrategy
 	public CompletableFuture<AsyncResultSet> commit(List<BoundStatement> statements)
 	throws UnitOfWorkCommitException
 	{
+		// Every change may have been dropped as unchanged.
+		if (statements.isEmpty()) return CompletableFuture.completedFuture(null);
+
 		BatchStatementBuilder batch = new BatchStatementBuilder(batchType);
 		statements.forEach(batch::addStatement);
+		// A batch is only as idempotent as its least idempotent statement.
+		batch.setIdempotence(statements.stream().allMatch(s -> Boolean.TRUE.equals(s.isIdempotent())));
+
+		// Statements in a batch can't have their own timestamps; the batch's applies to all of them.
+		statements.stream()
+			.mapToLong(BoundStatement::getQueryTimestamp)
+			.filter(ts -> ts != Statement.NO_DEFAULT_TIMESTAMP)
+			.findFirst()
+			.ifPresent(batch::setQueryTimestamp);
 		CompletionStage<AsyncResultSet> resultSet = session.executeAsync(batch.build());
 
 		return resultSet
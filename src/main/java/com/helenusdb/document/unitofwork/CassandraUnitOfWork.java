@@ -1,18 +1,36 @@
 package com.helenusdb.document.unitofwork;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
 import com.helenusdb.core.Identifiable;
 import com.helenusdb.core.Identifier;
+import com.helenusdb.document.AsyncWindow;
 import com.helenusdb.document.CassandraStatementFactory;
+import com.helenusdb.document.PartitionBatches;
+import com.helenusdb.document.document.ChunkManifest;
+import com.helenusdb.document.document.ContentHash;
+import com.helenusdb.document.document.DocumentSchemaProvider.Columns;
+import com.helenusdb.document.document.DocumentStatementFactory;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
+import com.helenusdb.document.unitofwork.ConditionalCommitStrategy.ConditionalWrite;
 import com.helenusdb.transact.Change;
 import com.helenusdb.transact.EntityState;
 import com.helenusdb.transact.UnitOfWork;
@@ -21,18 +39,54 @@ import com.helenusdb.transact.exception.UnitOfWorkRollbackException;
 import com.strategicgains.noschema.document.Document;
 import com.strategicgains.noschema.exception.DuplicateItemException;
 import com.strategicgains.noschema.exception.ItemNotFoundException;
-import com.strategicgains.noschema.unitofwork.UnitOfWorkChangeSet;
 
 public class CassandraUnitOfWork<T extends Identifiable>
 implements UnitOfWork
 {
+	// The maximum number of prerequisite writes in flight at once.
+	private static final int PREREQUISITE_CONCURRENCY = 16;
+
     private final CqlSession session;
     private final CassandraStatementFactory<Document<T>> statementFactory;
-    private final UnitOfWorkChangeSet<Document<T>> changeSet = new UnitOfWorkChangeSet<>();
+    private final UnitOfWorkChangeSet<T> changeSet;
     private final UnitOfWorkType unitOfWorkType;
     private final UnitOfWorkCommitStrategy commitStrategy;
     private final List<CassandraUnitOfWork<?>> children = new ArrayList<>();
+    private final List<CommitListener<T>> listeners = new ArrayList<>();
     private boolean isRoot = true;
+    // Set once committed, by itself or with its root, so it's never committed twice.
+    private volatile boolean isCommitted = false;
+    private boolean useClientTimestamps = false;
+    private long writeTimestamp = Statement.NO_DEFAULT_TIMESTAMP;
+    // Optional. Counts the dirty writes dropped because they match their clean document, and the coalesced changes.
+    private WriteStatistics writeStatistics;
+    // Written after the existence checks pass and before the changes (e.g. the chunks of large documents).
+    private final List<BoundStatement> prerequisites = new ArrayList<>();
+    // Written after a successful commit, best effort (e.g. deletes of superseded chunks).
+    private final List<BoundStatement> cleanups = new ArrayList<>();
+    // The chunk sets to write as prerequisites, by chunk set id.
+    private final Map<UUID, ChunkSet> chunkSets = new HashMap<>();
+    // Deletes of chunk sets after a successful commit, by chunk set id. Skipped if the commit writes the same chunk set.
+    private final Map<UUID, BoundStatement> chunkCleanups = new LinkedHashMap<>();
+
+    /**
+     * A chunk set for the documents of a view, the statements that write it and the one that deletes it.
+     */
+    private record ChunkSet(String view, List<BoundStatement> writes, BoundStatement delete) {}
+
+    /**
+     * The existence checks and statements of a unit of work and its children, committed together.
+     */
+    private static final class PendingCommit
+    {
+    	private final List<CompletionStage<Boolean>> existence = new ArrayList<>();
+    	private final List<BoundStatement> prerequisites = new ArrayList<>();
+    	private final List<ConditionalWrite> conditions = new ArrayList<>();
+    	private final List<BoundStatement> statements = new ArrayList<>();
+    	private final List<CassandraUnitOfWork<?>> units = new ArrayList<>();
+    	// The ids of the chunk sets written by any of the units.
+    	private final Set<UUID> chunkSets = new HashSet<>();
+    }
 
     public CassandraUnitOfWork(CqlSession session, CassandraStatementFactory<Document<T>> statementFactory)
     {
@@ -43,6 +97,7 @@ implements UnitOfWork
     {
         this.session = Objects.requireNonNull(session);
         this.statementFactory = Objects.requireNonNull(statementFactory);
+        this.changeSet = new UnitOfWorkChangeSet<>(statementFactory::keys);
         this.unitOfWorkType = Objects.requireNonNull(unitOfWorkType);
         this.commitStrategy = Objects.requireNonNull(unitOfWorkType)
         	.asCommitStrategy(session);
@@ -59,8 +114,7 @@ implements UnitOfWork
 	 */
 	public CassandraUnitOfWork<T> registerNew(String viewName, Document<T> entity)
 	{
-		changeSet.registerChange(new DocumentChange<>(viewName, entity, EntityState.NEW));
-		return this;
+		return register(new DocumentChange<>(viewName, entity, EntityState.NEW));
 	}
 
 	/**
@@ -70,8 +124,7 @@ implements UnitOfWork
 	 */
 	public CassandraUnitOfWork<T> registerDirty(String viewName, Document<T> entity)
 	{
-		changeSet.registerChange(new DocumentChange<>(viewName, entity, EntityState.DIRTY));
-		return this;
+		return register(new DocumentChange<>(viewName, entity, EntityState.DIRTY));
 	}
 
 	/**
@@ -81,8 +134,7 @@ implements UnitOfWork
 	 */
 	public CassandraUnitOfWork<T> registerDeleted(String viewName, Document<T> entity)
 	{
-		changeSet.registerChange(new DocumentChange<>(viewName, entity, EntityState.DELETED));
-		return this;
+		return register(new DocumentChange<>(viewName, entity, EntityState.DELETED));
 	}
 
 	/**
@@ -95,7 +147,99 @@ implements UnitOfWork
 	 */
 	public CassandraUnitOfWork<T> registerClean(String viewName, Document<T> entity)
 	{
-		changeSet.registerChange(new DocumentChange<>(viewName, entity, EntityState.CLEAN));
+		if (entity.getIdentifier() != null)
+		{
+			changeSet.register(new DocumentChange<>(viewName, entity, EntityState.CLEAN));
+		}
+
+		return this;
+	}
+
+	/**
+	 * Registers the change, coalescing it with any earlier change to the same view and
+	 * identifier, and counts the statements that eliminates.
+	 * 
+	 * @see UnitOfWorkChangeSet
+	 */
+	private CassandraUnitOfWork<T> register(DocumentChange<T> change)
+	{
+		int eliminated = changeSet.register(change);
+
+		if (eliminated > 0 && writeStatistics != null)
+		{
+			writeStatistics.recordCoalesced(change.getView(), eliminated);
+		}
+
+		return this;
+	}
+
+	/**
+	 * @return the number of statements eliminated so far by coalescing changes to the same rows.
+	 */
+	public int getCoalescedCount()
+	{
+		return changeSet.getCoalescedCount();
+	}
+
+	/**
+	 * Registers writes that must succeed before any change is written, such as the chunks
+	 * a chunked document's manifest refers to. They're written concurrently, outside the
+	 * commit strategy (e.g. not in the batch), once the existence checks have passed.
+	 * 
+	 * @param statements idempotent writes.
+	 */
+	public CassandraUnitOfWork<T> registerPrerequisites(Collection<BoundStatement> statements)
+	{
+		prerequisites.addAll(statements);
+		return this;
+	}
+
+	/**
+	 * Registers a write issued after a successful commit, such as deleting the chunks that
+	 * a committed update superseded. Cleanup is best effort: its failure doesn't fail the
+	 * commit and, at worst, leaves unreferenced data behind.
+	 * 
+	 * @param statement an idempotent write.
+	 */
+	public CassandraUnitOfWork<T> registerCleanup(BoundStatement statement)
+	{
+		cleanups.add(statement);
+		return this;
+	}
+
+	/**
+	 * Registers the writes of a chunk set as prerequisites, for the view whose documents refer
+	 * to it. With UnitOfWorkType.CONDITIONAL, the chunk set is deleted again if the commit fails
+	 * and no row refers to it: when the view's create or update is rejected by a row that doesn't,
+	 * or its create is applied and then undone.
+	 * <p/>
+	 * The chunk set is only written if, once the changes are coalesced, a NEW or DIRTY document
+	 * of the view still refers to it. E.g. a document registered NEW then DELETED, or NEW then
+	 * DIRTY with other content, doesn't write the chunk set of the NEW document.
+	 * 
+	 * @param viewName the view whose documents refer to the chunk set, usually the primary table.
+	 * @param manifest the manifest of the chunk set.
+	 * @param writes idempotent writes of its chunks.
+	 * @param delete deletes the chunk set.
+	 */
+	public CassandraUnitOfWork<T> registerChunks(String viewName, ChunkManifest manifest, Collection<BoundStatement> writes, BoundStatement delete)
+	{
+		chunkSets.put(manifest.chunkSet(), new ChunkSet(viewName, List.copyOf(writes), delete));
+		return this;
+	}
+
+	/**
+	 * Registers the delete of a chunk set after a successful commit, like registerCleanup(). The
+	 * delete is skipped if the commit also writes the chunk set: chunk set ids are derived from
+	 * the document's identifier and content, so deleting and recreating the same content (or
+	 * updating back to it) reuses the chunk set.
+	 * 
+	 * @param manifest the manifest of the chunk set.
+	 * @param delete deletes the chunk set.
+	 */
+	public CassandraUnitOfWork<T> registerChunkCleanup(ChunkManifest manifest, BoundStatement delete)
+	{
+		chunkCleanups.put(manifest.chunkSet(), delete);
 		return this;
 	}
 
@@ -103,19 +247,232 @@ implements UnitOfWork
 	public void commit()
 	throws UnitOfWorkCommitException
 	{
-		List<CompletionStage<Boolean>> existence = new ArrayList<>();
-		List<BoundStatement> statements = new ArrayList<>();
+		try
+		{
+			commitAsync().join();
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof UnitOfWorkCommitException commitException)
+			{
+				throw commitException;
+			}
+
+			throw new UnitOfWorkCommitException(e.getCause());
+		}
+	}
+
+	/**
+	 * Commits the unit of work, and any children not yet committed, without blocking.
+	 * Existence checks for unique views are issued concurrently, for this unit of work and
+	 * all its children at once, and the statements of all of them are only submitted
+	 * together to this unit of work's commit strategy once all the checks have passed.
+	 * <p/>
+	 * With a ConditionalCommitStrategy (UnitOfWorkType.CONDITIONAL) there are no existence
+	 * checks: changes to unique views are written as lightweight transactions instead, and
+	 * the other statements only once those have been applied.
+	 * <p/>
+	 * Committing a unit of work that has already committed, by itself or with its root, does
+	 * nothing: its changes aren't written, nor its listeners notified, again. A commit that
+	 * failed can be retried.
+	 * 
+	 * @return a future that completes when the commit strategy has completed, or fails with
+	 * a UnitOfWorkCommitException (e.g. caused by a DuplicateItemException or ItemNotFoundException).
+	 */
+	public CompletableFuture<Void> commitAsync()
+	{
+		if (isCommitted) return CompletableFuture.completedFuture(null);
+
+		final ConditionalCommitStrategy conditional = (commitStrategy instanceof ConditionalCommitStrategy c ? c : null);
+		final PendingCommit pending = new PendingCommit();
+
+		try
+		{
+			collect(pending, conditional != null);
+		}
+		catch (RuntimeException e)
+		{
+			return CompletableFuture.failedFuture(e);
+		}
+
+		return handleExistenceChecks(pending.existence)
+			.thenCompose(v -> writePrerequisites(pending.prerequisites))
+			.thenCompose(v -> writeChanges(conditional, pending))
+			.thenRun(() -> afterCommit(pending));
+	}
+
+	/**
+	 * Generates the statements of this unit of work, starts its existence checks and adds
+	 * them to the pending commit, then does the same for each uncommitted child.
+	 */
+	private void collect(PendingCommit pending, boolean useConditionalWrites)
+	{
+		final List<BoundStatement> statements = new ArrayList<>();
+		final Map<String, List<DocumentChange<T>>> uniqueChanges = new LinkedHashMap<>();
+		changeSet.stream().forEach(documentChange -> {
+			if (isUnchanged(documentChange)) return;
+
+			DocumentStatementFactory<Document<T>> factory = statementFactory.factory(documentChange.getView());
+
+			if (factory.keys().isUnique())
+			{
+				if (useConditionalWrites)
+				{
+					generateConditionalWriteFor(factory, documentChange).ifPresent(pending.conditions::add);
+					return;
+				}
+
+				uniqueChanges.computeIfAbsent(documentChange.getView(), k -> new ArrayList<>()).add(documentChange);
+			}
+
+			generateStatementFor(factory, documentChange).ifPresent(statements::add);
+		});
+
+		if (useClientTimestamps)
+		{
+			applyWriteTimestamp(statements);
+		}
+
+		pending.existence.addAll(checkExistence(uniqueChanges));
+		pending.statements.addAll(statements);
+		pending.prerequisites.addAll(prerequisites);
+		chunkSets.forEach((id, chunks) -> {
+			if (!isReferenced(id, chunks)) return;
+
+			pending.prerequisites.addAll(chunks.writes());
+			pending.chunkSets.add(id);
+		});
+		pending.units.add(this);
+		children.stream()
+			.filter(child -> !child.isCommitted)
+			.forEach(child -> child.collect(pending, useConditionalWrites));
+	}
+
+	/**
+	 * @return whether a coalesced NEW or DIRTY document of the chunk set's view refers to it.
+	 */
+	private boolean isReferenced(UUID chunkSet, ChunkSet chunks)
+	{
+		return changeSet.stream()
+			.filter(change -> !change.isDeleted() && change.getView().equals(chunks.view()))
+			.map(change -> ChunkManifest.of(change.getEntity()))
+			.anyMatch(manifest -> manifest != null && manifest.chunkSet().equals(chunkSet));
+	}
+
+	/**
+	 * Marks every unit of the commit committed and issues their cleanups before notifying any
+	 * listener, so a listener that throws can't skip them. Every unit's listeners are notified,
+	 * then the first exception a listener threw, if any, is rethrown.
+	 */
+	private static void afterCommit(PendingCommit pending)
+	{
+		pending.units.forEach(unit -> {
+			unit.isCommitted = true;
+			unit.cleanUp(pending.chunkSets);
+		});
+
+		RuntimeException failure = null;
+
+		for (CassandraUnitOfWork<?> unit : pending.units)
+		{
+			try
+			{
+				unit.notifyListeners();
+			}
+			catch (RuntimeException e)
+			{
+				if (failure == null) failure = e;
+				else failure.addSuppressed(e);
+			}
+		}
+
+		if (failure != null) throw failure;
+	}
+
+	private CompletableFuture<?> writeChanges(ConditionalCommitStrategy conditional, PendingCommit pending)
+	{
+		if (conditional != null) return conditional.commit(pending.conditions, pending.statements);
+
+		return commitStrategy.commit(pending.statements);
+	}
+
+	private CompletableFuture<Void> writePrerequisites(List<BoundStatement> prerequisites)
+	{
+		if (prerequisites.isEmpty()) return CompletableFuture.completedFuture(null);
 
-		changeSet.stream().forEach(change -> {
-			checkExistence(session, (DocumentChange<T>) change).ifPresent(existence::add);
-			generateStatementFor((DocumentChange<T>) change).ifPresent(statements::add);
+		return AsyncWindow.map(prerequisites, PREREQUISITE_CONCURRENCY, session::executeAsync)
+			.handle((v, t) -> {
+				if (t != null) throw new UnitOfWorkCommitException(t instanceof CompletionException ? t.getCause() : t);
+				return null;
+			});
+	}
+
+	/**
+	 * @param written the chunk sets written by the commit, which must not be deleted.
+	 */
+	private void cleanUp(Set<UUID> written)
+	{
+		// Fire and forget: the commit has already succeeded.
+		cleanups.forEach(session::executeAsync);
+		chunkCleanups.forEach((chunkSet, delete) -> {
+			if (!written.contains(chunkSet)) session.executeAsync(delete);
 		});
+	}
 
-		handleExistenceChecks(existence);
+	/**
+	 * Writes the idempotent (non-LWT) statements of this unit of work with a client-side
+	 * timestamp instead of the coordinator's. The timestamp is chosen once, on the first
+	 * commit, so re-committing this unit of work after a failure re-issues identical writes
+	 * that can't overwrite anything written since. Lightweight transactions can't be given
+	 * a timestamp and are left as-is.
+	 * 
+	 * @return this unit of work.
+	 */
+	public CassandraUnitOfWork<T> withClientTimestamps()
+	{
+		this.useClientTimestamps = true;
+		return this;
+	}
 
-		commitStrategy
-			.commit(statements)
-			.join();
+	/**
+	 * Counts the dirty writes this unit of work drops because they would rewrite exactly
+	 * what's stored. The counts accumulate in the given statistics, which may be shared.
+	 * 
+	 * @return this unit of work.
+	 * @see ContentHash
+	 */
+	public CassandraUnitOfWork<T> withWriteStatistics(WriteStatistics statistics)
+	{
+		this.writeStatistics = statistics;
+		return this;
+	}
+
+	/**
+	 * A dirty document is unchanged if a clean document was registered for the same view and
+	 * identifier and they have the same content hash and bytes. Writing it would only create
+	 * new cells with identical values, so it's dropped.
+	 */
+	private boolean isUnchanged(DocumentChange<T> change)
+	{
+		if (!change.isDirty()) return false;
+
+		Document<T> clean = changeSet.findClean(change.getView(), change.getId());
+
+		if (!ContentHash.isUnchanged(statementFactory.keys(change.getView()), change.getEntity(), clean)) return false;
+
+		if (writeStatistics != null) writeStatistics.recordSkipped(change.getView());
+
+		return true;
+	}
+
+	private void applyWriteTimestamp(List<BoundStatement> statements)
+	{
+		if (writeTimestamp == Statement.NO_DEFAULT_TIMESTAMP)
+		{
+			writeTimestamp = WriteTimestamps.next();
+		}
+
+		statements.replaceAll(s -> (Boolean.TRUE.equals(s.isIdempotent()) ? s.setQueryTimestamp(writeTimestamp) : s));
 	}
 
 	@Override
@@ -125,39 +482,62 @@ implements UnitOfWork
         commitStrategy.rollback();
     }
 
-	private void handleExistenceChecks(List<CompletionStage<Boolean>> futures)
-	throws UnitOfWorkCommitException
+	private CompletableFuture<Void> handleExistenceChecks(List<CompletionStage<Boolean>> futures)
 	{
 		CompletableFuture<?>[] futuresArray = futures.stream()
 			.map(CompletionStage::toCompletableFuture)
 			.toArray(CompletableFuture[]::new);
 
-		CompletableFuture<Void> anyFailedFuture = CompletableFuture.allOf(futuresArray);
-
-		try
-		{
-			anyFailedFuture.exceptionally(t -> {
+		return CompletableFuture.allOf(futuresArray)
+			.exceptionally(t -> {
 				throw new UnitOfWorkCommitException(t.getCause());
-			}).join();
-		}
-		catch (CompletionException e)
-		{
-			throw (UnitOfWorkCommitException) e.getCause();
-		}
+			});
 	}
 
-	private Optional<CompletionStage<Boolean>> checkExistence(CqlSession session, final DocumentChange<T> change)
+	/**
+	 * Checks the existence rules for the changes to each unique view. Changes whose identifiers
+	 * share a partition are checked with a single key-only IN query.
+	 */
+	private List<CompletionStage<Boolean>> checkExistence(Map<String, List<DocumentChange<T>>> changesByView)
 	{
-		String viewName = change.getView();
+		List<CompletionStage<Boolean>> checks = new ArrayList<>();
 
-		if (statementFactory.isViewUnique(viewName))
-		{
-			return Optional.of(session.executeAsync(statementFactory.exists(viewName, change.getId()))
-				.thenApply(r -> r.one().getLong(0) > 0L)
-					.thenCompose(exists -> checkExistenceRules(change, exists)));
-		}
+		changesByView.forEach((viewName, changes) -> {
+			List<Identifier> ids = changes.stream().map(DocumentChange::getId).toList();
+			List<Integer> positions = new ArrayList<>(ids.size());
 
-		return Optional.empty();
+			for (int i = 0; i < ids.size(); i++)
+			{
+				positions.add(i);
+			}
+
+			KeyDefinition keys = statementFactory.keys(viewName);
+			PartitionBatches.of(keys, ids, positions, PartitionBatches.MAX_IN_CLAUSE_SIZE).forEach(batch -> {
+				if (batch.size() == 1)
+				{
+					DocumentChange<T> change = changes.get(batch.get(0));
+					checks.add(session.executeAsync(statementFactory.exists(viewName, change.getId()))
+						.thenApply(r -> r.one() != null)
+						.thenCompose(exists -> checkExistenceRules(change, exists)));
+				}
+				else
+				{
+					List<Identifier> batchIds = batch.stream().map(i -> KeyPropertyConverter.normalize(keys, ids.get(i))).distinct().toList();
+					checks.add(session.executeAsync(statementFactory.existsIn(viewName, batchIds))
+						.thenApply(rs -> {
+							Set<Identifier> found = new HashSet<>();
+							rs.currentPage().forEach(row -> found.add(KeyPropertyConverter.normalize(keys, KeyPropertyConverter.identifier(keys, row))));
+							return found;
+						})
+						.thenCompose(found -> CompletableFuture.allOf(batch.stream()
+							.map(i -> checkExistenceRules(changes.get(i), found.contains(KeyPropertyConverter.normalize(keys, ids.get(i)))).toCompletableFuture())
+							.toArray(CompletableFuture[]::new))
+						.thenApply(v -> Boolean.TRUE)));
+				}
+			});
+		});
+
+		return checks;
 	}
 
 	private CompletionStage<Boolean> checkExistenceRules(Change<Document<T>> change, boolean exists)
@@ -180,18 +560,48 @@ implements UnitOfWork
 		return result;
 	}
 
-	private Optional<BoundStatement> generateStatementFor(DocumentChange<T> change)
+	private Optional<BoundStatement> generateStatementFor(DocumentStatementFactory<Document<T>> factory, DocumentChange<T> change)
+	{
+		switch(change.getState())
+		{
+			case DELETED:
+				return Optional.of(factory.delete(change.getId()));
+			case DIRTY:
+				return Optional.of(factory.update(change.getEntity()));
+			case NEW:
+				return Optional.of(factory.create(change.getEntity()));
+			default:
+				break;
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * A lightweight transaction for a change to a unique view. A created row is deleted again
+	 * if another conditional write of the commit is rejected, then the chunk set registered for
+	 * it, if any. The chunk set of a rejected create is deleted unless the existing row refers
+	 * to it (i.e. it has the same identifier and content), and that of a rejected update always:
+	 * the row doesn't exist, and the chunk set id is derived from its identifier.
+	 */
+	private Optional<ConditionalWrite> generateConditionalWriteFor(DocumentStatementFactory<Document<T>> factory, DocumentChange<T> change)
 	{
-		String viewName = change.getView();
+		final ChunkManifest manifest = (change.isDeleted() || chunkSets.isEmpty() ? null : ChunkManifest.of(change.getEntity()));
+		final ChunkSet chunks = (manifest == null ? null : chunkSets.get(manifest.chunkSet()));
+		final BoundStatement chunkDelete = (chunks != null && chunks.view().equals(change.getView()) ? chunks.delete() : null);
 
 		switch(change.getState())
 		{
 			case DELETED:
-				return Optional.of(statementFactory.delete(viewName, change.getId()));
+				return Optional.of(new ConditionalWrite(factory.deleteIfExists(change.getId()), change.getState(), change.getId(), null));
 			case DIRTY:
-				return Optional.of(statementFactory.update(viewName, change.getEntity()));
+				return Optional.of(new ConditionalWrite(factory.updateIfExists(change.getEntity()), change.getState(), change.getId(), null,
+					(chunkDelete == null ? null : row -> chunkDelete)));
 			case NEW:
-				return Optional.of(statementFactory.create(viewName, change.getEntity()));
+				BoundStatement undo = factory.deleteIfExists(change.getId());
+				return Optional.of(new ConditionalWrite(factory.createIfNotExists(change.getEntity()), change.getState(), change.getId(),
+					(chunkDelete == null ? List.of(undo) : List.of(undo, chunkDelete)),
+					(chunkDelete == null ? null : row -> (refersTo(row, manifest) ? null : chunkDelete))));
 			default:
 				break;
 		}
@@ -199,11 +609,64 @@ implements UnitOfWork
 		return Optional.empty();
 	}
 
+	/**
+	 * @return whether the row a rejected create returned refers to the chunk set. If the row
+	 * or its metadata is missing, it's assumed to.
+	 */
+	private static boolean refersTo(Row row, ChunkManifest manifest)
+	{
+		if (row == null || !row.getColumnDefinitions().contains(Columns.METADATA)) return true;
+
+		Map<String, String> metadata = row.getMap(Columns.METADATA, String.class, String.class);
+
+		if (metadata == null) return false;
+
+		ChunkManifest stored = ChunkManifest.parse(metadata.get(ChunkManifest.METADATA_KEY));
+		return (stored != null && stored.chunkSet().equals(manifest.chunkSet()));
+	}
+
+	/**
+	 * Adds a listener that is notified of each change after a successful commit.
+	 * Adding the same listener instance more than once has no effect.
+	 * 
+	 * @param listener the listener to add.
+	 */
+	public CassandraUnitOfWork<T> withListener(CommitListener<T> listener)
+	{
+		if (!listeners.contains(listener))
+		{
+			listeners.add(listener);
+		}
+
+		return this;
+	}
+
+	private void notifyListeners()
+	{
+		if (listeners.isEmpty()) return;
+
+		changeSet.stream().forEach(change ->
+			listeners.forEach(l -> l.afterCommit(change))
+		);
+	}
+
 	public Document<T> readClean(Identifier id)
 	{
 		return changeSet.findClean(id);
 	}
 
+	/**
+	 * @return the clean document registered for the view and identifier, or null.
+	 */
+	public Document<T> readClean(String viewName, Identifier id)
+	{
+		return changeSet.findClean(viewName, id);
+	}
+
+	/**
+	 * Adds a unit of work, e.g. for another repository, whose changes are committed together
+	 * with this one's when this unit of work commits.
+	 */
 	public <U extends Identifiable> CassandraUnitOfWork<T> addChild(CassandraUnitOfWork<U> child)
 	{
 		child.setRoot(false);
@@ -214,6 +677,11 @@ implements UnitOfWork
 	public <U extends Identifiable> CassandraUnitOfWork<U> newChild(CassandraStatementFactory<Document<U>> statementFactory)
 	{
 		CassandraUnitOfWork<U> child = new CassandraUnitOfWork<>(session, statementFactory, unitOfWorkType);
+
+		if (useClientTimestamps) child.withClientTimestamps();
+
+		child.withWriteStatistics(writeStatistics);
+
 		addChild(child);
 		return child;
 	}
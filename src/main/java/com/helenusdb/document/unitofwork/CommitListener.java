@@ -0,0 +1,21 @@
+package com.helenusdb.document.unitofwork;
+
+import com.helenusdb.core.Identifiable;
+
+/**
+ * Notified once for each change in a CassandraUnitOfWork after the unit of work
+ * has committed successfully. Not called if the commit fails.
+ *
+ * @param <T> the type of entity contained in the changed documents.
+ * @see CassandraUnitOfWork#withListener(CommitListener)
+ */
+@FunctionalInterface
+public interface CommitListener<T extends Identifiable>
+{
+	/**
+	 * Called after a successful commit for each NEW, DIRTY or DELETED change.
+	 * 
+	 * @param change the committed change.
+	 */
+	void afterCommit(DocumentChange<T> change);
+}
@@ -0,0 +1,248 @@
+package com.helenusdb.document.unitofwork;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.helenusdb.core.Identifier;
+import com.helenusdb.transact.EntityState;
+import com.helenusdb.transact.exception.UnitOfWorkCommitException;
+import com.helenusdb.transact.exception.UnitOfWorkRollbackException;
+import com.strategicgains.noschema.exception.DuplicateItemException;
+import com.strategicgains.noschema.exception.ItemNotFoundException;
+
+/**
+ * Commits the changes to unique tables as lightweight transactions (INSERT IF NOT EXISTS,
+ * UPDATE IF EXISTS, DELETE IF EXISTS) instead of checking existence before writing. The
+ * conditional writes are issued concurrently and their wasApplied() results decide the
+ * commit: a rejected create fails with DuplicateItemException, a rejected update or delete
+ * with ItemNotFoundException. Only once every conditional write has been applied are the
+ * remaining (dependent) statements, e.g. those of non-unique views and indexes, committed
+ * with the delegate strategy. If that fails, the conditional writes are compensated as if one
+ * had been rejected.
+ * <p/>
+ * Lightweight transactions can't span partitions, so the conditional writes aren't atomic
+ * with each other. If one is rejected, the rows this commit created are deleted again, then
+ * what was written for them beforehand (e.g. their chunks). Applied updates and deletes can't
+ * be undone. What was written beforehand for a rejected write is deleted too, unless the row
+ * that rejected it refers to it.
+ *
+ * @see UnitOfWorkType#CONDITIONAL
+ */
+public class ConditionalCommitStrategy
+implements UnitOfWorkCommitStrategy
+{
+	/**
+	 * A conditional write of a change to a unique table.
+	 *
+	 * @param statement the lightweight transaction.
+	 * @param state the state of the change, which determines the exception if it isn't applied.
+	 * @param id the identifier of the row.
+	 * @param compensations undo the write, in order, if it's applied and another conditional write
+	 * is rejected. Empty if it can't be undone.
+	 * @param rejection given the row a rejected write returns (or null), the write that undoes what
+	 * was written for it beforehand, or null if there's nothing to undo.
+	 */
+	public record ConditionalWrite(BoundStatement statement, EntityState state, Identifier id, List<BoundStatement> compensations, Function<Row, BoundStatement> rejection)
+	{
+		public ConditionalWrite
+		{
+			compensations = (compensations == null ? Collections.emptyList() : List.copyOf(compensations));
+		}
+
+		/**
+		 * A write whose only compensation, if any, is the given statement.
+		 */
+		public ConditionalWrite(BoundStatement statement, EntityState state, Identifier id, BoundStatement compensation)
+		{
+			this(statement, state, id, (compensation == null ? null : List.of(compensation)), null);
+		}
+	}
+
+	private CqlSession session;
+	// Commits the dependent statements, once the conditional writes have been applied.
+	private UnitOfWorkCommitStrategy dependents;
+
+	public ConditionalCommitStrategy(CqlSession session, UnitOfWorkCommitStrategy dependents)
+	{
+		super();
+		this.session = Objects.requireNonNull(session);
+		this.dependents = Objects.requireNonNull(dependents);
+	}
+
+	/**
+	 * Commits statements without conditions using the delegate strategy.
+	 */
+	@Override
+	public CompletableFuture<?> commit(List<BoundStatement> statements)
+	throws UnitOfWorkCommitException
+	{
+		return dependents.commit(statements);
+	}
+
+	/**
+	 * Issues the conditional writes concurrently, then commits the dependent statements if
+	 * all of them were applied.
+	 *
+	 * @param conditions the writes to unique tables.
+	 * @param statements the dependent writes.
+	 * @return a future that fails with a UnitOfWorkCommitException if any conditional write
+	 * was rejected or failed, or if committing the dependent writes failed.
+	 */
+	public CompletableFuture<?> commit(List<ConditionalWrite> conditions, List<BoundStatement> statements)
+	throws UnitOfWorkCommitException
+	{
+		if (conditions.isEmpty()) return commit(statements);
+
+		final List<CompletableFuture<AsyncResultSet>> results = conditions.stream()
+			.map(c -> session.executeAsync(c.statement()).toCompletableFuture())
+			.toList();
+
+		return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+			.handle((v, t) -> {
+				final Throwable failure = firstFailure(conditions, results);
+
+				if (failure == null) return commitDependents(conditions, results, statements);
+
+				return fail(conditions, results, failure);
+			})
+			.thenCompose(Function.identity());
+	}
+
+	/**
+	 * Commits the dependent statements once every conditional write has been applied. If that
+	 * fails, the conditional writes are undone as if one had been rejected.
+	 */
+	private CompletableFuture<Void> commitDependents(List<ConditionalWrite> conditions, List<CompletableFuture<AsyncResultSet>> results, List<BoundStatement> statements)
+	{
+		CompletableFuture<?> committed;
+
+		try
+		{
+			committed = dependents.commit(statements);
+		}
+		catch (RuntimeException e)
+		{
+			committed = CompletableFuture.failedFuture(e);
+		}
+
+		return committed
+			.handle((r, t) -> {
+				if (t == null) return CompletableFuture.<Void>completedFuture(null);
+
+				return fail(conditions, results, (t instanceof CompletionException && t.getCause() != null ? t.getCause() : t));
+			})
+			.thenCompose(Function.identity());
+	}
+
+	/**
+	 * Compensates the conditional writes, then fails with a UnitOfWorkCommitException.
+	 */
+	private CompletableFuture<Void> fail(List<ConditionalWrite> conditions, List<CompletableFuture<AsyncResultSet>> results, Throwable failure)
+	{
+		return compensate(conditions, results)
+			.<Void>thenApply(ignored -> {
+				if (failure instanceof UnitOfWorkCommitException e) throw e;
+
+				throw new UnitOfWorkCommitException(failure);
+			});
+	}
+
+	/**
+	 * @return the exception for the first conditional write that failed or wasn't applied, or null.
+	 */
+	private Throwable firstFailure(List<ConditionalWrite> conditions, List<CompletableFuture<AsyncResultSet>> results)
+	{
+		for (int i = 0; i < conditions.size(); i++)
+		{
+			CompletableFuture<AsyncResultSet> result = results.get(i);
+
+			if (result.isCompletedExceptionally())
+			{
+				try
+				{
+					result.join();
+				}
+				catch (CompletionException e)
+				{
+					return e.getCause();
+				}
+			}
+
+			if (!result.join().wasApplied()) return notApplied(conditions.get(i));
+		}
+
+		return null;
+	}
+
+	private RuntimeException notApplied(ConditionalWrite write)
+	{
+		if (write.state() == EntityState.NEW)
+		{
+			return new DuplicateItemException(write.id().toString());
+		}
+
+		return new ItemNotFoundException(write.id().toString());
+	}
+
+	/**
+	 * Undoes the conditional writes known to have been applied, and what was written for the
+	 * rejected ones. Writes that failed (e.g. timed out) may or may not have been applied, so
+	 * they're left alone. Best effort: failures of the compensating writes are ignored, and
+	 * a write's later compensations are skipped once one fails.
+	 */
+	private CompletableFuture<Void> compensate(List<ConditionalWrite> conditions, List<CompletableFuture<AsyncResultSet>> results)
+	{
+		final List<CompletableFuture<?>> undone = new ArrayList<>();
+
+		for (int i = 0; i < conditions.size(); i++)
+		{
+			CompletableFuture<AsyncResultSet> result = results.get(i);
+
+			if (result.isCompletedExceptionally()) continue;
+
+			ConditionalWrite write = conditions.get(i);
+			AsyncResultSet rs = result.join();
+
+			if (rs.wasApplied())
+			{
+				undone.add(executeInOrder(write.compensations()));
+			}
+			else if (write.rejection() != null)
+			{
+				BoundStatement undo = write.rejection().apply(rs.one());
+
+				if (undo != null) undone.add(executeInOrder(List.of(undo)));
+			}
+		}
+
+		return CompletableFuture.allOf(undone.toArray(CompletableFuture[]::new));
+	}
+
+	private CompletableFuture<Void> executeInOrder(List<BoundStatement> statements)
+	{
+		CompletableFuture<Void> executed = CompletableFuture.completedFuture(null);
+
+		for (BoundStatement statement : statements)
+		{
+			executed = executed.thenCompose(v -> session.executeAsync(statement).toCompletableFuture().<Void>thenApply(rs -> null));
+		}
+
+		return executed.exceptionally(t -> null);
+	}
+
+	@Override
+	public void rollback()
+	throws UnitOfWorkRollbackException
+	{
+		dependents.rollback();
+	}
+}
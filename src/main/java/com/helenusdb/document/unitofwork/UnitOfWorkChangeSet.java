@@ -1,62 +1,158 @@
 package com.helenusdb.document.unitofwork;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import com.helenusdb.core.Identifiable;
 import com.helenusdb.core.Identifier;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyPropertyConverter;
+import com.helenusdb.transact.EntityState;
+import com.strategicgains.noschema.document.Document;
 
 /**
- * This class provides transactional context for managing database changes. It allows
- * registering new entities, marking entities as "dirty" or "deleted". Commit and
- * rollback are left for extenders of the class.
+ * The changes registered with a CassandraUnitOfWork, coalesced per view and identifier so each
+ * row is written at most once per commit. A change registered for a row that already has one
+ * is merged with it:
+ * <ul>
+ * <li>NEW then DIRTY is a NEW of the dirty document: one insert of the latest content.</li>
+ * <li>NEW then DELETED is nothing: the row was never stored.</li>
+ * <li>DELETED then NEW is a DIRTY of the new document: the row is stored until the commit, so it's overwritten.</li>
+ * <li>DELETED then DIRTY is rejected with an IllegalStateException: the update would resurrect the row.</li>
+ * <li>Otherwise the later change replaces the earlier one, e.g. the last of several DIRTY documents is written.</li>
+ * </ul>
+ * CLEAN documents are kept apart, as the stored state dirty documents are compared against.
+ * They're never written.
+ *
+ * @param <T> the type of entity contained in the documents.
  */
 public class UnitOfWorkChangeSet<T extends Identifiable>
 {
-	// This identity map is used to keep track of entities that have changed and
-	// need to be persisted during the transaction.
-	private Map<Identifier, EntityChanges<T>> changes = new HashMap<>();
+	private record ViewKey(String view, Identifier id) {}
+
+	// The key definition of each view, by name, used to normalize identifiers.
+	private final Function<String, KeyDefinition> keys;
+	// The coalesced changes, in the order their rows were first registered.
+	private final Map<ViewKey, DocumentChange<T>> changes = new LinkedHashMap<>();
+	// The clean (as stored) documents, by view and identifier.
+	private final Map<ViewKey, Document<T>> cleanDocuments = new HashMap<>();
+	// The number of statements that coalescing has eliminated.
+	private int coalesced;
 
 	/**
-	 * Returns a stream containing all the changed entities (excluding CLEAN).
+	 * @param keys returns the key definition of a view, by name.
 	 */
-	public Stream<Change<T>> stream()
+	public UnitOfWorkChangeSet(Function<String, KeyDefinition> keys)
 	{
-	    return changes.values().stream().flatMap(s -> s.asChange().stream());
+		super();
+		this.keys = keys;
 	}
 
-	public UnitOfWorkChangeSet<T> registerChange(Change<T> change)
+	/**
+	 * Registers the change, merging it with any change already registered for its row.
+	 *
+	 * @param change the change to register.
+	 * @return the number of statements eliminated by merging: 0, 1 or, for NEW then DELETED, 2.
+	 * @throws IllegalStateException if the change updates a row already registered as deleted.
+	 */
+	public int register(DocumentChange<T> change)
 	{
-		EntityChanges<T> changeSet = getChangesFor(change.getEntity());
-		changeSet.add(change);
-		return this;
+		final ViewKey key = key(change.getView(), change.getId());
+
+		if (change.getState() == EntityState.CLEAN)
+		{
+			cleanDocuments.put(key, change.getEntity());
+			return 0;
+		}
+
+		final DocumentChange<T> previous = changes.get(key);
+
+		if (previous == null)
+		{
+			changes.put(key, change);
+			return 0;
+		}
+
+		final DocumentChange<T> merged = coalesce(previous, change);
+
+		if (merged == null)
+		{
+			changes.remove(key);
+			coalesced += 2;
+			return 2;
+		}
+
+		changes.put(key, merged);
+		++coalesced;
+		return 1;
 	}
 
-    /**
-     * Clears or deregisters all the previously-registered changes and resets the unit of work to it's initial, empty state.
-     */
-    public void reset()
+	/**
+	 * @return the merged change, or null if the two cancel out.
+	 * @throws IllegalStateException if next is DIRTY and previous DELETED.
+	 */
+	static <T extends Identifiable> DocumentChange<T> coalesce(DocumentChange<T> previous, DocumentChange<T> next)
 	{
-		changes.clear();
+		if (previous.isNew())
+		{
+			if (next.isDeleted()) return null;
+			if (next.isDirty()) return new DocumentChange<>(next.getView(), next.getEntity(), EntityState.NEW);
+		}
+		else if (previous.isDeleted())
+		{
+			if (next.isNew()) return new DocumentChange<>(next.getView(), next.getEntity(), EntityState.DIRTY);
+			if (next.isDirty()) throw new IllegalStateException("Cannot update deleted document: " + next.getView() + " " + next.getId());
+		}
+
+		return next;
 	}
 
-	private EntityChanges<T> getChangesFor(T entity)
+	/**
+	 * @return the coalesced NEW, DIRTY and DELETED changes.
+	 */
+	public Stream<DocumentChange<T>> stream()
 	{
-		return changes.computeIfAbsent(entity.getIdentifier(), a -> new EntityChanges<>());
+		return changes.values().stream();
 	}
 
-	public T findClean(Identifier id)
+	/**
+	 * @return the clean document registered for the view and identifier, or null.
+	 */
+	public Document<T> findClean(String view, Identifier id)
 	{
-		EntityChanges<T> s = changes.get(id);
+		return (cleanDocuments.isEmpty() ? null : cleanDocuments.get(key(view, id)));
+	}
 
-		if (s != null)
-		{
-			Change<T> change = s.get(EntityState.CLEAN);
+	/**
+	 * @return a clean document registered with the identifier, in any view, or null.
+	 */
+	public Document<T> findClean(Identifier id)
+	{
+		return cleanDocuments.entrySet().stream()
+			.filter(e -> e.getKey().equals(key(e.getKey().view(), id)))
+			.map(Map.Entry::getValue)
+			.findFirst()
+			.orElse(null);
+	}
 
-			if (change != null) return change.getEntity();
-		}
+	/**
+	 * @return the number of statements eliminated by coalescing so far.
+	 */
+	public int getCoalescedCount()
+	{
+		return coalesced;
+	}
 
-		return null;
+	public int size()
+	{
+		return changes.size();
+	}
+
+	private ViewKey key(String view, Identifier id)
+	{
+		return new ViewKey(view, KeyPropertyConverter.normalize(keys.apply(view), id));
 	}
 }
@@ -7,7 +7,9 @@ public enum UnitOfWorkType
 {
 	ASYNC,
 	LOGGED,
-	UNLOGGED;
+	UNLOGGED,
+	// Lightweight transactions on unique tables, then a LOGGED batch of the rest. See ConditionalCommitStrategy.
+	CONDITIONAL;
 
 	public UnitOfWorkCommitStrategy asCommitStrategy(CqlSession session)
 	{
@@ -19,6 +21,8 @@ public enum UnitOfWorkType
 			return new BatchCommitStrategy(BatchType.LOGGED, session);
 		case UNLOGGED:
 			return new BatchCommitStrategy(BatchType.UNLOGGED, session);
+		case CONDITIONAL:
+			return new ConditionalCommitStrategy(session, new BatchCommitStrategy(BatchType.LOGGED, session));
 		}
 
 		return null;
@@ -0,0 +1,81 @@
+package com.helenusdb.document.unitofwork;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, per table, the writes that were dropped because they wouldn't have changed
+ * the stored row, and the statements eliminated by coalescing several changes to the
+ * same row within a unit of work. Safe to share across units of work and threads.
+ * 
+ * @see com.helenusdb.document.document.ContentHash
+ */
+public class WriteStatistics
+{
+	// Skipped writes, by table, view or index name.
+	private final Map<String, LongAdder> skipped = new ConcurrentHashMap<>();
+	// Statements eliminated by coalescing, by table, view or index name.
+	private final Map<String, LongAdder> coalesced = new ConcurrentHashMap<>();
+
+	public void recordSkipped(String tableName)
+	{
+		skipped.computeIfAbsent(tableName, k -> new LongAdder()).increment();
+	}
+
+	/**
+	 * @return the number of writes skipped for the table, view or index.
+	 */
+	public long getSkipped(String tableName)
+	{
+		LongAdder count = skipped.get(tableName);
+		return (count != null ? count.sum() : 0L);
+	}
+
+	/**
+	 * @return the total number of writes skipped across all tables.
+	 */
+	public long getTotalSkipped()
+	{
+		return skipped.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	/**
+	 * @return a snapshot of the skipped writes, by table name.
+	 */
+	public Map<String, Long> getSkippedByTable()
+	{
+		Map<String, Long> snapshot = new TreeMap<>();
+		skipped.forEach((table, count) -> snapshot.put(table, count.sum()));
+		return snapshot;
+	}
+
+	public void recordCoalesced(String tableName, int statements)
+	{
+		coalesced.computeIfAbsent(tableName, k -> new LongAdder()).add(statements);
+	}
+
+	/**
+	 * @return the number of statements eliminated by coalescing for the table, view or index.
+	 */
+	public long getCoalesced(String tableName)
+	{
+		LongAdder count = coalesced.get(tableName);
+		return (count != null ? count.sum() : 0L);
+	}
+
+	/**
+	 * @return the total number of statements eliminated by coalescing across all tables.
+	 */
+	public long getTotalCoalesced()
+	{
+		return coalesced.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	public void reset()
+	{
+		skipped.clear();
+		coalesced.clear();
+	}
+}
@@ -0,0 +1,24 @@
+package com.helenusdb.document.unitofwork;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates client-side write timestamps, in microseconds since the epoch, that are strictly
+ * increasing within this JVM even if several are requested in the same microsecond or the
+ * system clock steps backwards.
+ */
+final class WriteTimestamps
+{
+	private static final AtomicLong LAST = new AtomicLong();
+
+	private WriteTimestamps()
+	{
+		// Prevents instantiation.
+	}
+
+	static long next()
+	{
+		long now = System.currentTimeMillis() * 1000L;
+		return LAST.updateAndGet(last -> Math.max(now, last + 1));
+	}
+}
@@ -1,5 +1,9 @@
 package com.strategicgains.noschema.document;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
 import com.helenusdb.core.Identifiable;
 import com.helenusdb.core.Identifier;
 import com.helenusdb.core.exception.InvalidIdentifierException;
@@ -16,6 +20,7 @@ import com.helenusdb.document.exception.KeyDefinitionException;
 public abstract class AbstractDocumentFactory<T extends Identifiable>
 {
 	private ObjectCodec<T> codec;
+	private BufferPool bufferPool = BufferPool.shared();
 
 	protected AbstractDocumentFactory(ObjectCodec<T> codec)
 	{
@@ -28,11 +33,47 @@ public abstract class AbstractDocumentFactory<T extends Identifiable>
 		this.codec = objectCodec;
 	}
 
+	/**
+	 * Sets the pool of buffers used to serialize with a StreamingObjectCodec.
+	 * Defaults to BufferPool.shared().
+	 */
+	public void setBufferPool(BufferPool bufferPool)
+	{
+		this.bufferPool = bufferPool;
+	}
+
 	public Document<T> asDocument(T entity)
 	throws InvalidIdentifierException, KeyDefinitionException
 	{
-		byte[] bson = codec.serialize(entity);
-		return asDocument(entity, bson);
+		if (codec instanceof StreamingObjectCodec<T> streaming) return asDocument(entity, serialize(streaming, entity));
+
+		return asDocument(entity, codec.serialize(entity));
+	}
+
+	/**
+	 * Serializes the entity into a pooled buffer. The bytes must outlive the buffer, as they're
+	 * bound to statements that execute asynchronously, so the pool hands over the buffer's array
+	 * when that wastes little of it and copies small objects out otherwise.
+	 * 
+	 * @see BufferPool#takeBytes(PooledOutputStream)
+	 */
+	private ByteBuffer serialize(StreamingObjectCodec<T> streaming, T entity)
+	{
+		PooledOutputStream out = bufferPool.acquire();
+
+		try
+		{
+			streaming.serialize(entity, out);
+			return bufferPool.takeBytes(out);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			bufferPool.release(out);
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -43,10 +84,25 @@ public abstract class AbstractDocumentFactory<T extends Identifiable>
 		return new Document<>(id, bytes, (Class<T>) entity.getClass());		
 	}
 
+	/**
+	 * Creates a document for the entity with an already-serialized object, without copying it.
+	 * 
+	 * @see Document#setObject(ByteBuffer)
+	 */
+	public Document<T> asDocument(T entity, ByteBuffer buffer)
+	throws InvalidIdentifierException, KeyDefinitionException
+	{
+		Document<T> document = asDocument(entity, (byte[]) null);
+		document.setObject(buffer);
+		return document;
+	}
+
 	@SuppressWarnings("unchecked")
 	public T asPojo(Document<T> document)
 	{
-		return codec.deserialize(document.getObject(), (Class<T>) document.getTypeAsClass());
+		ByteBuffer buffer = document.getObjectBuffer();
+		Class<T> type = (Class<T>) document.getTypeAsClass();
+		return (buffer != null ? codec.deserialize(buffer, type) : codec.deserialize((byte[]) null, type));
 	}
 
 	protected abstract Identifier extractIdentifier(T entity)
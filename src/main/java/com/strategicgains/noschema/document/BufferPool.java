@@ -0,0 +1,120 @@
+package com.strategicgains.noschema.document;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of growable serialization buffers. acquire() reuses a pooled buffer if one
+ * is available or allocates a new one otherwise. release() returns it to the pool unless the
+ * pool is full or the buffer has grown beyond maxRetainedCapacity, so an occasional huge
+ * document doesn't pin a huge array.
+ * <p/>
+ * The pool counts hits (reused buffers) and misses (new allocations) so its sizing can be
+ * checked in production with hitRate().
+ */
+public class BufferPool
+{
+	private static final BufferPool SHARED = new BufferPool(64, 8 * 1024, 1024 * 1024);
+
+	private final BlockingQueue<PooledOutputStream> buffers;
+	private final int initialCapacity;
+	private final int maxRetainedCapacity;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param maxBuffers the most buffers retained by the pool.
+	 * @param initialCapacity the initial size of newly-allocated buffers, in bytes.
+	 * @param maxRetainedCapacity buffers that have grown beyond this size are not returned to the pool.
+	 */
+	public BufferPool(int maxBuffers, int initialCapacity, int maxRetainedCapacity)
+	{
+		super();
+		this.buffers = new ArrayBlockingQueue<>(maxBuffers);
+		this.initialCapacity = initialCapacity;
+		this.maxRetainedCapacity = maxRetainedCapacity;
+	}
+
+	/**
+	 * @return the pool used by document factories unless one is set explicitly.
+	 */
+	public static BufferPool shared()
+	{
+		return SHARED;
+	}
+
+	public PooledOutputStream acquire()
+	{
+		PooledOutputStream buffer = buffers.poll();
+
+		if (buffer != null)
+		{
+			hits.increment();
+			return buffer;
+		}
+
+		misses.increment();
+		return new PooledOutputStream(initialCapacity);
+	}
+
+	/**
+	 * Takes the bytes written to the buffer, in a form that's safe to keep after it's released.
+	 * If the pool wouldn't retain the buffer's array anyway (it has grown beyond
+	 * maxRetainedCapacity) or the bytes fill at least three quarters of it, the array itself is
+	 * handed over as a read-only view and the buffer gets a new one of the initial capacity.
+	 * Otherwise the bytes are copied out at their exact size, so a small object doesn't pin a
+	 * large array, and the buffer keeps its array.
+	 * 
+	 * @param buffer a buffer acquired from this pool, which must still be released.
+	 * @return the bytes written.
+	 */
+	public ByteBuffer takeBytes(PooledOutputStream buffer)
+	{
+		final int capacity = buffer.capacity();
+
+		if (capacity > maxRetainedCapacity || buffer.size() >= capacity - (capacity >> 2))
+		{
+			return buffer.detach(initialCapacity);
+		}
+
+		return ByteBuffer.wrap(buffer.toByteArray()).asReadOnlyBuffer();
+	}
+
+	public void release(PooledOutputStream buffer)
+	{
+		if (buffer.capacity() > maxRetainedCapacity) return;
+
+		buffer.reset();
+		buffers.offer(buffer);
+	}
+
+	public long hits()
+	{
+		return hits.sum();
+	}
+
+	public long misses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * @return the fraction of acquire() calls satisfied from the pool, or zero if there were none.
+	 */
+	public double hitRate()
+	{
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return (total == 0 ? 0.0 : (double) h / total);
+	}
+
+	/**
+	 * @return the number of buffers currently available in the pool.
+	 */
+	public int available()
+	{
+		return buffers.size();
+	}
+}
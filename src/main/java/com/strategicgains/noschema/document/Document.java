@@ -1,5 +1,6 @@
 package com.strategicgains.noschema.document;
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -38,6 +39,12 @@ implements Identifiable
 	 */
 	private byte[] bytes;
 
+	/**
+	 * The serialized contents as a read-only buffer, when set from one (e.g. read from the database).
+	 * Copied into bytes only if getObject() is called.
+	 */
+	private ByteBuffer buffer;
+
 	/**
 	 * The fully-qualified class name of the object wrapped by this document. This is used to instantiate the
 	 * bytes as a POJO
@@ -136,19 +143,54 @@ implements Identifiable
 	 */
 	public boolean hasObject()
 	{
-		return (bytes != null);
+		return (bytes != null || buffer != null);
 	}
 
 	/**
-	 * Returns the serialized data contained in this document.
+	 * Returns the serialized data contained in this document. If the document was created
+	 * from a ByteBuffer, this copies its contents into a byte array on first call. Prefer
+	 * getObjectBuffer() to avoid the copy.
 	 * 
 	 * @return The serialized object in the document.
 	 */
 	public byte[] getObject()
 	{
+		if (bytes == null && buffer != null)
+		{
+			byte[] copy = new byte[buffer.remaining()];
+			buffer.duplicate().get(copy);
+			bytes = copy;
+		}
+
 		return bytes;
 	}
 
+	/**
+	 * Returns the serialized data contained in this document as a read-only buffer, without
+	 * copying it. The buffer's position is zero and its limit is the size of the object.
+	 * 
+	 * @return The serialized object in the document, or null if there is none.
+	 */
+	public ByteBuffer getObjectBuffer()
+	{
+		if (buffer != null) return buffer.duplicate();
+		if (bytes != null) return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+
+		return null;
+	}
+
+	/**
+	 * Returns the size of the serialized object, in bytes, without copying it.
+	 * 
+	 * @return the size of the serialized object, or zero if there is none.
+	 */
+	public int getObjectSize()
+	{
+		if (buffer != null) return buffer.remaining();
+
+		return (bytes != null ? bytes.length : 0);
+	}
+
 	/**
 	 * Sets the serialized object for the document.
 	 * 
@@ -157,6 +199,20 @@ implements Identifiable
 	public void setObject(byte[] serialized)
 	{
 		this.bytes = serialized;
+		this.buffer = null;
+	}
+
+	/**
+	 * Sets the serialized object for the document from the remaining bytes of a buffer, without
+	 * copying them. The document keeps a read-only view of the buffer, so the caller must not
+	 * modify its contents afterward. The buffer's position and limit are not changed.
+	 * 
+	 * @param serialized The serialized byte data to be set.
+	 */
+	public void setObject(ByteBuffer serialized)
+	{
+		this.buffer = (serialized != null ? serialized.slice().asReadOnlyBuffer() : null);
+		this.bytes = null;
 	}
 
 	/**
@@ -273,7 +329,7 @@ implements Identifiable
 	@Override
 	public String toString()
 	{
-		return "Document{" + "id=" + identifier.toString() + ", object=" + getObject() + ", type=" + type
+		return "Document{" + "id=" + identifier.toString() + ", object=" + getObjectSize() + " bytes, type=" + type
 			+ ", createdAt=" + getCreatedAt() + ", updatedAt=" + getUpdatedAt() + "}";
 	}
 }
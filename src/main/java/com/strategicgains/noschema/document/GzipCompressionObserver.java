@@ -19,7 +19,10 @@ import com.helenusdb.core.exception.HelenusdbException;
  * 
  * @see DocumentObserver
  * @author Todd Fredrich
+ * @deprecated Use {@link com.helenusdb.document.compression.CompressingObjectCodec}, which skips small payloads,
+ * supports faster algorithms and still reads payloads gzipped by this observer.
  */
+@Deprecated
 public class GzipCompressionObserver
 extends AbstractDocumentObserver
 {
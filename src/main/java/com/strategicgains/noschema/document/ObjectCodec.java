@@ -1,7 +1,45 @@
 package com.strategicgains.noschema.document;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
 public interface ObjectCodec<T>
 {
 	byte[] serialize(T object);
 	T deserialize(byte[] bytes, Class<T> clazz);
+
+	/**
+	 * Deserializes the remaining bytes of the buffer without changing its position. This
+	 * implementation copies the bytes unless the buffer exactly wraps an accessible array.
+	 * Codecs that can read from a buffer or stream directly should override it.
+	 */
+	default T deserialize(ByteBuffer buffer, Class<T> clazz)
+	{
+		if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length)
+		{
+			return deserialize(buffer.array(), clazz);
+		}
+
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return deserialize(bytes, clazz);
+	}
+
+	/**
+	 * Deserializes the contents of the stream. This implementation reads the whole stream
+	 * into memory first. Codecs that can read from a stream directly should override it.
+	 */
+	default T deserialize(InputStream in, Class<T> clazz)
+	{
+		try
+		{
+			return deserialize(in.readAllBytes(), clazz);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
 }
\ No newline at end of file
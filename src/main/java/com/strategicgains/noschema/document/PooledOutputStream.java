@@ -0,0 +1,99 @@
+package com.strategicgains.noschema.document;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable, reusable in-memory OutputStream, handed out by a BufferPool. Unlike
+ * ByteArrayOutputStream it is not synchronized, and reset() keeps the grown array
+ * so the next use doesn't have to grow it again.
+ * <p/>
+ * Instances are not thread-safe and must be released to their pool when done.
+ * 
+ * @see BufferPool
+ */
+public final class PooledOutputStream
+extends OutputStream
+{
+	private byte[] buf;
+	private int count;
+
+	PooledOutputStream(int initialCapacity)
+	{
+		super();
+		this.buf = new byte[initialCapacity];
+	}
+
+	@Override
+	public void write(int b)
+	{
+		ensureCapacity(count + 1);
+		buf[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len)
+	{
+		ensureCapacity(count + len);
+		System.arraycopy(b, off, buf, count, len);
+		count += len;
+	}
+
+	/**
+	 * @return an exact-size copy of the bytes written. Safe to keep after this stream is released.
+	 */
+	public byte[] toByteArray()
+	{
+		return Arrays.copyOf(buf, count);
+	}
+
+	/**
+	 * @return a read-only view of the bytes written, without copying. Only valid until this stream is released.
+	 */
+	public ByteBuffer asByteBuffer()
+	{
+		return ByteBuffer.wrap(buf, 0, count).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Hands over the bytes written as a read-only view of this stream's array, without copying,
+	 * and starts over with a new, empty array.
+	 * 
+	 * @param newCapacity the size of the new array.
+	 * @return the bytes written. Safe to keep after this stream is released.
+	 */
+	ByteBuffer detach(int newCapacity)
+	{
+		ByteBuffer bytes = asByteBuffer();
+		buf = new byte[newCapacity];
+		count = 0;
+		return bytes;
+	}
+
+	public int size()
+	{
+		return count;
+	}
+
+	public int capacity()
+	{
+		return buf.length;
+	}
+
+	public void reset()
+	{
+		count = 0;
+	}
+
+	private void ensureCapacity(int minCapacity)
+	{
+		if (minCapacity < 0) throw new OutOfMemoryError("Required buffer size too large");
+
+		if (minCapacity > buf.length)
+		{
+			int newCapacity = Math.max(minCapacity, buf.length << 1);
+			buf = Arrays.copyOf(buf, (newCapacity < 0 ? Integer.MAX_VALUE - 8 : newCapacity));
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.strategicgains.noschema.document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An ObjectCodec that serializes into a caller-provided stream, so document factories can
+ * serialize into a pooled buffer instead of allocating a growing array for every entity.
+ * Implementations should also override deserialize(ByteBuffer, Class) to decode without a copy.
+ * <p/>
+ * Existing codecs can be used wherever a StreamingObjectCodec is expected via adapt().
+ */
+public interface StreamingObjectCodec<T>
+extends ObjectCodec<T>
+{
+	void serialize(T object, OutputStream out)
+	throws IOException;
+
+	@Override
+	default byte[] serialize(T object)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try
+		{
+			serialize(object, out);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Adapts a byte[]-based codec. Serializing through the adapter still allocates the codec's
+	 * own array, so it only avoids the copies made around it.
+	 * 
+	 * @param codec an ObjectCodec.
+	 * @return the codec itself if it is already a StreamingObjectCodec, otherwise an adapter.
+	 */
+	static <T> StreamingObjectCodec<T> adapt(ObjectCodec<T> codec)
+	{
+		if (codec instanceof StreamingObjectCodec<T> streaming) return streaming;
+
+		return new StreamingObjectCodec<>()
+		{
+			@Override
+			public void serialize(T object, OutputStream out)
+			throws IOException
+			{
+				out.write(codec.serialize(object));
+			}
+
+			@Override
+			public byte[] serialize(T object)
+			{
+				return codec.serialize(object);
+			}
+
+			@Override
+			public T deserialize(byte[] bytes, Class<T> clazz)
+			{
+				return codec.deserialize(bytes, clazz);
+			}
+
+			@Override
+			public T deserialize(ByteBuffer buffer, Class<T> clazz)
+			{
+				return codec.deserialize(buffer, clazz);
+			}
+		};
+	}
+}
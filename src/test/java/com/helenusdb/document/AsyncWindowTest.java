@@ -0,0 +1,127 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class AsyncWindowTest
+{
+	@Test
+	public void shouldPreserveInputOrder()
+	{
+		List<Integer> inputs = IntStream.range(0, 100).boxed().toList();
+		List<CompletableFuture<String>> pending = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<List<String>> result = AsyncWindow.map(inputs, 10, i -> {
+			CompletableFuture<String> f = new CompletableFuture<>();
+			pending.add(f);
+			return f.thenApply(s -> s + i);
+		});
+
+		// Complete in reverse order of submission, window by window.
+		while (!result.isDone())
+		{
+			List<CompletableFuture<String>> batch = new ArrayList<>(pending);
+			pending.clear();
+			Collections.reverse(batch);
+			batch.forEach(f -> f.complete("item-"));
+		}
+
+		List<String> items = result.join();
+		assertEquals(100, items.size());
+
+		for (int i = 0; i < 100; i++)
+		{
+			assertEquals("item-" + i, items.get(i));
+		}
+	}
+
+	@Test
+	public void shouldBoundInFlightTasks()
+	{
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		List<CompletableFuture<Integer>> pending = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<List<Integer>> result = AsyncWindow.map(IntStream.range(0, 50).boxed().toList(), 4, i -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			CompletableFuture<Integer> f = new CompletableFuture<>();
+			pending.add(f);
+			return f;
+		});
+
+		while (!result.isDone())
+		{
+			CompletableFuture<Integer> f = pending.remove(0);
+			inFlight.decrementAndGet();
+			f.complete(1);
+		}
+
+		assertEquals(50, result.join().size());
+		assertEquals(4, maxInFlight.get());
+	}
+
+	@Test
+	public void shouldNotGrowStackWithSynchronousTasks()
+	{
+		List<Integer> results = AsyncWindow.map(IntStream.range(0, 200_000).boxed().toList(), 2, CompletableFuture::completedFuture).join();
+
+		assertEquals(200_000, results.size());
+		assertEquals(Integer.valueOf(199_999), results.get(199_999));
+	}
+
+	@Test
+	public void shouldNotGrowStackWhenTasksCompleteOnCallback()
+	{
+		List<CompletableFuture<Integer>> pending = new ArrayList<>();
+
+		// Every other task completes at once; the rest are completed below, one after another.
+		CompletableFuture<List<Integer>> result = AsyncWindow.map(IntStream.range(0, 200_000).boxed().toList(), 1, i -> {
+			if (i % 2 == 0) return CompletableFuture.completedFuture(i);
+
+			CompletableFuture<Integer> f = new CompletableFuture<>();
+			pending.add(f);
+			return f;
+		});
+
+		for (int i = 0; i < pending.size(); i++)
+		{
+			pending.get(i).complete(2 * i + 1);
+		}
+
+		assertEquals(200_000, result.join().size());
+	}
+
+	@Test
+	public void shouldFailOnFirstFailure()
+	{
+		AtomicInteger started = new AtomicInteger();
+		CompletableFuture<List<Integer>> result = AsyncWindow.map(IntStream.range(0, 50).boxed().toList(), 1, i -> {
+			started.incrementAndGet();
+			if (i == 2) return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+			return CompletableFuture.completedFuture(i);
+		});
+
+		try
+		{
+			result.join();
+			fail("Expected failure");
+		}
+		catch (CompletionException e)
+		{
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		assertEquals(3, started.get());
+	}
+}
@@ -0,0 +1,50 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifiable;
+import com.helenusdb.document.BulkLoader.Write;
+
+public class BulkLoaderTest
+{
+	@Test
+	public void shouldGroupByTableAndPartition()
+	{
+		Write<Identifiable> a1 = write("flowers", "a", 100);
+		Write<Identifiable> b1 = write("flowers", "b", 100);
+		Write<Identifiable> a2 = write("flowers", "a", 100);
+		Write<Identifiable> byName = write("flowers_by_name", "a", 100);
+
+		assertEquals(List.of(List.of(a1, a2), List.of(b1), List.of(byName)), BulkLoader.batches(List.of(a1, b1, a2, byName), 10, 1000));
+	}
+
+	@Test
+	public void shouldLimitBatchSize()
+	{
+		Write<Identifiable> a1 = write("flowers", "a", 100);
+		Write<Identifiable> a2 = write("flowers", "a", 100);
+		Write<Identifiable> a3 = write("flowers", "a", 100);
+
+		assertEquals(List.of(List.of(a1, a2), List.of(a3)), BulkLoader.batches(List.of(a1, a2, a3), 2, 1000));
+	}
+
+	@Test
+	public void shouldLimitBatchBytes()
+	{
+		Write<Identifiable> a1 = write("flowers", "a", 300);
+		Write<Identifiable> a2 = write("flowers", "a", 300);
+		Write<Identifiable> large = write("flowers", "a", 2000);
+		Write<Identifiable> a3 = write("flowers", "a", 300);
+
+		assertEquals(List.of(List.of(a1, a2), List.of(large), List.of(a3)), BulkLoader.batches(List.of(a1, a2, large, a3), 10, 1000));
+	}
+
+	private static Write<Identifiable> write(String table, String partition, int size)
+	{
+		return new Write<>(null, table, List.of(partition), null, null, size);
+	}
+}
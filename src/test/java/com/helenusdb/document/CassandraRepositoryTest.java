@@ -0,0 +1,168 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.helenusdb.document.unitofwork.CassandraUnitOfWork;
+import com.strategicgains.noschema.document.AbstractDocumentObserver;
+import com.strategicgains.noschema.document.Document;
+import com.strategicgains.noschema.document.ObjectCodec;
+
+/**
+ * Registers writes with a UnitOfWork that is never committed, so no session is needed.
+ */
+public class CassandraRepositoryTest
+{
+	private static final CqlSession SESSION = (CqlSession) Proxy.newProxyInstance(CqlSession.class.getClassLoader(), new Class<?>[] {CqlSession.class},
+		(proxy, method, args) -> {
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+	private static final Date STALE = new Date(1648598130248L);
+
+	private final AtomicInteger serializations = new AtomicInteger();
+	private final ObjectCodec<Flower> codec = new ObjectCodec<>()
+	{
+		@Override
+		public byte[] serialize(Flower flower)
+		{
+			serializations.incrementAndGet();
+			return flower.getName().getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public Flower deserialize(byte[] bytes, Class<Flower> clazz)
+		{
+			Flower flower = new Flower();
+			flower.setName(new String(bytes, StandardCharsets.UTF_8));
+			return flower;
+		}
+	};
+
+	private final PrimaryTable table = new PrimaryTable("test", "flowers", "id:UUID unique")
+		.withView("flowers_by_name", "name:text unique");
+	private final List<Document<Flower>> created = new ArrayList<>();
+	private final List<Document<Flower>> updated = new ArrayList<>();
+
+	@Test
+	public void shouldEncodeOncePerCreate()
+	{
+		CassandraRepository<Flower> repository = repository(false);
+		Flower flower = new Flower(UUID.randomUUID(), "rose", true, 1.0f, null);
+
+		repository.create(flower, unitOfWork());
+
+		assertEquals(1, serializations.get());
+		assertEquals(2, created.size());
+		assertEquals(created.get(0).getObjectBuffer(), created.get(1).getObjectBuffer());
+		assertEquals(created.get(0).getCreatedAt(), created.get(1).getCreatedAt());
+		assertEquals(created.get(0).getUpdatedAt(), created.get(1).getUpdatedAt());
+	}
+
+	@Test
+	public void shouldStampCreateTimes()
+	{
+		Date before = new Date();
+		repository(true).create(new Flower(UUID.randomUUID(), "rose", true, 1.0f, null), unitOfWork());
+
+		for (Document<Flower> document : created)
+		{
+			assertFalse(document.getCreatedAt().before(before));
+			assertEquals(document.getCreatedAt(), document.getUpdatedAt());
+		}
+	}
+
+	@Test
+	public void shouldStampUpdatedAtAndKeepCreatedAt()
+	{
+		Date before = new Date();
+		Flower original = new Flower(UUID.randomUUID(), "rose", true, 1.0f, null);
+		Flower flower = new Flower(original);
+		flower.setName("tulip");
+
+		repository(true).update(flower, original, unitOfWork());
+
+		assertEquals(1, updated.size());
+		Document<Flower> primary = updated.get(0);
+		assertFalse(primary.getUpdatedAt().before(before));
+		assertEquals(STALE, primary.getCreatedAt());
+	}
+
+	@Test
+	public void shouldSkipUpsertMatchingRegisteredCleanDocument()
+	{
+		CassandraRepository<Flower> repository = repository(false).withContentHashing();
+		Flower flower = new Flower(UUID.randomUUID(), "rose", true, 1.0f, null);
+		repository.upsert(flower, unitOfWork());
+		Document<Flower> stored = updated.get(0);
+
+		CassandraUnitOfWork<Flower> uow = unitOfWork();
+		uow.registerClean(table.name(), stored);
+		repository.upsert(new Flower(flower), uow);
+		assertEquals(2, repository.getWriteStatistics().getTotalSkipped());
+
+		Flower changed = new Flower(flower);
+		changed.setName("tulip");
+		repository.upsert(changed, uow);
+		assertEquals(2, repository.getWriteStatistics().getTotalSkipped());
+	}
+
+	@Test
+	public void shouldNotSkipUpsertWithoutCleanDocument()
+	{
+		CassandraRepository<Flower> repository = repository(false).withContentHashing();
+		Flower flower = new Flower(UUID.randomUUID(), "rose", true, 1.0f, null);
+
+		repository.upsert(flower, unitOfWork());
+		repository.upsert(flower, unitOfWork());
+
+		assertEquals(0, repository.getWriteStatistics().getTotalSkipped());
+	}
+
+	/**
+	 * @param isStale whether encoded documents carry stale times, as if copied from a stored entity.
+	 */
+	private CassandraRepository<Flower> repository(boolean isStale)
+	{
+		return new CassandraRepository<Flower>(SESSION, table, codec) {}
+			.withDocumentObserver(new AbstractDocumentObserver<>()
+			{
+				@Override
+				public void afterEncoding(Document<Flower> document)
+				{
+					if (!isStale) return;
+
+					document.setCreatedAt(STALE);
+					document.setUpdatedAt(STALE);
+				}
+
+				@Override
+				public void beforeCreate(Document<Flower> document)
+				{
+					created.add(document);
+				}
+
+				@Override
+				public void afterUpdate(Document<Flower> document)
+				{
+					updated.add(document);
+				}
+			});
+	}
+
+	private CassandraUnitOfWork<Flower> unitOfWork()
+	{
+		return new CassandraUnitOfWork<>(SESSION, new CassandraStatementFactory<>(SESSION, table, codec));
+	}
+}
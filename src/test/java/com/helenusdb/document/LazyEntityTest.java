@@ -0,0 +1,93 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+import com.strategicgains.noschema.document.Document;
+
+public class LazyEntityTest
+{
+	private AtomicInteger decodes = new AtomicInteger();
+
+	@Test
+	public void shouldNotDecodeForMetadata()
+	{
+		Document<Flower> document = new Document<>(new Identifier("rose"), new byte[] {1}, Flower.class);
+		document.setUpdatedAt(new Date(1648598130248L));
+		LazyEntity<Flower> lazy = new LazyEntity<>(document, this::decode);
+
+		assertEquals(new Identifier("rose"), lazy.getIdentifier());
+		assertEquals(new Date(1648598130248L), lazy.getUpdatedAt());
+		assertFalse(lazy.isDecoded());
+		assertEquals(0, decodes.get());
+	}
+
+	@Test
+	public void shouldDecodeOnce()
+	{
+		Document<Flower> document = new Document<>(new Identifier("rose"), new byte[] {1}, Flower.class);
+		LazyEntity<Flower> lazy = new LazyEntity<>(document, this::decode);
+		Flower flower = lazy.get();
+
+		assertTrue(lazy.isDecoded());
+		assertSame(flower, lazy.get());
+		assertEquals(1, decodes.get());
+	}
+
+	@Test
+	public void shouldRetryFailedDecode()
+	{
+		Document<Flower> document = new Document<>(new Identifier("rose"), new byte[] {1}, Flower.class);
+		LazyEntity<Flower> lazy = new LazyEntity<>(document, d -> {
+			if (decodes.incrementAndGet() == 1) throw new IllegalStateException("corrupt");
+			return new Flower();
+		});
+
+		try
+		{
+			lazy.get();
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+
+		assertFalse(lazy.isDecoded());
+		lazy.get();
+		assertTrue(lazy.isDecoded());
+		assertEquals(2, decodes.get());
+	}
+
+	@Test
+	public void shouldMemoizeNullDecode()
+	{
+		Document<Flower> document = new Document<>(new Identifier("rose"), new byte[] {1}, Flower.class);
+		LazyEntity<Flower> lazy = new LazyEntity<>(document, d -> {
+			decodes.incrementAndGet();
+			return null;
+		});
+
+		assertNull(lazy.get());
+		assertTrue(lazy.isDecoded());
+		assertNull(lazy.get());
+		assertEquals(1, decodes.get());
+	}
+
+	private Flower decode(Document<Flower> document)
+	{
+		decodes.incrementAndGet();
+		return new Flower(UUID.randomUUID(), "rose", true, 1.0f, null);
+	}
+}
@@ -0,0 +1,74 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.key.ClusteringKeyComponent.Ordering;
+import com.helenusdb.document.key.DataTypes;
+import com.helenusdb.document.key.KeyDefinition;
+
+public class PartitionBatchesTest
+{
+	private KeyDefinition keys = new KeyDefinition()
+		.addPartitionKey("account", DataTypes.TEXT)
+		.addClusteringKey("name", DataTypes.TEXT, Ordering.ASC);
+
+	@Test
+	public void shouldGroupByPartition()
+	{
+		List<Identifier> ids = List.of(
+			new Identifier("a", "1"),
+			new Identifier("b", "1"),
+			new Identifier("a", "2"),
+			new Identifier("a", "3"),
+			new Identifier("b", "2"));
+
+		assertEquals(List.of(List.of(0, 2, 3), List.of(1, 4)), PartitionBatches.of(keys, ids, List.of(0, 1, 2, 3, 4), 10));
+	}
+
+	@Test
+	public void shouldLimitBatchSize()
+	{
+		List<Identifier> ids = List.of(
+			new Identifier("a", "1"),
+			new Identifier("a", "2"),
+			new Identifier("a", "3"));
+
+		assertEquals(List.of(List.of(0, 1), List.of(2)), PartitionBatches.of(keys, ids, List.of(0, 1, 2), 2));
+	}
+
+	@Test
+	public void shouldNotGroupPartialIdentifiers()
+	{
+		List<Identifier> ids = List.of(
+			new Identifier("a"),
+			new Identifier("a", "1"),
+			new Identifier("a", "2"));
+
+		assertEquals(List.of(List.of(0), List.of(1, 2)), PartitionBatches.of(keys, ids, List.of(0, 1, 2), 10));
+	}
+
+	@Test
+	public void shouldOnlyBatchGivenPositions()
+	{
+		List<Identifier> ids = List.of(
+			new Identifier("a", "1"),
+			new Identifier("a", "2"),
+			new Identifier("a", "3"));
+
+		assertEquals(List.of(List.of(0, 2)), PartitionBatches.of(keys, ids, List.of(0, 2), 10));
+	}
+
+	@Test
+	public void shouldNotGroupWithoutClusteringKey()
+	{
+		KeyDefinition partitionOnly = new KeyDefinition().addPartitionKey("id", DataTypes.TEXT);
+		List<Identifier> ids = List.of(new Identifier("a"), new Identifier("b"));
+
+		assertEquals(List.of(List.of(0), List.of(1)), PartitionBatches.of(partitionOnly, ids, List.of(0, 1), 10));
+	}
+}
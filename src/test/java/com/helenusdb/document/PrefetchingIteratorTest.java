@@ -0,0 +1,134 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+
+/**
+ * Pages are result sets named by their number. Fetching one completes synchronously, unless it's
+ * failing or pending. The reader records each page it turns into entities.
+ */
+public class PrefetchingIteratorTest
+{
+	private final List<Integer> fetched = new ArrayList<>();
+	private final List<Integer> read = new ArrayList<>();
+	private final List<Integer> failing = new ArrayList<>();
+	private final Map<Integer, CompletableFuture<AsyncResultSet>> pending = new HashMap<>();
+
+	@Test
+	public void shouldIterateAllPages()
+	{
+		Iterator<String> iterator = iterator(List.of(List.of("rose", "tulip"), List.of("daisy", "lily"), List.of("iris")));
+		List<String> flowers = new ArrayList<>();
+		iterator.forEachRemaining(flowers::add);
+
+		assertEquals(List.of("rose", "tulip", "daisy", "lily", "iris"), flowers);
+		assertEquals(List.of(1, 2), fetched);
+		assertEquals(List.of(0, 1, 2), read);
+	}
+
+	@Test
+	public void shouldPrefetchOnlyTheNextPage()
+	{
+		Iterator<String> iterator = iterator(List.of(List.of("rose", "tulip"), List.of("daisy", "lily"), List.of("iris")));
+		assertTrue(fetched.isEmpty());
+
+		assertEquals("rose", iterator.next());
+		assertEquals(List.of(1), fetched);
+		assertEquals(List.of(0, 1), read);
+
+		assertEquals("tulip", iterator.next());
+		assertEquals(List.of(1), fetched);
+
+		assertEquals("daisy", iterator.next());
+		assertEquals(List.of(1, 2), fetched);
+		assertEquals(List.of(0, 1, 2), read);
+	}
+
+	@Test
+	public void shouldSkipEmptyPages()
+	{
+		Iterator<String> iterator = iterator(List.of(List.of(), List.of(), List.of("rose")));
+
+		assertEquals("rose", iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void shouldTranslateFailureOfLaterPage()
+	{
+		failing.add(1);
+		Iterator<String> iterator = iterator(List.of(List.of("rose", "tulip"), List.of("daisy")));
+		assertEquals("rose", iterator.next());
+		assertEquals("tulip", iterator.next());
+
+		try
+		{
+			iterator.hasNext();
+			fail("Expected the page's failure");
+		}
+		catch (IllegalStateException e)
+		{
+			assertEquals("translated: timed out", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldCancelPrefetchedPageOnClose()
+	{
+		pending.put(1, new CompletableFuture<>());
+		PrefetchingIterator<String> iterator = iterator(List.of(List.of("rose"), List.of("tulip")));
+		assertEquals("rose", iterator.next());
+
+		iterator.close();
+
+		assertTrue(pending.get(1).isCancelled());
+		assertFalse(iterator.hasNext());
+		assertEquals(List.of(0), read);
+	}
+
+	private PrefetchingIterator<String> iterator(List<List<String>> pages)
+	{
+		return new PrefetchingIterator<>(page(pages, 0), rs -> {
+				int page = Integer.parseInt(rs.toString());
+				read.add(page);
+				return CompletableFuture.completedFuture(pages.get(page).iterator());
+			},
+			t -> new IllegalStateException("translated: " + t.getCause().getMessage(), t));
+	}
+
+	/**
+	 * @return a result set for the page, which fetches the following one, if any.
+	 */
+	private AsyncResultSet page(List<List<String>> pages, int page)
+	{
+		return (AsyncResultSet) Proxy.newProxyInstance(AsyncResultSet.class.getClassLoader(), new Class<?>[] {AsyncResultSet.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "toString": return String.valueOf(page);
+					case "hasMorePages": return (page + 1 < pages.size());
+					case "fetchNextPage":
+						fetched.add(page + 1);
+
+						if (failing.contains(page + 1)) return CompletableFuture.failedFuture(new IllegalStateException("timed out"));
+
+						return pending.getOrDefault(page + 1, CompletableFuture.completedFuture(page(pages, page + 1)));
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+}
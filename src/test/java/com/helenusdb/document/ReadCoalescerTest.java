@@ -0,0 +1,88 @@
+package com.helenusdb.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+
+public class ReadCoalescerTest
+{
+	private static final Identifier ROSE = new Identifier("rose");
+	private static final Identifier TULIP = new Identifier("tulip");
+
+	private final ReadCoalescer<String> coalescer = new ReadCoalescer<>();
+	private final AtomicInteger loads = new AtomicInteger();
+	private final CompletableFuture<String> pending = new CompletableFuture<>();
+	private final Supplier<CompletableFuture<String>> loader = () -> {
+		loads.incrementAndGet();
+		return pending;
+	};
+
+	@Test
+	public void shouldShareInFlightRead()
+	{
+		CompletableFuture<String> leader = coalescer.read("flowers", ROSE, loader);
+		CompletableFuture<String> follower = coalescer.read("flowers", ROSE, loader);
+
+		assertSame(leader, follower);
+		assertEquals(1, loads.get());
+		assertEquals(1, coalescer.size());
+
+		pending.complete("rose");
+
+		assertEquals("rose", follower.join());
+		assertEquals(0, coalescer.size());
+	}
+
+	@Test
+	public void shouldNotShareReadsOfOtherKeys()
+	{
+		CompletableFuture<String> rose = coalescer.read("flowers", ROSE, loader);
+
+		assertNotSame(rose, coalescer.read("flowers", TULIP, loader));
+		assertNotSame(rose, coalescer.read("flowers_by_name", ROSE, loader));
+		assertEquals(3, loads.get());
+		assertEquals(3, coalescer.size());
+	}
+
+	@Test
+	public void shouldReadAgainOnceCompleted()
+	{
+		pending.complete("rose");
+
+		assertEquals("rose", coalescer.read("flowers", ROSE, loader).join());
+		assertEquals("rose", coalescer.read("flowers", ROSE, loader).join());
+		assertEquals(2, loads.get());
+		assertEquals(0, coalescer.size());
+	}
+
+	@Test
+	public void shouldReleaseKeyOnFailure()
+	{
+		CompletableFuture<String> failed = coalescer.read("flowers", ROSE, loader);
+		pending.completeExceptionally(new IllegalStateException("timed out"));
+
+		assertTrue(failed.isCompletedExceptionally());
+		assertEquals(0, coalescer.size());
+		assertEquals("rose", coalescer.read("flowers", ROSE, () -> CompletableFuture.completedFuture("rose")).join());
+	}
+
+	@Test
+	public void shouldReleaseKeyIfLoaderThrows()
+	{
+		CompletableFuture<String> failed = coalescer.read("flowers", ROSE, () -> {
+			throw new IllegalStateException("no session");
+		});
+
+		assertTrue(failed.isCompletedExceptionally());
+		assertEquals(0, coalescer.size());
+	}
+}
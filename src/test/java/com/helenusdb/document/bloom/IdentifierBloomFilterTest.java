@@ -0,0 +1,99 @@
+package com.helenusdb.document.bloom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+
+public class IdentifierBloomFilterTest
+{
+	@Test
+	public void shouldNotShortCircuitUntilReady()
+	{
+		IdentifierBloomFilter filter = new IdentifierBloomFilter(1000, 0.01);
+		assertTrue(filter.mightContain(new Identifier(UUID.randomUUID())));
+		filter.ready();
+		assertFalse(filter.mightContain(new Identifier(UUID.randomUUID())));
+	}
+
+	@Test
+	public void shouldContainAddedIdentifiers()
+	{
+		IdentifierBloomFilter filter = new IdentifierBloomFilter(1000, 0.01).ready();
+		UUID accountId = UUID.randomUUID();
+
+		for (int i = 0; i < 1000; i++)
+		{
+			filter.add(new Identifier(accountId, "name-" + i));
+		}
+
+		for (int i = 0; i < 1000; i++)
+		{
+			assertTrue(filter.mightContain(new Identifier(accountId, "name-" + i)));
+		}
+	}
+
+	@Test
+	public void shouldHaveLowFalsePositiveRate()
+	{
+		IdentifierBloomFilter filter = new IdentifierBloomFilter(10000, 0.01).ready();
+
+		for (int i = 0; i < 10000; i++)
+		{
+			filter.add(new Identifier(UUID.randomUUID()));
+		}
+
+		int falsePositives = 0;
+
+		for (int i = 0; i < 10000; i++)
+		{
+			if (filter.mightContain(new Identifier(UUID.randomUUID()))) ++falsePositives;
+		}
+
+		assertTrue("False positives: " + falsePositives, falsePositives < 300);
+	}
+
+	@Test
+	public void shouldTreatDateAndInstantAlike()
+	{
+		IdentifierBloomFilter filter = new IdentifierBloomFilter(100, 0.01).ready();
+		Date now = new Date();
+		filter.add(new Identifier(1, now));
+		assertTrue(filter.mightContain(new Identifier(1, now.toInstant())));
+		assertTrue(filter.mightContain(new Identifier(1, Instant.ofEpochMilli(now.getTime()))));
+	}
+
+	@Test
+	public void shouldRoundTripToDisk()
+	throws Exception
+	{
+		IdentifierBloomFilter filter = new IdentifierBloomFilter(1000, 0.01);
+		UUID id = UUID.randomUUID();
+		filter.add(new Identifier(id));
+		Path file = Files.createTempFile("flowers", ".bloom");
+
+		try
+		{
+			filter.writeTo(file);
+			IdentifierBloomFilter read = IdentifierBloomFilter.readFrom(file);
+			assertTrue(read.isReady());
+			assertEquals(filter.bitCount(), read.bitCount());
+			assertEquals(filter.hashCount(), read.hashCount());
+			assertTrue(read.mightContain(new Identifier(id)));
+			assertFalse(read.mightContain(new Identifier(UUID.randomUUID())));
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+}
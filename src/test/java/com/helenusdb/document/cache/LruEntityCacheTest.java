@@ -0,0 +1,76 @@
+package com.helenusdb.document.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+
+public class LruEntityCacheTest
+{
+	private static final String TABLE = "flowers";
+
+	private AtomicLong now = new AtomicLong();
+
+	@Test
+	public void shouldReturnCachedEntity()
+	{
+		LruEntityCache<String> cache = new LruEntityCache<>(10, Duration.ofMinutes(1), s -> 1L, now::get);
+		cache.put(TABLE, new Identifier(1), "one");
+		assertEquals("one", cache.get(TABLE, new Identifier(1)));
+		assertNull(cache.get("by_name", new Identifier(1)));
+	}
+
+	@Test
+	public void shouldExpireEntries()
+	{
+		LruEntityCache<String> cache = new LruEntityCache<>(10, Duration.ofNanos(100), s -> 1L, now::get);
+		cache.put(TABLE, new Identifier(1), "one");
+		now.set(99);
+		assertEquals("one", cache.get(TABLE, new Identifier(1)));
+		now.set(100);
+		assertNull(cache.get(TABLE, new Identifier(1)));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed()
+	{
+		LruEntityCache<String> cache = new LruEntityCache<>(2, Duration.ofMinutes(1), s -> 1L, now::get);
+		cache.put(TABLE, new Identifier(1), "one");
+		cache.put(TABLE, new Identifier(2), "two");
+		cache.get(TABLE, new Identifier(1));
+		cache.put(TABLE, new Identifier(3), "three");
+		assertEquals("one", cache.get(TABLE, new Identifier(1)));
+		assertNull(cache.get(TABLE, new Identifier(2)));
+		assertEquals("three", cache.get(TABLE, new Identifier(3)));
+	}
+
+	@Test
+	public void shouldBoundByWeight()
+	{
+		LruEntityCache<String> cache = new LruEntityCache<>(10, Duration.ofMinutes(1), s -> s.length(), now::get);
+		cache.put(TABLE, new Identifier(1), "12345");
+		cache.put(TABLE, new Identifier(2), "123456");
+		assertEquals(6, cache.weight());
+		assertNull(cache.get(TABLE, new Identifier(1)));
+
+		cache.put(TABLE, new Identifier(3), "this is too heavy");
+		assertNull(cache.get(TABLE, new Identifier(3)));
+		assertEquals(6, cache.weight());
+	}
+
+	@Test
+	public void shouldInvalidate()
+	{
+		LruEntityCache<String> cache = new LruEntityCache<>(10, Duration.ofMinutes(1), s -> 1L, now::get);
+		cache.put(TABLE, new Identifier(1), "one");
+		cache.invalidate(TABLE, new Identifier(1));
+		assertNull(cache.get(TABLE, new Identifier(1)));
+		assertEquals(0, cache.weight());
+	}
+}
@@ -0,0 +1,125 @@
+package com.helenusdb.document.compression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.helenusdb.document.PrimaryTable;
+
+/**
+ * The session returns the stored rows, in one page, to a refresh and applies every save.
+ */
+public class CassandraDictionaryStoreTest
+{
+	private final List<Row> stored = new ArrayList<>();
+	private final CqlSession session = (CqlSession) Proxy.newProxyInstance(CqlSession.class.getClassLoader(), new Class<?>[] {CqlSession.class},
+		(proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "executeAsync": return CompletableFuture.completedFuture(page());
+				case "execute": return applied();
+				default: throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	private final CassandraDictionaryStore store = new CassandraDictionaryStore(session, new PrimaryTable("test", "flowers", "id:text unique"));
+
+	@Test
+	public void shouldMakeOnlyActiveDictionaryCurrent()
+	{
+		store(1, Instant.now().minus(Duration.ofHours(1)));
+		store(2, Instant.now());
+		store.withActivationDelay(Duration.ofMinutes(10)).refresh();
+
+		assertEquals(1, store.current().id());
+		assertNotNull(store.get(2));
+		assertEquals(3, store.nextId());
+	}
+
+	@Test
+	public void shouldNotCompressWithSavedDictionaryUntilActive()
+	{
+		store.withActivationDelay(Duration.ofHours(1))
+			.save(dictionary(1));
+
+		assertNull(store.current());
+		assertNotNull(store.get(1));
+		assertEquals(2, store.nextId());
+	}
+
+	@Test
+	public void shouldDelayActivationByTwiceTheRefreshPeriod()
+	{
+		ScheduledExecutorService scheduler = (ScheduledExecutorService) Proxy.newProxyInstance(ScheduledExecutorService.class.getClassLoader(), new Class<?>[] {ScheduledExecutorService.class},
+			(proxy, method, args) -> null);
+		store(1, Instant.now().minus(Duration.ofMinutes(9)));
+		store.withRefresh(scheduler, Duration.ofMinutes(5)).refresh();
+
+		assertNull(store.current());
+	}
+
+	@Test
+	public void shouldMakeSavedDictionaryCurrentWithoutDelay()
+	{
+		store.save(dictionary(1));
+
+		assertEquals(1, store.current().id());
+	}
+
+	private void store(int id, Instant createdAt)
+	{
+		stored.add((Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[] {Row.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "isNull": return false;
+					case "getInt": return id;
+					case "getByteBuffer": return ByteBuffer.wrap(dictionary(id).content());
+					case "getInstant": return createdAt;
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			}));
+	}
+
+	private AsyncResultSet page()
+	{
+		return (AsyncResultSet) Proxy.newProxyInstance(AsyncResultSet.class.getClassLoader(), new Class<?>[] {AsyncResultSet.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "currentPage": return stored;
+					case "hasMorePages": return false;
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+
+	private static ResultSet applied()
+	{
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+			(proxy, method, args) -> {
+				if (!method.getName().equals("wasApplied")) throw new UnsupportedOperationException(method.getName());
+
+				return true;
+			});
+	}
+
+	private static CompressionDictionary dictionary(int id)
+	{
+		return new CompressionDictionary(id, ("dictionary " + id).getBytes());
+	}
+}
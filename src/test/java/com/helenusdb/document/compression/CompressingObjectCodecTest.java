@@ -0,0 +1,279 @@
+package com.helenusdb.document.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import com.helenusdb.core.exception.HelenusdbException;
+import com.strategicgains.noschema.document.ObjectCodec;
+
+public class CompressingObjectCodecTest
+{
+	private static final ObjectCodec<String> UTF8 = new ObjectCodec<>()
+	{
+		@Override
+		public byte[] serialize(String object)
+		{
+			return object.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String deserialize(byte[] bytes, Class<String> clazz)
+		{
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	private static class InMemoryDictionaries
+	implements DictionaryStore
+	{
+		private final TreeMap<Integer, CompressionDictionary> dictionaries = new TreeMap<>();
+
+		void add(CompressionDictionary dictionary)
+		{
+			dictionaries.put(dictionary.id(), dictionary);
+		}
+
+		@Override
+		public CompressionDictionary current()
+		{
+			Map.Entry<Integer, CompressionDictionary> latest = dictionaries.lastEntry();
+			return (latest != null ? latest.getValue() : null);
+		}
+
+		@Override
+		public CompressionDictionary get(int id)
+		{
+			return dictionaries.get(id);
+		}
+	}
+
+	private static final String LARGE = "{\"name\":\"rose\",\"colors\":[\"red\",\"white\",\"pink\"]},".repeat(100);
+
+	@Test
+	public void shouldRoundTripEachAlgorithm()
+	{
+		for (CompressionAlgorithm algorithm : CompressionAlgorithm.values())
+		{
+			CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, algorithm);
+			byte[] stored = codec.serialize(LARGE);
+
+			assertEquals(algorithm, CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(stored)));
+			assertEquals(LARGE, codec.deserialize(stored, String.class));
+			assertEquals(LARGE, codec.deserialize(ByteBuffer.wrap(stored).asReadOnlyBuffer(), String.class));
+
+			if (algorithm != CompressionAlgorithm.NONE)
+			{
+				assertTrue(algorithm + " should compress", stored.length < LARGE.length());
+			}
+		}
+	}
+
+	@Test
+	public void shouldHonorDeflateLevel()
+	{
+		byte[] fastest = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE, 1).serialize(LARGE);
+		byte[] smallest = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE, 9).serialize(LARGE);
+
+		assertTrue(smallest.length <= fastest.length);
+	}
+
+	@Test
+	public void shouldNotCompressBelowMinimumSize()
+	{
+		CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).withMinimumSize(LARGE.length() + 1);
+		byte[] stored = codec.serialize(LARGE);
+
+		assertEquals(CompressionAlgorithm.NONE, CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(stored)));
+		assertEquals(LARGE.length() + CompressingObjectCodec.HEADER_SIZE, stored.length);
+		assertEquals(LARGE, codec.deserialize(stored, String.class));
+	}
+
+	@Test
+	public void shouldStoreIncompressibleUncompressed()
+	{
+		CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).withMinimumSize(0);
+		byte[] stored = codec.serialize("a");
+
+		assertEquals(CompressionAlgorithm.NONE, CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(stored)));
+		assertEquals("a", codec.deserialize(stored, String.class));
+	}
+
+	@Test
+	public void shouldReadOtherAlgorithms()
+	{
+		byte[] stored = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.LZ4).serialize(LARGE);
+
+		assertEquals(LARGE, new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.ZSTD).deserialize(stored, String.class));
+	}
+
+	@Test
+	public void shouldReadPayloadsWithoutHeader()
+	{
+		CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE);
+
+		assertEquals(LARGE, codec.deserialize(UTF8.serialize(LARGE), String.class));
+		assertEquals("", codec.deserialize(new byte[0], String.class));
+	}
+
+	@Test
+	public void shouldReadHeaderlessPayloadsStartingWithTheirLength()
+	{
+		CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).withDictionaries(new InMemoryDictionaries());
+
+		// Headerless BSON starts with its little-endian int32 length: 0xFE, then an algorithm id (with or without the dictionary flag).
+		for (int length : new int[] {254, 510, 766, 1022, 1278, 0x80FE, 0x81FE, 0x82FE})
+		{
+			byte[] bson = new byte[length];
+			ByteBuffer.wrap(bson).order(ByteOrder.LITTLE_ENDIAN).putInt(length);
+
+			assertNull(CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(bson)));
+			assertArrayEquals("length " + length, bson, Compressor.toArray(codec.decompress(ByteBuffer.wrap(bson))));
+		}
+	}
+
+	@Test
+	public void shouldReadPayloadsWithMismatchedLengthAsIs()
+	{
+		CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE);
+		byte[] stored = codec.serialize(LARGE);
+		byte[] truncated = new byte[stored.length - 1];
+		System.arraycopy(stored, 0, truncated, 0, truncated.length);
+
+		assertEquals(CompressionAlgorithm.DEFLATE, CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(stored)));
+		assertNull(CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(truncated)));
+		assertArrayEquals(truncated, Compressor.toArray(codec.decompress(ByteBuffer.wrap(truncated))));
+	}
+
+	@Test
+	public void shouldReadGzippedPayloads()
+	throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out))
+		{
+			gzip.write(UTF8.serialize(LARGE));
+		}
+
+		assertEquals(LARGE, new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.LZ4).deserialize(out.toByteArray(), String.class));
+	}
+
+	@Test
+	public void shouldCompressSmallDocumentsBetterWithDictionary()
+	{
+		for (CompressionAlgorithm algorithm : CompressionAlgorithm.values())
+		{
+			if (!algorithm.supportsDictionaries()) continue;
+
+			InMemoryDictionaries store = new InMemoryDictionaries();
+			store.add(trainDictionary(1));
+			CompressingObjectCodec<String> plain = new CompressingObjectCodec<>(UTF8, algorithm).withMinimumSize(0);
+			CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, algorithm).withDictionaries(store).withMinimumSize(0);
+			String small = smallDocument(1000);
+			byte[] stored = codec.serialize(small);
+
+			assertEquals(algorithm, CompressingObjectCodec.algorithmOf(ByteBuffer.wrap(stored)));
+			assertEquals(1, CompressingObjectCodec.dictionaryIdOf(ByteBuffer.wrap(stored)));
+			assertTrue(algorithm + " should compress better with a dictionary", stored.length < plain.serialize(small).length);
+			assertEquals(small, codec.deserialize(stored, String.class));
+			assertEquals(small, codec.deserialize(ByteBuffer.wrap(stored).asReadOnlyBuffer(), String.class));
+		}
+	}
+
+	@Test
+	public void shouldReadPayloadsWrittenWithOlderDictionaries()
+	{
+		InMemoryDictionaries store = new InMemoryDictionaries();
+		store.add(trainDictionary(1));
+		CompressingObjectCodec<String> codec = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).withDictionaries(store).withMinimumSize(0);
+		String small = smallDocument(1000);
+		byte[] older = codec.serialize(small);
+
+		store.add(trainDictionary(2));
+		byte[] newer = codec.serialize(small);
+
+		assertEquals(2, CompressingObjectCodec.dictionaryIdOf(ByteBuffer.wrap(newer)));
+		assertEquals(small, codec.deserialize(older, String.class));
+		assertEquals(small, codec.deserialize(newer, String.class));
+	}
+
+	@Test(expected = HelenusdbException.class)
+	public void shouldFailOnUnknownDictionary()
+	{
+		InMemoryDictionaries store = new InMemoryDictionaries();
+		store.add(trainDictionary(1));
+		byte[] stored = new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).withDictionaries(store).withMinimumSize(0).serialize(smallDocument(1000));
+
+		new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).withDictionaries(new InMemoryDictionaries()).deserialize(stored, String.class);
+	}
+
+	@Test(expected = HelenusdbException.class)
+	public void shouldRejectImplausibleUncompressedLength()
+	{
+		byte[] stored = new byte[CompressingObjectCodec.HEADER_SIZE + Integer.BYTES + 4];
+		ByteBuffer.wrap(stored)
+			.putInt(CompressingObjectCodec.MAGIC)
+			.put(CompressionAlgorithm.LZ4.id())
+			.putInt(stored.length - CompressingObjectCodec.HEADER_SIZE)
+			.putInt(Integer.MAX_VALUE);
+
+		new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.LZ4).deserialize(stored, String.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectDictionariesForLz4()
+	{
+		new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.LZ4).withDictionaries(new InMemoryDictionaries());
+	}
+
+	@Test
+	public void shouldTrainDictionaryFromSharedContent()
+	{
+		CompressionDictionary dictionary = trainDictionary(7);
+		String content = new String(dictionary.bytes(), StandardCharsets.ISO_8859_1);
+
+		assertEquals(7, dictionary.id());
+		assertTrue(dictionary.size() <= DictionaryTrainer.DEFAULT_MAXIMUM_SIZE);
+		assertTrue(content.contains("\"description\":"));
+		assertFalse(new DictionaryTrainer().addSample(new byte[5 * 1024 * 1024]));
+	}
+
+	private static CompressionDictionary trainDictionary(int id)
+	{
+		DictionaryTrainer trainer = new DictionaryTrainer();
+
+		for (int i = 0; i < 500; i++)
+		{
+			trainer.addSample(UTF8.serialize(smallDocument(i)));
+		}
+
+		return trainer.train(id);
+	}
+
+	private static String smallDocument(int i)
+	{
+		return "{\"id\":\"" + Integer.toHexString(i * 7919) + "\",\"name\":\"plant-" + i + "\",\"description\":\"A flowering plant\"," +
+			"\"createdBy\":\"user" + (i % 13) + "\",\"tags\":[\"garden\",\"perennial\"],\"attributes\":{\"height\":" + (i % 100) +
+			",\"sunlight\":\"full\",\"waterFrequency\":\"weekly\"}}";
+	}
+
+	@Test
+	public void shouldPassNullThrough()
+	{
+		assertNull(new CompressingObjectCodec<>(UTF8, CompressionAlgorithm.DEFLATE).compress(null));
+	}
+}
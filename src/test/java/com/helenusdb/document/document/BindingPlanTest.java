@@ -0,0 +1,71 @@
+package com.helenusdb.document.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.data.SettableByIndex;
+import com.helenusdb.document.key.KeyDefinitionParser;
+
+public class BindingPlanTest
+{
+	interface RecordingSettable
+	extends SettableByIndex<RecordingSettable>
+	{
+	}
+
+	private static final UUID ACCOUNT_ID = UUID.fromString("a87d3bff-6997-4739-ab4e-ded0cc85700f");
+
+	private final List<String> calls = new ArrayList<>();
+	private final RecordingSettable settable = (RecordingSettable) Proxy.newProxyInstance(RecordingSettable.class.getClassLoader(), new Class<?>[] {RecordingSettable.class},
+		(proxy, method, args) -> {
+			calls.add(method.getName() + " " + args[0] + (args.length > 1 ? " " + args[1] : ""));
+			return proxy;
+		});
+
+	// An update: the four document columns precede the keys.
+	private final BindingPlan plan = new BindingPlan(null, KeyDefinitionParser.parse("(account_id:uuid), name:text, height:int"), 4);
+
+	@Test
+	public void shouldBindKeysAfterOffset()
+	{
+		plan.bindKeys(settable, List.<Object>of(ACCOUNT_ID, "rose", 7));
+
+		assertEquals(List.of("setUuid 4 " + ACCOUNT_ID, "setString 5 rose", "setInt 6 7"), calls);
+	}
+
+	@Test
+	public void shouldBindKeyPrefix()
+	{
+		plan.bindKeys(settable, new Object[] {ACCOUNT_ID});
+
+		assertEquals(List.of("setUuid 4 " + ACCOUNT_ID), calls);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectTooManyKeys()
+	{
+		plan.bindKeys(settable, new Object[] {ACCOUNT_ID, "rose", 7, 8});
+	}
+
+	@Test
+	public void shouldNameColumnOfInvalidValue()
+	{
+		try
+		{
+			plan.bindKeys(settable, List.<Object>of(ACCOUNT_ID, "rose", 1L << 40));
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains("height"));
+		}
+	}
+}
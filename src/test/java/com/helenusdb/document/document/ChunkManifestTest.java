@@ -0,0 +1,47 @@
+package com.helenusdb.document.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.helenusdb.document.Flower;
+import com.strategicgains.noschema.document.Document;
+
+public class ChunkManifestTest
+{
+	private static final UUID CHUNK_SET = UUID.fromString("8dbac965-a1c8-3ad6-a043-5f5a9a5ee8c0");
+
+	@Test
+	public void shouldRoundTripThroughMetadata()
+	{
+		ChunkManifest manifest = new ChunkManifest(CHUNK_SET, 200_000, 65_536);
+		Document<Flower> document = new Document<>();
+		document.withMetadata(ChunkManifest.METADATA_KEY, manifest.toString());
+
+		assertEquals(manifest, ChunkManifest.of(document));
+	}
+
+	@Test
+	public void shouldCountPartialLastChunk()
+	{
+		assertEquals(4, new ChunkManifest(CHUNK_SET, 200_000, 65_536).chunkCount());
+		assertEquals(2, new ChunkManifest(CHUNK_SET, 131_072, 65_536).chunkCount());
+		assertEquals(1, new ChunkManifest(CHUNK_SET, 1, 65_536).chunkCount());
+	}
+
+	@Test
+	public void shouldNotBeChunkedWithoutManifest()
+	{
+		assertNull(ChunkManifest.of(new Document<Flower>()));
+		assertNull(ChunkManifest.of(null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectMalformedManifest()
+	{
+		ChunkManifest.of(new Document<Flower>().withMetadata(ChunkManifest.METADATA_KEY, "not-a-manifest"));
+	}
+}
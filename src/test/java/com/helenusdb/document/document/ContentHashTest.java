@@ -0,0 +1,105 @@
+package com.helenusdb.document.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.Flower;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyDefinitionParser;
+import com.strategicgains.noschema.document.Document;
+
+public class ContentHashTest
+{
+	private static final UUID ID = UUID.fromString("8dbac965-a1c8-4ad6-a043-5f5a9a5ee8c0");
+	private static final Date CREATED_AT = new Date(1648598130248L);
+	private static final KeyDefinition KEYS = KeyDefinitionParser.parse("(id:uuid), created_at:timestamp unique");
+
+	@Test
+	public void shouldHashTypeAndObject()
+	{
+		assertEquals(ContentHash.of(document("rose")), ContentHash.of(document("rose")));
+		assertNotEquals(ContentHash.of(document("rose")), ContentHash.of(document("tulip")));
+		assertEquals(8, ContentHash.of(document("rose")).length());
+	}
+
+	@Test
+	public void shouldBeUnchanged()
+	{
+		assertTrue(ContentHash.isUnchanged(KEYS, stamped("rose"), stamped("rose")));
+	}
+
+	@Test
+	public void shouldCompareTimestampKeysAcrossDateAndInstant()
+	{
+		Document<Flower> dirty = ContentHash.stamp(new Document<>(new Identifier(ID, CREATED_AT), bytes("rose"), Flower.class));
+		Document<Flower> clean = ContentHash.stamp(new Document<>(new Identifier(ID, CREATED_AT.toInstant()), bytes("rose"), Flower.class));
+
+		assertTrue(ContentHash.isUnchanged(KEYS, dirty, clean));
+	}
+
+	@Test
+	public void shouldBeChangedWithoutHash()
+	{
+		assertFalse(ContentHash.isUnchanged(KEYS, document("rose"), document("rose")));
+		assertFalse(ContentHash.isUnchanged(KEYS, stamped("rose"), document("rose")));
+		assertFalse(ContentHash.isUnchanged(KEYS, stamped("rose"), null));
+	}
+
+	@Test
+	public void shouldBeChangedWithDifferentContent()
+	{
+		assertFalse(ContentHash.isUnchanged(KEYS, stamped("rose"), stamped("tulip")));
+	}
+
+	@Test
+	public void shouldBeChangedWithDifferentMetadata()
+	{
+		Document<Flower> dirty = stamped("rose").withMetadata("owner", "alice");
+
+		assertFalse(ContentHash.isUnchanged(KEYS, dirty, stamped("rose")));
+	}
+
+	@Test
+	public void shouldBeChangedWithDifferentIdentifier()
+	{
+		Document<Flower> clean = ContentHash.stamp(new Document<>(new Identifier(UUID.randomUUID()), bytes("rose"), Flower.class));
+
+		assertFalse(ContentHash.isUnchanged(KEYS, stamped("rose"), clean));
+	}
+
+	@Test
+	public void shouldBeChangedOnHashCollision()
+	{
+		Document<Flower> dirty = stamped("rose");
+		Document<Flower> clean = document("tulip").withMetadata(ContentHash.METADATA_KEY, ContentHash.of(dirty));
+
+		assertFalse(ContentHash.isUnchanged(KEYS, dirty, clean));
+	}
+
+	private Document<Flower> stamped(String object)
+	{
+		return ContentHash.stamp(document(object));
+	}
+
+	private Document<Flower> document(String object)
+	{
+		Document<Flower> document = new Document<>(new Identifier(ID), bytes(object), Flower.class);
+		document.setUpdatedAt(Date.from(Instant.now()));
+		return document;
+	}
+
+	private byte[] bytes(String object)
+	{
+		return object.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,175 @@
+package com.helenusdb.document.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.Flower;
+import com.helenusdb.document.PrimaryTable;
+import com.strategicgains.noschema.document.Document;
+import com.strategicgains.noschema.document.ObjectCodec;
+
+/**
+ * Checks that each statement is prepared once and cached in its own slot of plans[], and is
+ * idempotent unless it's a lightweight transaction. The session's prepared statements fail on
+ * binding, reporting the statement they were prepared from, so no cluster is needed.
+ */
+public class DocumentStatementFactoryTest
+{
+	private static class Bound
+	extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		Bound(String cql)
+		{
+			super(cql);
+		}
+	}
+
+	private static final UUID ACCOUNT_ID = UUID.fromString("a87d3bff-6997-4739-ab4e-ded0cc85700f");
+	private static final Identifier ID = new Identifier(ACCOUNT_ID, "rose");
+
+	private final List<String> prepared = new ArrayList<>();
+	private final Map<String, Boolean> idempotence = new HashMap<>();
+	private final CqlSession session = (CqlSession) Proxy.newProxyInstance(CqlSession.class.getClassLoader(), new Class<?>[] {CqlSession.class},
+		(proxy, method, args) -> {
+			if (!method.getName().equals("prepare")) throw new UnsupportedOperationException(method.getName());
+
+			SimpleStatement simple = (SimpleStatement) args[0];
+			prepared.add(simple.getQuery());
+			idempotence.put(simple.getQuery(), simple.isIdempotent());
+			return statement(simple.getQuery());
+		});
+
+	private final PrimaryTable table = new PrimaryTable("test", "flowers", "(account_id:uuid), name:text unique")
+		.withView("flowers_by_id", "id:uuid unique");
+	private final ObjectCodec<Document<Flower>> codec = new ObjectCodec<Document<Flower>>()
+	{
+		@Override
+		public byte[] serialize(Document<Flower> object)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Document<Flower> deserialize(byte[] bytes, Class<Document<Flower>> clazz)
+		{
+			throw new UnsupportedOperationException();
+		}
+	};
+	private final DocumentStatementFactory<Document<Flower>> factory = new DocumentStatementFactory<>(session, table, codec);
+	private final Document<Flower> document = new Document<>(ID, "rose".getBytes(StandardCharsets.UTF_8), Flower.class);
+
+	@Test
+	public void shouldPrepareEachStatementOnceInItsOwnSlot()
+	{
+		List<Supplier<?>> statements = List.of(
+			() -> factory.create(document),
+			() -> factory.delete(ID),
+			() -> factory.exists(ID),
+			() -> factory.update(document),
+			() -> factory.upsert(document),
+			() -> factory.createIfNotExists(document),
+			() -> factory.updateIfExists(document),
+			() -> factory.deleteIfExists(ID),
+			() -> factory.read(ID),
+			() -> factory.readAll(),
+			() -> factory.readAll(ACCOUNT_ID),
+			() -> factory.readAll(ACCOUNT_ID, "rose"),
+			() -> factory.readIds(),
+			() -> factory.readIds(ACCOUNT_ID),
+			() -> factory.readIds(ACCOUNT_ID, "rose"),
+			() -> factory.readHeaders(),
+			() -> factory.readHeaders(ACCOUNT_ID),
+			() -> factory.readHeaders(ACCOUNT_ID, "rose"),
+			() -> factory.scanKeys(),
+			() -> factory.readIn(List.of(ID)),
+			() -> factory.existsIn(List.of(ID)));
+
+		List<String> first = statements.stream().map(this::boundStatementOf).toList();
+		assertEquals(statements.size(), prepared.size());
+
+		// A statement overwritten by another in a shared slot would be bound from the wrong CQL.
+		List<String> second = statements.stream().map(this::boundStatementOf).toList();
+		assertEquals(first, second);
+		assertEquals(statements.size(), prepared.size());
+	}
+
+	@Test
+	public void shouldMarkOnlyLightweightTransactionsNonIdempotent()
+	{
+		assertTrue(isIdempotent(() -> factory.create(document)));
+		assertTrue(isIdempotent(() -> factory.update(document)));
+		assertTrue(isIdempotent(() -> factory.upsert(document)));
+		assertTrue(isIdempotent(() -> factory.delete(ID)));
+		assertTrue(isIdempotent(() -> factory.read(ID)));
+		assertTrue(isIdempotent(() -> factory.readAll(ACCOUNT_ID)));
+		assertTrue(isIdempotent(() -> factory.existsIn(List.of(ID))));
+		assertFalse(isIdempotent(() -> factory.createIfNotExists(document)));
+		assertFalse(isIdempotent(() -> factory.updateIfExists(document)));
+		assertFalse(isIdempotent(() -> factory.deleteIfExists(ID)));
+	}
+
+	@Test
+	public void shouldNotMarkLightweightTransactionsOfTableWithoutViewsIdempotent()
+	{
+		DocumentStatementFactory<Document<Flower>> unique = new DocumentStatementFactory<>(session, new PrimaryTable("test", "flowers", "(account_id:uuid), name:text unique"), codec);
+
+		assertFalse(isIdempotent(() -> unique.create(document)));
+		assertFalse(isIdempotent(() -> unique.update(document)));
+		assertFalse(isIdempotent(() -> unique.delete(ID)));
+		assertTrue(isIdempotent(() -> unique.upsert(document)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectMoreParametersThanKeys()
+	{
+		factory.readAll(ACCOUNT_ID, "rose", "extra");
+	}
+
+	private String boundStatementOf(Supplier<?> statement)
+	{
+		try
+		{
+			statement.get();
+			fail("Expected the prepared statement to be bound");
+			return null;
+		}
+		catch (Bound e)
+		{
+			return e.getMessage();
+		}
+	}
+
+	private boolean isIdempotent(Supplier<?> statement)
+	{
+		return idempotence.get(boundStatementOf(statement));
+	}
+
+	private static PreparedStatement statement(String cql)
+	{
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+			(proxy, method, args) -> {
+				if (method.getName().equals("getQuery")) return cql;
+
+				throw new Bound(cql);
+			});
+	}
+}
@@ -0,0 +1,139 @@
+package com.helenusdb.document.key;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.data.SettableByIndex;
+
+public class DataTypesTest
+{
+	/**
+	 * Records each setter called on it as "setter index value".
+	 */
+	interface RecordingSettable
+	extends SettableByIndex<RecordingSettable>
+	{
+	}
+
+	private static final UUID ID = UUID.fromString("8dbac965-a1c8-4ad6-a043-5f5a9a5ee8c0");
+	private static final Instant NOW = Instant.ofEpochMilli(1648598130248L);
+
+	private final List<String> calls = new ArrayList<>();
+	private final RecordingSettable settable = (RecordingSettable) Proxy.newProxyInstance(RecordingSettable.class.getClassLoader(), new Class<?>[] {RecordingSettable.class},
+		(proxy, method, args) -> {
+			calls.add(method.getName() + " " + args[0] + (args.length > 1 ? " " + args[1] : ""));
+			return proxy;
+		});
+
+	@Test
+	public void shouldBindEachType()
+	{
+		DataTypes.BIGINT.bindTo(settable, 0, 5L);
+		DataTypes.DECIMAL.bindTo(settable, 1, new BigDecimal("1.25"));
+		DataTypes.DOUBLE.bindTo(settable, 2, 1.5d);
+		DataTypes.FLOAT.bindTo(settable, 3, 2.5f);
+		DataTypes.INTEGER.bindTo(settable, 4, 7);
+		DataTypes.TEXT.bindTo(settable, 5, "rose");
+		DataTypes.TIMESTAMP.bindTo(settable, 6, NOW);
+		DataTypes.TIMEUUID.bindTo(settable, 7, ID);
+		DataTypes.UUID.bindTo(settable, 8, ID);
+
+		assertEquals(List.of(
+			"setLong 0 5",
+			"setBigDecimal 1 1.25",
+			"setDouble 2 1.5",
+			"setFloat 3 2.5",
+			"setInt 4 7",
+			"setString 5 rose",
+			"setInstant 6 " + NOW,
+			"setUuid 7 " + ID,
+			"setUuid 8 " + ID), calls);
+		assertEquals(DataTypes.values().length, calls.size());
+	}
+
+	@Test
+	public void shouldBindNull()
+	{
+		DataTypes.INTEGER.bindTo(settable, 3, null);
+
+		assertEquals(List.of("setToNull 3"), calls);
+	}
+
+	@Test
+	public void shouldConvertNumbersThatFit()
+	{
+		DataTypes.INTEGER.bindTo(settable, 0, 7L);
+		DataTypes.INTEGER.bindTo(settable, 1, 7.0d);
+		DataTypes.BIGINT.bindTo(settable, 2, 7);
+		DataTypes.BIGINT.bindTo(settable, 3, BigInteger.valueOf(Long.MAX_VALUE));
+		DataTypes.FLOAT.bindTo(settable, 4, 2.5d);
+		DataTypes.TIMESTAMP.bindTo(settable, 5, Date.from(NOW));
+
+		assertEquals(List.of(
+			"setInt 0 7",
+			"setInt 1 7",
+			"setLong 2 7",
+			"setLong 3 " + Long.MAX_VALUE,
+			"setFloat 4 2.5",
+			"setInstant 5 " + NOW), calls);
+	}
+
+	@Test
+	public void shouldCoerceToColumnType()
+	{
+		assertEquals(7L, DataTypes.BIGINT.coerce(7));
+		assertEquals(7, DataTypes.INTEGER.coerce(7L));
+		assertEquals(2.5f, DataTypes.FLOAT.coerce(2.5d));
+		assertEquals(1.5d, DataTypes.DOUBLE.coerce(1.5f));
+		assertEquals(Date.from(NOW), DataTypes.TIMESTAMP.coerce(NOW));
+		assertEquals(ID, DataTypes.UUID.coerce(ID));
+		assertNull(DataTypes.TEXT.coerce(null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotCoerceFractionToInt()
+	{
+		DataTypes.INTEGER.coerce(1.5d);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectLongOutOfIntRange()
+	{
+		DataTypes.INTEGER.bindTo(settable, 0, 1L << 32);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectFractionForInt()
+	{
+		DataTypes.INTEGER.bindTo(settable, 0, 1.5d);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectBigIntegerOutOfLongRange()
+	{
+		DataTypes.BIGINT.bindTo(settable, 0, BigInteger.ONE.shiftLeft(64));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectDoubleOutOfFloatRange()
+	{
+		DataTypes.FLOAT.bindTo(settable, 0, 1e300d);
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void shouldRejectWrongType()
+	{
+		DataTypes.UUID.bindTo(settable, 0, "rose");
+	}
+}
@@ -0,0 +1,67 @@
+package com.helenusdb.document.key;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.key.ClusteringKeyComponent.Ordering;
+
+public class IdentifierCodecTest
+{
+	private KeyDefinition keys = new KeyDefinition()
+		.addPartitionKey("account", DataTypes.UUID)
+		.addPartitionKey("name", DataTypes.TEXT)
+		.addClusteringKey("created_at", DataTypes.TIMESTAMP, Ordering.DESC)
+		.addClusteringKey("price", DataTypes.DECIMAL, Ordering.ASC)
+		.addClusteringKey("count", DataTypes.INTEGER, Ordering.ASC);
+
+	private IdentifierCodec codec = new IdentifierCodec(keys);
+
+	@Test
+	public void shouldRoundTrip()
+	{
+		UUID account = UUID.randomUUID();
+		Date createdAt = new Date(1700000000123L);
+		Identifier id = new Identifier(account, "röse", createdAt, new BigDecimal("-12.345"), 42);
+
+		assertEquals(id, codec.decode(ByteBuffer.wrap(codec.encode(id))));
+	}
+
+	@Test
+	public void shouldDecodeInstantAsDate()
+	{
+		UUID account = UUID.randomUUID();
+		Instant createdAt = Instant.ofEpochMilli(1700000000123L);
+		Identifier id = new Identifier(account, "rose", createdAt, BigDecimal.ONE, 1);
+		Identifier expected = new Identifier(account, "rose", Date.from(createdAt), BigDecimal.ONE, 1);
+
+		assertEquals(expected, codec.decode(ByteBuffer.wrap(codec.encode(id))));
+	}
+
+	@Test
+	public void shouldNotDecodeLegacyPayload()
+	{
+		Identifier id = new Identifier(UUID.randomUUID(), "rose", Instant.now(), BigDecimal.ONE, 1);
+
+		assertNull(codec.decode(ByteBuffer.wrap(id.toString().getBytes())));
+		assertNull(codec.decode(ByteBuffer.wrap(new byte[0])));
+		assertNull(codec.decode(null));
+	}
+
+	@Test
+	public void shouldNotDecodeTruncatedPayload()
+	{
+		Identifier id = new Identifier(UUID.randomUUID(), "rose", Instant.now(), BigDecimal.ONE, 1);
+		byte[] bytes = codec.encode(id);
+
+		assertNull(codec.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+	}
+}
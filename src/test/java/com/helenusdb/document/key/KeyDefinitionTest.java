@@ -247,4 +247,43 @@ public class KeyDefinitionTest
 		assertEquals(id, components.get(2));
 		assertEquals(2022, components.get(3));
 	}
+
+	@Test
+	public void shouldExtractFromDifferentConcreteClasses()
+	throws KeyDefinitionException, InvalidIdentifierException
+	{
+		KeyDefinition defn = KeyDefinitionParser.parse("(name:text), height:float");
+		Flower flower = new Flower(null, "rose", true, 3.25f, null);
+		Plant plant = new Plant("fern", 1.5f);
+
+		assertEquals(Arrays.asList("rose", 3.25f), defn.identifier(flower).components());
+		assertEquals(Arrays.asList("fern", 1.5f), defn.identifier(plant).components());
+		assertEquals(Arrays.asList("rose", 3.25f), defn.identifier(flower).components());
+	}
+
+	@Test
+	public void shouldReportNullIntermediatePropertyAsMissing()
+	throws KeyDefinitionException, InvalidIdentifierException
+	{
+		KeyDefinition kd = new KeyDefinition();
+		kd.addPartitionKey(new KeyComponent("account_id", "account.id", DataTypes.UUID));
+		Flower flower = new Flower();
+		flower.setAccount(null);
+
+		thrown.expect(InvalidIdentifierException.class);
+	    thrown.expectMessage("Missing properties: account.id");
+	    kd.identifier(flower);
+	}
+
+	private static class Plant
+	{
+		private String name;
+		private float height;
+
+		Plant(String name, float height)
+		{
+			this.name = name;
+			this.height = height;
+		}
+	}
 }
@@ -0,0 +1,81 @@
+package com.helenusdb.document.key;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.helenusdb.core.Identifier;
+
+public class KeyPropertyConverterTest
+{
+	private static final UUID ACCOUNT_ID = UUID.fromString("a87d3bff-6997-4739-ab4e-ded0cc85700f");
+	private static final Instant CREATED_AT = Instant.ofEpochMilli(1648598130248L);
+
+	private final KeyDefinition keys = KeyDefinitionParser.parse("(account_id:uuid), created_at:timestamp unique");
+	private final KeyDefinition counters = KeyDefinitionParser.parse("(account_id:uuid), sequence:bigint, count:int unique");
+
+	@Test
+	public void shouldReadTimestampAsDate()
+	{
+		Identifier id = KeyPropertyConverter.identifier(keys, row(Map.of("account_id", ACCOUNT_ID, "created_at", CREATED_AT)));
+
+		assertEquals(new Identifier(ACCOUNT_ID, Date.from(CREATED_AT)), id);
+	}
+
+	@Test
+	public void shouldNormalizeInstantToDate()
+	{
+		Identifier fromRow = KeyPropertyConverter.identifier(keys, row(Map.of("account_id", ACCOUNT_ID, "created_at", CREATED_AT)));
+
+		assertEquals(fromRow, KeyPropertyConverter.normalize(keys, new Identifier(ACCOUNT_ID, CREATED_AT)));
+		assertEquals(fromRow.hashCode(), KeyPropertyConverter.normalize(keys, new Identifier(ACCOUNT_ID, CREATED_AT)).hashCode());
+	}
+
+	@Test
+	public void shouldNormalizeIntegerForBigint()
+	{
+		Identifier fromRow = KeyPropertyConverter.identifier(counters, row(Map.of("account_id", ACCOUNT_ID, "sequence", 7L, "count", 3)));
+
+		assertEquals(fromRow, KeyPropertyConverter.normalize(counters, new Identifier(ACCOUNT_ID, 7, 3L)));
+		assertEquals(new Identifier(ACCOUNT_ID, 7L), KeyPropertyConverter.normalize(counters, new Identifier(ACCOUNT_ID, 7)));
+	}
+
+	@Test
+	public void shouldLeaveValuesTheColumnRejects()
+	{
+		Identifier id = new Identifier(ACCOUNT_ID, 1.5d, 1L << 40);
+
+		assertEquals(id, KeyPropertyConverter.normalize(counters, id));
+	}
+
+	@Test
+	public void shouldNotCopyNormalizedIdentifier()
+	{
+		Identifier id = new Identifier(ACCOUNT_ID, Date.from(CREATED_AT));
+
+		assertSame(id, KeyPropertyConverter.normalize(keys, id));
+	}
+
+	/**
+	 * @return a row answering the typed getters from the given columns.
+	 */
+	private static Row row(Map<String, Object> columns)
+	{
+		return (Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[] {Row.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "getUuid", "getInstant", "getLong", "getInt": return columns.get(args[0]);
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+}
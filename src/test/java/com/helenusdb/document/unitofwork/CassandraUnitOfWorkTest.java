@@ -0,0 +1,218 @@
+package com.helenusdb.document.unitofwork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.CassandraStatementFactory;
+import com.helenusdb.document.Flower;
+import com.helenusdb.document.PrimaryTable;
+import com.helenusdb.document.document.ChunkManifest;
+import com.helenusdb.document.document.ContentHash;
+import com.strategicgains.noschema.document.Document;
+import com.strategicgains.noschema.document.ObjectCodec;
+
+/**
+ * Commits unchanged dirty documents, which listeners are notified of but which generate no
+ * statements, so the session only sees prerequisites and cleanups. It executes them
+ * synchronously, recording their names.
+ */
+public class CassandraUnitOfWorkTest
+{
+	private static final String FLOWERS = "flowers";
+
+	private final List<String> executed = new ArrayList<>();
+	private final List<String> notified = new ArrayList<>();
+	private final CqlSession session = (CqlSession) Proxy.newProxyInstance(CqlSession.class.getClassLoader(), new Class<?>[] {CqlSession.class},
+		(proxy, method, args) -> {
+			if (!method.getName().equals("executeAsync")) throw new UnsupportedOperationException(method.getName());
+
+			executed.add(args[0].toString());
+			return CompletableFuture.completedFuture(null);
+		});
+	private final CassandraStatementFactory<Document<Flower>> statementFactory = new CassandraStatementFactory<>(session, new PrimaryTable("test", FLOWERS, "id:text unique"), new ObjectCodec<Document<Flower>>()
+	{
+		@Override
+		public byte[] serialize(Document<Flower> object)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Document<Flower> deserialize(byte[] bytes, Class<Document<Flower>> clazz)
+		{
+			throw new UnsupportedOperationException();
+		}
+	});
+
+	@Test
+	public void shouldCommitRootWithItsChildren()
+	{
+		CassandraUnitOfWork<Flower> root = unitOfWork("rose");
+		unitOfWork(root.newChild(statementFactory), "tulip");
+		unitOfWork(root.newChild(statementFactory), "daisy");
+
+		root.commitAsync().join();
+
+		assertEquals(List.of(name("rose"), name("tulip"), name("daisy")), notified);
+		assertEquals(List.of("cleanup rose", "cleanup tulip", "cleanup daisy"), executed);
+	}
+
+	@Test
+	public void shouldSkipChildAlreadyCommitted()
+	{
+		CassandraUnitOfWork<Flower> root = unitOfWork("rose");
+		CassandraUnitOfWork<Flower> child = unitOfWork(root.newChild(statementFactory), "tulip");
+
+		child.commitAsync().join();
+		root.commitAsync().join();
+
+		assertEquals(List.of(name("tulip"), name("rose")), notified);
+		assertEquals(List.of("cleanup tulip", "cleanup rose"), executed);
+	}
+
+	@Test
+	public void shouldNotCommitTwice()
+	{
+		CassandraUnitOfWork<Flower> root = unitOfWork("rose");
+		CassandraUnitOfWork<Flower> child = unitOfWork(root.newChild(statementFactory), "tulip");
+
+		root.commitAsync().join();
+		root.commitAsync().join();
+		child.commitAsync().join();
+
+		assertEquals(List.of(name("rose"), name("tulip")), notified);
+		assertEquals(List.of("cleanup rose", "cleanup tulip"), executed);
+	}
+
+	@Test
+	public void shouldCleanUpEveryUnitBeforeNotifyingListeners()
+	{
+		CassandraUnitOfWork<Flower> root = new CassandraUnitOfWork<>(session, statementFactory);
+		CassandraUnitOfWork<Flower> child = root.newChild(statementFactory);
+		registerUnchanged(root, "rose").registerCleanup(statement("cleanup rose"))
+			.withListener(change -> {
+				notified.add(change.getId().toString());
+				throw new IllegalStateException("listener failed");
+			});
+		registerUnchanged(child, "tulip").registerCleanup(statement("cleanup tulip"))
+			.withListener(change -> notified.add(change.getId().toString()));
+
+		try
+		{
+			root.commitAsync().join();
+			fail("Expected the listener's exception");
+		}
+		catch (CompletionException e)
+		{
+			assertEquals("listener failed", e.getCause().getMessage());
+		}
+
+		assertEquals(List.of("cleanup rose", "cleanup tulip"), executed);
+		assertEquals(List.of(name("rose"), name("tulip")), notified);
+	}
+
+	@Test
+	public void shouldSkipCleanupOfChunkSetTheCommitWrites()
+	{
+		ChunkManifest rewritten = new ChunkManifest(UUID.randomUUID(), 10, 4);
+		ChunkManifest superseded = new ChunkManifest(UUID.randomUUID(), 10, 4);
+		CassandraUnitOfWork<Flower> root = new CassandraUnitOfWork<>(session, statementFactory);
+		CassandraUnitOfWork<Flower> child = root.newChild(statementFactory);
+
+		registerUnchanged(child, "rose", rewritten)
+			.registerChunks(FLOWERS, rewritten, List.of(statement("write chunks")), statement("undo chunks"));
+		root.registerChunkCleanup(rewritten, statement("delete rewritten"))
+			.registerChunkCleanup(superseded, statement("delete superseded"));
+		root.commitAsync().join();
+
+		assertEquals(List.of("write chunks", "delete superseded"), executed);
+	}
+
+	@Test
+	public void shouldNotWriteChunksOfNewDocumentThatIsDeleted()
+	{
+		ChunkManifest manifest = new ChunkManifest(UUID.randomUUID(), 10, 4);
+		Document<Flower> document = document("rose", manifest);
+		CassandraUnitOfWork<Flower> uow = new CassandraUnitOfWork<>(session, statementFactory)
+			.registerNew(FLOWERS, document)
+			.registerChunks(FLOWERS, manifest, List.of(statement("write chunks")), statement("undo chunks"))
+			.registerDeleted(FLOWERS, document);
+
+		uow.commitAsync().join();
+
+		assertEquals(List.of(), executed);
+	}
+
+	/**
+	 * @return a unit of work with an unchanged document, a listener and a cleanup, all named after the flower.
+	 */
+	private CassandraUnitOfWork<Flower> unitOfWork(String name)
+	{
+		return unitOfWork(new CassandraUnitOfWork<>(session, statementFactory), name);
+	}
+
+	private CassandraUnitOfWork<Flower> unitOfWork(CassandraUnitOfWork<Flower> uow, String name)
+	{
+		return registerUnchanged(uow, name).registerCleanup(statement("cleanup " + name))
+			.withListener(change -> notified.add(change.getId().toString()));
+	}
+
+	private static String name(String name)
+	{
+		return new Identifier(name).toString();
+	}
+
+	private CassandraUnitOfWork<Flower> registerUnchanged(CassandraUnitOfWork<Flower> uow, String name)
+	{
+		return registerUnchanged(uow, name, null);
+	}
+
+	private CassandraUnitOfWork<Flower> registerUnchanged(CassandraUnitOfWork<Flower> uow, String name, ChunkManifest manifest)
+	{
+		Document<Flower> document = ContentHash.stamp(document(name, manifest));
+		return uow.registerClean(FLOWERS, document)
+			.registerDirty(FLOWERS, document);
+	}
+
+	/**
+	 * @return a document of the flower, chunked if there's a manifest.
+	 */
+	private static Document<Flower> document(String name, ChunkManifest manifest)
+	{
+		Document<Flower> document = new Document<>(new Identifier(name), name.getBytes(StandardCharsets.UTF_8), Flower.class);
+
+		if (manifest != null) document.withMetadata(ChunkManifest.METADATA_KEY, manifest.toString());
+
+		return document;
+	}
+
+	/**
+	 * @return a statement that's only its name.
+	 */
+	private static BoundStatement statement(String name)
+	{
+		return (BoundStatement) Proxy.newProxyInstance(BoundStatement.class.getClassLoader(), new Class<?>[] {BoundStatement.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "toString": return name;
+					case "hashCode": return System.identityHashCode(proxy);
+					case "equals": return (proxy == args[0]);
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+}
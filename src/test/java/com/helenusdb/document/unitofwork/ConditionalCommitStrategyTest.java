@@ -0,0 +1,223 @@
+package com.helenusdb.document.unitofwork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.unitofwork.ConditionalCommitStrategy.ConditionalWrite;
+import com.helenusdb.transact.EntityState;
+import com.helenusdb.transact.exception.UnitOfWorkCommitException;
+import com.strategicgains.noschema.exception.DuplicateItemException;
+
+/**
+ * The session executes statements synchronously, recording their names. Statements named in
+ * rejected aren't applied, those named in failing fail. Committing the dependents fails with
+ * dependentFailure, if set, thrown or as a failed future depending on throwDependentFailure.
+ */
+public class ConditionalCommitStrategyTest
+{
+	private static final Identifier ID = new Identifier("rose");
+
+	private final List<String> executed = new ArrayList<>();
+	private final Set<String> rejected = new HashSet<>();
+	private final Set<String> failing = new HashSet<>();
+	private final List<BoundStatement> dependents = new ArrayList<>();
+	private RuntimeException dependentFailure;
+	private boolean throwDependentFailure;
+	private final Row existing = (Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[] {Row.class},
+		(proxy, method, args) -> {
+			throw new UnsupportedOperationException(method.getName());
+		});
+	private final CqlSession session = (CqlSession) Proxy.newProxyInstance(CqlSession.class.getClassLoader(), new Class<?>[] {CqlSession.class},
+		(proxy, method, args) -> {
+			if (!method.getName().equals("executeAsync")) throw new UnsupportedOperationException(method.getName());
+
+			String name = args[0].toString();
+			executed.add(name);
+
+			if (failing.contains(name)) return CompletableFuture.failedFuture(new IllegalStateException("timed out"));
+
+			return CompletableFuture.completedFuture(resultSet(!rejected.contains(name)));
+		});
+	private final ConditionalCommitStrategy strategy = new ConditionalCommitStrategy(session, new UnitOfWorkCommitStrategy()
+	{
+		@Override
+		public CompletableFuture<?> commit(List<BoundStatement> statements)
+		{
+			if (dependentFailure == null)
+			{
+				dependents.addAll(statements);
+				return CompletableFuture.completedFuture(null);
+			}
+
+			if (throwDependentFailure) throw dependentFailure;
+
+			return CompletableFuture.failedFuture(dependentFailure);
+		}
+
+		@Override
+		public void rollback()
+		{
+		}
+	});
+
+	@Test
+	public void shouldCommitDependentsOnceAllApplied()
+	{
+		strategy.commit(List.of(create("create rose", "delete rose")), List.of(statement("index rose"))).join();
+
+		assertEquals(List.of("create rose"), executed);
+		assertEquals(1, dependents.size());
+	}
+
+	@Test
+	public void shouldUndoAppliedCreateBeforeItsChunks()
+	{
+		rejected.add("create rose by name");
+
+		commitExpectingFailure(List.of(
+			new ConditionalWrite(statement("create rose"), EntityState.NEW, ID, List.of(statement("delete rose"), statement("delete chunks")), null),
+			create("create rose by name", null)));
+
+		assertEquals(List.of("create rose", "create rose by name", "delete rose", "delete chunks"), executed);
+		assertTrue(dependents.isEmpty());
+	}
+
+	@Test
+	public void shouldUndoRejectedWriteGivenTheRowThatRejectedIt()
+	{
+		rejected.add("create rose");
+		List<Row> rows = new ArrayList<>();
+
+		commitExpectingFailure(List.of(new ConditionalWrite(statement("create rose"), EntityState.NEW, ID, List.of(statement("delete rose")), row -> {
+			rows.add(row);
+			return statement("delete chunks");
+		})));
+
+		assertEquals(List.of("create rose", "delete chunks"), executed);
+		assertEquals(1, rows.size());
+		assertSame(existing, rows.get(0));
+	}
+
+	@Test
+	public void shouldLeaveRejectedWriteAloneIfRowRefersToItsChunks()
+	{
+		rejected.add("create rose");
+
+		commitExpectingFailure(List.of(new ConditionalWrite(statement("create rose"), EntityState.NEW, ID, List.of(statement("delete rose")), row -> null)));
+
+		assertEquals(List.of("create rose"), executed);
+	}
+
+	@Test
+	public void shouldNotUndoWriteThatFailed()
+	{
+		failing.add("create rose");
+		rejected.add("create rose by name");
+
+		commitExpectingFailure(List.of(create("create rose", "delete rose"), create("create rose by name", null)));
+
+		assertEquals(List.of("create rose", "create rose by name"), executed);
+	}
+
+	@Test
+	public void shouldKeepChunksIfUndoingTheRowFails()
+	{
+		failing.add("delete rose");
+		rejected.add("create rose by name");
+
+		commitExpectingFailure(List.of(
+			new ConditionalWrite(statement("create rose"), EntityState.NEW, ID, List.of(statement("delete rose"), statement("delete chunks")), null),
+			create("create rose by name", null)));
+
+		assertEquals(List.of("create rose", "create rose by name", "delete rose"), executed);
+	}
+
+	@Test
+	public void shouldUndoAppliedWritesIfDependentsFail()
+	{
+		dependentFailure = new IllegalStateException("timed out");
+
+		commitExpectingFailure(List.of(create("create rose", "delete rose"), create("create rose by name", "delete rose by name")));
+
+		assertEquals(List.of("create rose", "create rose by name", "delete rose", "delete rose by name"), executed);
+	}
+
+	@Test
+	public void shouldUndoAppliedWritesIfDependentsThrow()
+	{
+		dependentFailure = new IllegalStateException("unavailable");
+		throwDependentFailure = true;
+
+		commitExpectingFailure(List.of(create("create rose", "delete rose")));
+
+		assertEquals(List.of("create rose", "delete rose"), executed);
+	}
+
+	private void commitExpectingFailure(List<ConditionalWrite> conditions)
+	{
+		try
+		{
+			strategy.commit(conditions, List.of(statement("index rose"))).join();
+			fail("Expected the commit to fail");
+		}
+		catch (CompletionException e)
+		{
+			assertTrue(e.getCause() instanceof UnitOfWorkCommitException);
+			assertTrue(e.getCause().getCause() instanceof DuplicateItemException || e.getCause().getCause() instanceof IllegalStateException);
+		}
+
+		assertTrue(dependents.isEmpty());
+	}
+
+	private ConditionalWrite create(String name, String compensation)
+	{
+		return new ConditionalWrite(statement(name), EntityState.NEW, ID, (compensation == null ? null : statement(compensation)));
+	}
+
+	private AsyncResultSet resultSet(boolean wasApplied)
+	{
+		return (AsyncResultSet) Proxy.newProxyInstance(AsyncResultSet.class.getClassLoader(), new Class<?>[] {AsyncResultSet.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "wasApplied": return wasApplied;
+					case "one": return (wasApplied ? null : existing);
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+
+	/**
+	 * @return a statement that's only its name.
+	 */
+	private static BoundStatement statement(String name)
+	{
+		return (BoundStatement) Proxy.newProxyInstance(BoundStatement.class.getClassLoader(), new Class<?>[] {BoundStatement.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "toString": return name;
+					case "hashCode": return System.identityHashCode(proxy);
+					case "equals": return (proxy == args[0]);
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+}
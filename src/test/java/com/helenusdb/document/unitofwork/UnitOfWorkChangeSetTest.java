@@ -0,0 +1,140 @@
+package com.helenusdb.document.unitofwork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifier;
+import com.helenusdb.document.Flower;
+import com.helenusdb.document.key.KeyDefinition;
+import com.helenusdb.document.key.KeyDefinitionParser;
+import com.helenusdb.transact.EntityState;
+import com.strategicgains.noschema.document.Document;
+
+public class UnitOfWorkChangeSetTest
+{
+	private static final String FLOWERS = "flowers";
+	private static final String BY_NAME = "flowers_by_name";
+	private static final KeyDefinition KEYS = KeyDefinitionParser.parse("id:text unique");
+
+	@Test
+	public void shouldInsertLatestOfNewThenDirty()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+		Document<Flower> dirty = document("a", "tulip");
+
+		changes.register(change(FLOWERS, document("a", "rose"), EntityState.NEW));
+		assertEquals(1, changes.register(change(FLOWERS, dirty, EntityState.DIRTY)));
+
+		List<DocumentChange<Flower>> coalesced = changes.stream().toList();
+		assertEquals(1, coalesced.size());
+		assertEquals(EntityState.NEW, coalesced.get(0).getState());
+		assertSame(dirty, coalesced.get(0).getEntity());
+		assertEquals(1, changes.getCoalescedCount());
+	}
+
+	@Test
+	public void shouldEliminateNewThenDeleted()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+
+		changes.register(change(FLOWERS, document("a", "rose"), EntityState.NEW));
+		assertEquals(2, changes.register(change(FLOWERS, document("a", "rose"), EntityState.DELETED)));
+
+		assertEquals(0, changes.size());
+		assertEquals(2, changes.getCoalescedCount());
+	}
+
+	@Test
+	public void shouldWriteLastDirty()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+		Document<Flower> last = document("a", "lily");
+
+		changes.register(change(FLOWERS, document("a", "rose"), EntityState.DIRTY));
+		changes.register(change(FLOWERS, document("a", "tulip"), EntityState.DIRTY));
+		changes.register(change(FLOWERS, last, EntityState.DIRTY));
+
+		List<DocumentChange<Flower>> coalesced = changes.stream().toList();
+		assertEquals(1, coalesced.size());
+		assertEquals(EntityState.DIRTY, coalesced.get(0).getState());
+		assertSame(last, coalesced.get(0).getEntity());
+		assertEquals(2, changes.getCoalescedCount());
+	}
+
+	@Test
+	public void shouldOverwriteDeletedThenNew()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+
+		changes.register(change(FLOWERS, document("a", "rose"), EntityState.DELETED));
+		changes.register(change(FLOWERS, document("a", "tulip"), EntityState.NEW));
+
+		assertEquals(EntityState.DIRTY, changes.stream().findFirst().get().getState());
+	}
+
+	@Test
+	public void shouldRejectDirtyAfterDeleted()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+
+		changes.register(change(FLOWERS, document("a", "rose"), EntityState.DELETED));
+
+		try
+		{
+			changes.register(change(FLOWERS, document("a", "tulip"), EntityState.DIRTY));
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+
+		assertEquals(EntityState.DELETED, changes.stream().findFirst().get().getState());
+		assertEquals(0, changes.getCoalescedCount());
+	}
+
+	@Test
+	public void shouldCoalescePerViewAndIdentifier()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+
+		changes.register(change(FLOWERS, document("a", "rose"), EntityState.NEW));
+		changes.register(change(BY_NAME, document("a", "rose"), EntityState.NEW));
+		changes.register(change(FLOWERS, document("b", "tulip"), EntityState.DIRTY));
+
+		assertEquals(3, changes.size());
+		assertEquals(0, changes.getCoalescedCount());
+	}
+
+	@Test
+	public void shouldKeepCleanDocumentsApart()
+	{
+		UnitOfWorkChangeSet<Flower> changes = new UnitOfWorkChangeSet<>(view -> KEYS);
+		Document<Flower> clean = document("a", "rose");
+
+		changes.register(change(FLOWERS, clean, EntityState.CLEAN));
+		changes.register(change(FLOWERS, document("a", "tulip"), EntityState.DIRTY));
+
+		assertEquals(1, changes.size());
+		assertSame(clean, changes.findClean(FLOWERS, new Identifier("a")));
+		assertSame(clean, changes.findClean(new Identifier("a")));
+		assertNull(changes.findClean(BY_NAME, new Identifier("a")));
+	}
+
+	private static DocumentChange<Flower> change(String view, Document<Flower> document, EntityState state)
+	{
+		return new DocumentChange<>(view, document, state);
+	}
+
+	private static Document<Flower> document(String id, String object)
+	{
+		return new Document<>(new Identifier(id), object.getBytes(StandardCharsets.UTF_8), Flower.class);
+	}
+}
@@ -0,0 +1,44 @@
+package com.helenusdb.document.unitofwork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class WriteTimestampsTest
+{
+	@Test
+	public void shouldBeMicrosecondsSinceTheEpoch()
+	{
+		long before = System.currentTimeMillis() * 1000L;
+		long timestamp = WriteTimestamps.next();
+
+		assertTrue(timestamp >= before);
+		assertTrue(timestamp < (System.currentTimeMillis() + 1000L) * 1000L);
+	}
+
+	@Test
+	public void shouldIncreaseWithinTheSameMicrosecond()
+	{
+		List<Long> timestamps = IntStream.range(0, 10000).mapToObj(i -> WriteTimestamps.next()).toList();
+
+		for (int i = 1; i < timestamps.size(); i++)
+		{
+			assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+		}
+	}
+
+	@Test
+	public void shouldBeUniqueAcrossThreads()
+	{
+		Set<Long> timestamps = ConcurrentHashMap.newKeySet();
+		IntStream.range(0, 10000).parallel().forEach(i -> timestamps.add(WriteTimestamps.next()));
+
+		assertEquals(10000, timestamps.size());
+	}
+}
@@ -0,0 +1,130 @@
+package com.strategicgains.noschema.document;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BufferPoolTest
+{
+	@Test
+	public void shouldReuseReleasedBuffers()
+	{
+		BufferPool pool = new BufferPool(2, 16, 1024);
+		PooledOutputStream first = pool.acquire();
+		first.write(new byte[] {1, 2, 3}, 0, 3);
+		pool.release(first);
+		PooledOutputStream second = pool.acquire();
+
+		assertSame(first, second);
+		assertEquals(0, second.size());
+		assertEquals(1, pool.hits());
+		assertEquals(1, pool.misses());
+		assertEquals(0.5, pool.hitRate(), 0.0);
+	}
+
+	@Test
+	public void shouldBoundPool()
+	{
+		BufferPool pool = new BufferPool(2, 16, 1024);
+		PooledOutputStream a = pool.acquire();
+		PooledOutputStream b = pool.acquire();
+		PooledOutputStream c = pool.acquire();
+		pool.release(a);
+		pool.release(b);
+		pool.release(c);
+
+		assertEquals(2, pool.available());
+	}
+
+	@Test
+	public void shouldNotRetainOversizedBuffers()
+	{
+		BufferPool pool = new BufferPool(2, 16, 64);
+		PooledOutputStream out = pool.acquire();
+		out.write(new byte[100], 0, 100);
+		pool.release(out);
+
+		assertEquals(0, pool.available());
+	}
+
+	@Test
+	public void shouldGrow()
+	{
+		BufferPool pool = new BufferPool(1, 2, 1024);
+		PooledOutputStream out = pool.acquire();
+
+		for (int i = 0; i < 10; i++)
+		{
+			out.write(i);
+		}
+
+		assertEquals(10, out.size());
+		assertArrayEquals(new byte[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, out.toByteArray());
+		assertEquals(10, out.asByteBuffer().remaining());
+	}
+
+	@Test
+	public void shouldCopySmallObjectAndKeepArray()
+	{
+		BufferPool pool = new BufferPool(1, 16, 1024);
+		PooledOutputStream out = pool.acquire();
+		out.write(new byte[20], 0, 20);
+		out.reset();
+		out.write(new byte[] {1, 2, 3}, 0, 3);
+		ByteBuffer bytes = pool.takeBytes(out);
+		pool.release(out);
+		pool.acquire().write(new byte[] {9, 9, 9}, 0, 3);
+
+		assertArrayEquals(new byte[] {1, 2, 3}, bytesOf(bytes));
+		assertEquals(32, out.capacity());
+	}
+
+	@Test
+	public void shouldHandOverMostlyFullArray()
+	{
+		BufferPool pool = new BufferPool(1, 16, 1024);
+		PooledOutputStream out = pool.acquire();
+		out.write(new byte[30], 0, 30);
+		assertEquals(32, out.capacity());
+		ByteBuffer bytes = pool.takeBytes(out);
+		pool.release(out);
+		pool.acquire().write(new byte[] {9, 9, 9}, 0, 3);
+
+		assertTrue(bytes.isReadOnly());
+		assertArrayEquals(new byte[30], bytesOf(bytes));
+		assertEquals(16, out.capacity());
+	}
+
+	@Test
+	public void shouldHandOverOversizedArrayAndRetainBuffer()
+	{
+		BufferPool pool = new BufferPool(1, 16, 64);
+		PooledOutputStream out = pool.acquire();
+		out.write(new byte[100], 0, 40);
+		out.write(new byte[100], 0, 40);
+		ByteBuffer bytes = pool.takeBytes(out);
+		pool.release(out);
+
+		assertEquals(80, bytes.remaining());
+		assertEquals(16, out.capacity());
+		assertEquals(1, pool.available());
+	}
+
+	@Test
+	public void shouldReportZeroHitRateWhenUnused()
+	{
+		assertEquals(0.0, new BufferPool(1, 2, 2).hitRate(), 0.0);
+	}
+
+	private static byte[] bytesOf(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+}
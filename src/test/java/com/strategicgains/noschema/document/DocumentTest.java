@@ -0,0 +1,66 @@
+package com.strategicgains.noschema.document;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helenusdb.core.Identifiable;
+
+public class DocumentTest
+{
+	@Test
+	public void shouldHonorBufferPositionAndLimit()
+	{
+		ByteBuffer frame = ByteBuffer.wrap("headerPAYLOADtrailer".getBytes(StandardCharsets.UTF_8));
+		frame.position(6).limit(13);
+		Document<Identifiable> document = new Document<>();
+		document.setObject(frame);
+
+		assertEquals(7, document.getObjectSize());
+		assertArrayEquals("PAYLOAD".getBytes(StandardCharsets.UTF_8), document.getObject());
+		assertEquals(6, frame.position());
+		assertEquals(13, frame.limit());
+	}
+
+	@Test
+	public void shouldReturnReadOnlyBuffer()
+	{
+		Document<Identifiable> document = new Document<>();
+		document.setObject(ByteBuffer.allocateDirect(4).putInt(42).flip());
+		ByteBuffer buffer = document.getObjectBuffer();
+
+		assertTrue(buffer.isReadOnly());
+		assertEquals(42, buffer.getInt());
+		assertEquals(0, document.getObjectBuffer().position());
+	}
+
+	@Test
+	public void shouldDeserializeFromBuffer()
+	{
+		ObjectCodec<String> codec = new ObjectCodec<>()
+		{
+			@Override
+			public byte[] serialize(String object)
+			{
+				return object.getBytes(StandardCharsets.UTF_8);
+			}
+
+			@Override
+			public String deserialize(byte[] bytes, Class<String> clazz)
+			{
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+
+		ByteBuffer frame = ByteBuffer.wrap("xxrosexx".getBytes(StandardCharsets.UTF_8));
+		frame.position(2).limit(6);
+
+		assertEquals("rose", codec.deserialize(frame.asReadOnlyBuffer(), String.class));
+		assertEquals(2, frame.position());
+	}
+}